@@ -0,0 +1,153 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.common.ApiResponse;
+import com.example.demo.common.StreamingApiResponse;
+import com.example.demo.dto.UserResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ApiResponse 包装的 JSON 序列化开销，ObjectMapper 与 Spring MVC 消息转换器使用相同的默认配置
+ * <p>
+ * converterList 是列表接口原来的路径：先把结果收集成 List，再由 MappingJackson2HttpMessageConverter 写出；
+ * streamingList 是 StreamingApiResponse 的路径：逐项从数据源写入同一个 JsonGenerator，不组装 List。
+ * 两者都写到丢弃数据的输出流，*Gzip 变体再经过 gzip（与 CompressionFilter 相同的级别）。
+ * 分配速率用 GC profiler 查看：-Djmh.includes=ApiResponseSerialization -Djmh.args="-f 1 -prof gc"，对比 gc.alloc.rate.norm（字节/次）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    /** 与 application.yml 中 app.http.compression.level 的默认值一致 */
+    private static final int GZIP_LEVEL = 6;
+
+    private ObjectMapper objectMapper;
+    private MappingJackson2HttpMessageConverter converter;
+    private ApiResponse<UserResponse> singleResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        converter = new MappingJackson2HttpMessageConverter(objectMapper);
+        singleResponse = ApiResponse.success(new UserResponse(1, "bench_user", "developer", 0L));
+    }
+
+    @Benchmark
+    public byte[] serializeSingle() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(singleResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeList(UserList users) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users.response);
+    }
+
+    @Benchmark
+    public void converterList(UserList users) throws IOException {
+        writeWithConverter(users, new DiscardingOutputMessage(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public void streamingList(UserList users) throws IOException {
+        writeStreaming(users, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void converterListGzip(UserList users) throws IOException {
+        try (GZIPOutputStream gzip = gzip()) {
+            writeWithConverter(users, new DiscardingOutputMessage(gzip));
+        }
+    }
+
+    @Benchmark
+    public void streamingListGzip(UserList users) throws IOException {
+        try (GZIPOutputStream gzip = gzip()) {
+            writeStreaming(users, gzip);
+        }
+    }
+
+    private void writeWithConverter(UserList users, HttpOutputMessage outputMessage) throws IOException {
+        List<UserResponse> items = Arrays.stream(users.source).toList(); // 对应 UserService 中的 collect(Collectors.toList())
+        converter.write(ApiResponse.success(items), MediaType.APPLICATION_JSON, outputMessage);
+    }
+
+    private void writeStreaming(UserList users, OutputStream outputStream) throws IOException {
+        StreamingApiResponse.success(objectMapper, UserResponse.class, action -> Arrays.stream(users.source).forEach(action))
+                .writeTo(outputStream);
+    }
+
+    private static GZIPOutputStream gzip() throws IOException {
+        return new GZIPOutputStream(OutputStream.nullOutputStream(), 8192, true) {
+            {
+                def.setLevel(GZIP_LEVEL);
+            }
+        };
+    }
+
+    /**
+     * 只提供输出流的 HttpOutputMessage，相当于去掉 Servlet 容器后的 ServletServerHttpResponse
+     */
+    private record DiscardingOutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+
+        DiscardingOutputMessage(OutputStream body) {
+            this(body, new HttpHeaders());
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UserList {
+
+        /** 列表响应中的用户条数 */
+        @Param({"1", "100", "1000"})
+        public int listSize;
+
+        private UserResponse[] source;
+        private ApiResponse<List<UserResponse>> response;
+
+        @Setup
+        public void setUp() {
+            source = IntStream.rangeClosed(1, listSize)
+                    .mapToObj(i -> new UserResponse(i, "bench_user_" + i, "role_" + (i % 5), 0L))
+                    .toArray(UserResponse[]::new);
+            response = ApiResponse.success(List.of(source));
+        }
+    }
+}
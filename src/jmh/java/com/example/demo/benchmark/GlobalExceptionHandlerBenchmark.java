@@ -0,0 +1,73 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.common.ApiResponse;
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.common.GlobalExceptionHandler;
+import com.example.demo.dto.UserCreateRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GlobalExceptionHandler 各错误分支的开销，包含异常对象的创建（填充堆栈）
+ * <p>
+ * 处理器本身的日志在 src/jmh/resources/logback-test.xml 中关闭，结果不包含控制台 I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private MethodParameter createUserParameter;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        createUserParameter = new MethodParameter(
+                GlobalExceptionHandlerBenchmark.class.getDeclaredMethod("createUser", UserCreateRequest.class), 0);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Object>> businessException() {
+        return handler.handleBusinessException(new BusinessException(ErrorCode.USER_NOT_FOUND));
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Map<String, String>>> validationException() {
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(
+                new UserCreateRequest("", null), "userCreateRequest");
+        bindingResult.addError(new FieldError("userCreateRequest", "name", "Username cannot be blank"));
+        bindingResult.addError(new FieldError("userCreateRequest", "role", "Role cannot be blank"));
+        return handler.handleValidationExceptions(new MethodArgumentNotValidException(createUserParameter, bindingResult));
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Object>> unexpectedException() {
+        return handler.handleAllExceptions(new IllegalStateException("benchmark"));
+    }
+
+    /** 仅用于构造 MethodArgumentNotValidException 所需的 MethodParameter */
+    @SuppressWarnings("unused")
+    private void createUser(UserCreateRequest request) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.mapper.UserMapper;
+import com.example.demo.mapper.UserMapperImpl;
+import com.example.demo.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct 生成的 UserMapperImpl 的映射开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private UserMapper userMapper;
+    private User user;
+    private UserCreateRequest createRequest;
+
+    @Setup
+    public void setUp() {
+        userMapper = new UserMapperImpl();
+        user = new User(42, "bench_user", "developer");
+        createRequest = new UserCreateRequest("bench_user", "developer");
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return userMapper.toResponse(user);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return userMapper.toEntity(createRequest);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.service.UserBatchService;
+import com.example.demo.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * UserService 读路径的端到端开销（事务、Hibernate、HikariCP、H2），在 h2 profile 下启动完整的应用上下文
+ * <p>
+ * cacheType=none 时每次调用都会访问数据库，cacheType=caffeine 时 getUserById 命中本地缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final String[] ROLES = {"admin", "developer", "tester", "manager", "guest"};
+
+    /** 预置的用户数 */
+    @Param({"1000", "100000"})
+    public int datasetSize;
+
+    @Param({"none", "caffeine"})
+    public String cacheType;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private int firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench_" + datasetSize + "_" + cacheType
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.cache.type=" + cacheType,
+                        "app.monitor.slow-query.explain=false")
+                .run();
+        userService = context.getBean(UserService.class);
+
+        List<UserCreateRequest> users = IntStream.range(0, datasetSize)
+                .mapToObj(i -> new UserCreateRequest(name(i), ROLES[i % ROLES.length]))
+                .toList();
+        UserResponse first = context.getBean(UserBatchService.class).createUsers(users).results().get(0).user();
+        firstId = first.id();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserResponse getUserById() {
+        return userService.getUserById(firstId + ThreadLocalRandom.current().nextInt(datasetSize));
+    }
+
+    @Benchmark
+    public List<UserResponse> findUsersByNameAndRole() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        return userService.findUsersByNameAndRole(name(i), ROLES[i % ROLES.length]);
+    }
+
+    private static String name(int i) {
+        return "bench_user_" + i;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机选择被压测的接口，例如 "user:60,search:20,countByRole:15,slow:5"
+ */
+final class EndpointMix {
+
+    /**
+     * 可选接口，key 用于 --mix 参数和报告
+     */
+    enum Endpoint {
+        USER("user", "GET /user/{id}"),
+        SEARCH("search", "GET /user/search"),
+        COUNT_BY_ROLE("countByRole", "GET /user/countByRole"),
+        SLOW_QUERY("slow", "GET /api/slow/query/{seconds}"),
+        SLOW_COMPLEX("complex", "GET /api/slow/complex"),
+        SLOW_ASYNC("slowAsync", "GET /api/slow/async/query/{seconds}"),
+        AUTHORS("authors", "GET /post/authors"),
+        RX_USER("rxUser", "GET /rx/user/{id}"),
+        RX_SEARCH("rxSearch", "GET /rx/user/search"),
+        RX_AUTHORS("rxAuthors", "GET /rx/posts/authors");
+
+        final String key;
+        final String description;
+
+        Endpoint(String key, String description) {
+            this.key = key;
+            this.description = description;
+        }
+
+        /**
+         * 生成一次请求的路径（含查询参数）
+         */
+        String path(int firstUserId, int users, int slowSeconds) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (this) {
+                case USER -> "/user/" + (firstUserId + random.nextInt(users));
+                case SEARCH -> {
+                    int i = random.nextInt(users);
+                    yield "/user/search?name=" + LoadTest.userName(i) + "&role=" + LoadTest.userRole(i);
+                }
+                case RX_USER -> "/rx/user/" + (firstUserId + random.nextInt(users));
+                case RX_SEARCH -> {
+                    int i = random.nextInt(users);
+                    yield "/rx/user/search?name=" + LoadTest.userName(i) + "&role=" + LoadTest.userRole(i);
+                }
+                case COUNT_BY_ROLE -> "/user/countByRole";
+                case SLOW_QUERY -> "/api/slow/query/" + slowSeconds;
+                case SLOW_COMPLEX -> "/api/slow/complex";
+                case SLOW_ASYNC -> "/api/slow/async/query/" + slowSeconds;
+                case AUTHORS -> "/post/authors";
+                case RX_AUTHORS -> "/rx/posts/authors";
+            };
+        }
+
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("未知接口: " + key);
+        }
+    }
+
+    private final Map<Endpoint, Integer> weights;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    private EndpointMix(Map<Endpoint, Integer> weights) {
+        this.weights = weights;
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (Map.Entry<Endpoint, Integer> entry : weights.entrySet()) {
+            total += entry.getValue();
+            cumulativeWeights[endpoints.size()] = total;
+            endpoints.add(entry.getKey());
+        }
+        this.totalWeight = total;
+    }
+
+    static EndpointMix parse(String spec) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] keyAndWeight = part.trim().split(":");
+            int weight = keyAndWeight.length > 1 ? Integer.parseInt(keyAndWeight[1].trim()) : 1;
+            if (weight > 0) {
+                weights.merge(Endpoint.of(keyAndWeight[0].trim()), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("--mix 至少需要一个权重大于 0 的接口");
+        }
+        return new EndpointMix(weights);
+    }
+
+    Endpoint next() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    Map<String, Integer> weights() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        weights.forEach((endpoint, weight) -> result.put(endpoint.key, weight));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return weights().toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.monitor.LatencyHistograms.LatencyStats;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录一轮压测的结果：按接口的延迟直方图和状态码分布，以及按秒统计的吞吐时间线
+ * <p>
+ * 延迟从请求的计划发出时间算起，而不是实际发出时间：客户端或服务端积压时排队的时间也会计入（避免 coordinated omission）
+ */
+final class LoadRecorder {
+
+    /** 连接失败、超时等没有拿到 HTTP 状态码的请求 */
+    static final int NO_RESPONSE = -1;
+
+    private final ConcurrentMap<EndpointMix.Endpoint, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final Histogram overall = new ConcurrentHistogram(3);
+    private final AtomicLongArray sentPerSecond;
+    private final AtomicLongArray completedPerSecond;
+    private final AtomicLongArray errorsPerSecond;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long maxDispatchLagNanos;
+
+    LoadRecorder(int timelineSeconds) {
+        this.sentPerSecond = new AtomicLongArray(timelineSeconds);
+        this.completedPerSecond = new AtomicLongArray(timelineSeconds);
+        this.errorsPerSecond = new AtomicLongArray(timelineSeconds);
+    }
+
+    void sent(long offsetNanos, long dispatchLagNanos) {
+        increment(sentPerSecond, offsetNanos);
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        if (dispatchLagNanos > maxDispatchLagNanos) {
+            maxDispatchLagNanos = dispatchLagNanos;
+        }
+    }
+
+    void completed(EndpointMix.Endpoint endpoint, int status, long offsetNanos, long latencyNanos) {
+        inFlight.decrementAndGet();
+        long micros = Math.max(1, latencyNanos / 1_000);
+        overall.recordValue(micros);
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, e -> new EndpointStats());
+        stats.latency.recordValue(micros);
+        stats.statusCounts.computeIfAbsent(status, s -> new LongAdder()).increment();
+        increment(completedPerSecond, offsetNanos);
+        if (isError(status)) {
+            stats.errors.increment();
+            increment(errorsPerSecond, offsetNanos);
+        }
+    }
+
+    static boolean isError(int status) {
+        return status == NO_RESPONSE || status >= 400;
+    }
+
+    private static void increment(AtomicLongArray perSecond, long offsetNanos) {
+        int second = (int) Math.min(TimeUnit.NANOSECONDS.toSeconds(Math.max(offsetNanos, 0)), perSecond.length() - 1);
+        perSecond.incrementAndGet(second);
+    }
+
+    LatencyStats overallLatency() {
+        return LatencyStats.of(overall.copy());
+    }
+
+    long totalErrors() {
+        return endpoints.values().stream().mapToLong(stats -> stats.errors.sum()).sum();
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    double maxDispatchLagMillis() {
+        return maxDispatchLagNanos / 1_000_000.0;
+    }
+
+    Map<String, Object> endpointReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        endpoints.forEach((endpoint, stats) -> {
+            Map<String, Long> statusCounts = new TreeMap<>();
+            stats.statusCounts.forEach((status, count) -> statusCounts.put(status == NO_RESPONSE ? "none" : String.valueOf(status), count.sum()));
+            Map<String, Object> endpointReport = new LinkedHashMap<>();
+            endpointReport.put("endpoint", endpoint.description);
+            endpointReport.put("errors", stats.errors.sum());
+            endpointReport.put("statusCounts", statusCounts);
+            endpointReport.put("latency", LatencyStats.of(stats.latency.copy()));
+            report.put(endpoint.key, endpointReport);
+        });
+        return report;
+    }
+
+    /**
+     * 按秒统计的发出/完成/失败请求数，去掉末尾全为 0 的秒
+     */
+    List<TimelinePoint> timeline() {
+        List<TimelinePoint> points = new ArrayList<>();
+        int last = sentPerSecond.length() - 1;
+        while (last > 0 && sentPerSecond.get(last) == 0 && completedPerSecond.get(last) == 0) {
+            last--;
+        }
+        for (int second = 0; second <= last; second++) {
+            points.add(new TimelinePoint(second, sentPerSecond.get(second), completedPerSecond.get(second), errorsPerSecond.get(second)));
+        }
+        return points;
+    }
+
+    record TimelinePoint(int second, long sent, long completed, long errors) {
+    }
+
+    private static final class EndpointStats {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+        final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.PostCreateRequest;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.monitor.LatencyHistograms.LatencyStats;
+import com.example.demo.repository.ReactiveReadRepository;
+import com.example.demo.service.PostService;
+import com.example.demo.service.UserBatchService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * 内置 HTTP 压测工具
+ * <p>
+ * 在 h2 profile 下启动完整的应用（随机端口），预置用户数据后按固定到达率（open-loop）发出请求：
+ * 请求按计划时间发出，不等待前一个请求返回，每个请求运行在独立的虚拟线程上，服务端变慢时排队会如实体现在延迟里。
+ * 压测期间持续采样 HikariPoolMXBean、R2DBC 连接池和线程数，结束后输出吞吐、延迟百分位和连接池饱和度时间线（JSON 报告）。
+ * 对比 servlet 与 /rx/* 接口时分别以 --mix=search 和 --mix=rxSearch 各跑一轮，两者的连接池大小默认相同。
+ * <p>
+ * 运行方式：./mvnw -Ploadtest verify -DskipTests -Dloadtest.args="--rate=200 --duration=60s --mix=user:60,search:20,countByRole:20"
+ */
+public final class LoadTest {
+
+    private static final String[] ROLES = {"admin", "developer", "tester", "manager", "guest"};
+
+    private LoadTest() {
+    }
+
+    static String userName(int i) {
+        return "load_user_" + i;
+    }
+
+    static String userRole(int i) {
+        return ROLES[i % ROLES.length];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(options.applicationProperties());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles("h2")
+                .properties(properties)
+                .run()) {
+            WebServer webServer = ((WebServerApplicationContext) context).getWebServer();
+            URI baseUri = URI.create("http://localhost:" + webServer.getPort());
+            int firstUserId = seedUsers(context, options.users());
+            seedPosts(context, firstUserId, options.users(), options.posts());
+            System.out.printf("应用已启动: %s，预置用户 %d 个、文章 %d 篇，接口权重 %s%n", baseUri, options.users(), options.posts(), options.mix());
+
+            HikariDataSource hikariDataSource = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+            ReactiveReadRepository reactiveReadRepository = context.getBeanProvider(ReactiveReadRepository.class).getIfAvailable();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                HttpClient client = HttpClient.newBuilder()
+                        .executor(clients)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .build();
+
+                if (!options.warmup().isZero()) {
+                    System.out.printf("预热 %s ...%n", options.warmup());
+                    run(client, baseUri, options, firstUserId, options.warmup(), new LoadRecorder(timelineSeconds(options, options.warmup())));
+                }
+
+                System.out.printf("压测 %s，目标到达率 %.1f req/s ...%n", options.duration(), options.rate());
+                LoadRecorder recorder = new LoadRecorder(timelineSeconds(options, options.duration()));
+                List<PoolSampler.Sample> poolSamples;
+                try (PoolSampler sampler = new PoolSampler(hikariDataSource.getHikariPoolMXBean(), hikariDataSource.getHikariConfigMXBean(),
+                        reactiveReadRepository, busyRequestThreads(webServer))) {
+                    long startNanos = System.nanoTime();
+                    sampler.start(startNanos, options.sampleInterval());
+                    run(client, baseUri, options, firstUserId, options.duration(), recorder);
+                    poolSamples = sampler.samples();
+                }
+
+                Map<String, Object> report = report(options, recorder, poolSamples);
+                Path reportFile = writeReport(context.getBean(ObjectMapper.class), options.reportDir(), report);
+                printSummary(options, recorder, poolSamples);
+                System.out.println("报告已写入: " + reportFile.toAbsolutePath());
+            }
+        }
+    }
+
+    private static int seedUsers(ConfigurableApplicationContext context, int users) {
+        List<UserCreateRequest> requests = IntStream.range(0, users)
+                .mapToObj(i -> new UserCreateRequest(userName(i), userRole(i)))
+                .toList();
+        return context.getBean(UserBatchService.class).createUsers(requests).results().get(0).user().id();
+    }
+
+    /**
+     * 把文章轮流分给预置用户，供 authors / rxAuthors 使用
+     */
+    private static void seedPosts(ConfigurableApplicationContext context, int firstUserId, int users, int posts) {
+        if (posts <= 0) {
+            return;
+        }
+        List<PostCreateRequest> requests = IntStream.range(0, posts)
+                .mapToObj(i -> new PostCreateRequest(firstUserId + i % users, "load_post_" + i, "content " + i))
+                .toList();
+        context.getBean(PostService.class).createPosts(requests);
+    }
+
+    /**
+     * Tomcat 请求线程池中正在处理请求的线程数；虚拟线程模式下没有固定的线程池，返回 -1
+     */
+    private static IntSupplier busyRequestThreads(WebServer webServer) {
+        if (webServer instanceof TomcatWebServer tomcat) {
+            Executor executor = tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor();
+            if (executor instanceof ThreadPoolExecutor threadPool) {
+                return threadPool::getActiveCount;
+            }
+        }
+        return () -> -1;
+    }
+
+    private static int timelineSeconds(LoadTestOptions options, Duration duration) {
+        return (int) (duration.plus(options.requestTimeout()).toSeconds() + 2);
+    }
+
+    /**
+     * 按计划时间依次发出请求，所有请求完成（或超时）后返回
+     */
+    private static void run(HttpClient client, URI baseUri, LoadTestOptions options, int firstUserId,
+                            Duration duration, LoadRecorder recorder) {
+        long totalRequests = (long) (duration.toNanos() / 1e9 * options.rate());
+        double intervalNanos = 1e9 / options.rate();
+        long startNanos = System.nanoTime();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < totalRequests; i++) {
+                long intendedNanos = startNanos + (long) (i * intervalNanos);
+                long waitNanos;
+                while ((waitNanos = intendedNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+
+                EndpointMix.Endpoint endpoint = options.mix().next();
+                HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(endpoint.path(firstUserId, options.users(), options.slowSeconds())))
+                        .timeout(options.requestTimeout())
+                        .GET()
+                        .build();
+                recorder.sent(intendedNanos - startNanos, System.nanoTime() - intendedNanos);
+                requests.execute(() -> {
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        status = LoadRecorder.NO_RESPONSE;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        status = LoadRecorder.NO_RESPONSE;
+                    }
+                    long now = System.nanoTime();
+                    recorder.completed(endpoint, status, now - startNanos, now - intendedNanos);
+                });
+            }
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestOptions options, LoadRecorder recorder, List<PoolSampler.Sample> poolSamples) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("rate", options.rate());
+        config.put("duration", options.duration().toString());
+        config.put("warmup", options.warmup().toString());
+        config.put("mix", options.mix().weights());
+        config.put("users", options.users());
+        config.put("posts", options.posts());
+        config.put("slowSeconds", options.slowSeconds());
+        config.put("applicationProperties", options.applicationProperties());
+
+        List<LoadRecorder.TimelinePoint> timeline = recorder.timeline();
+        long completed = timeline.stream().mapToLong(LoadRecorder.TimelinePoint::completed).sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", timeline.stream().mapToLong(LoadRecorder.TimelinePoint::sent).sum());
+        summary.put("completed", completed);
+        summary.put("errors", recorder.totalErrors());
+        summary.put("throughput", Math.round(completed / (double) Math.max(timeline.size(), 1) * 10) / 10.0);
+        summary.put("maxInFlight", recorder.maxInFlight());
+        summary.put("maxDispatchLagMillis", recorder.maxDispatchLagMillis());
+        summary.put("latency", recorder.overallLatency());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("summary", summary);
+        report.put("pool", poolSummary(poolSamples));
+        report.put("endpoints", recorder.endpointReport());
+        report.put("throughputTimeline", timeline);
+        report.put("poolTimeline", poolSamples);
+        return report;
+    }
+
+    private static Map<String, Object> poolSummary(List<PoolSampler.Sample> samples) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("samples", samples.size());
+        summary.put("maxActive", samples.stream().mapToInt(PoolSampler.Sample::active).max().orElse(0));
+        summary.put("maxThreadsAwaiting", samples.stream().mapToInt(PoolSampler.Sample::threadsAwaiting).max().orElse(0));
+        summary.put("maxTotal", samples.stream().mapToInt(PoolSampler.Sample::total).max().orElse(0));
+        long saturated = samples.stream().filter(PoolSampler.Sample::saturated).count();
+        summary.put("saturatedRatio", samples.isEmpty() ? 0.0 : Math.round(saturated * 1000.0 / samples.size()) / 1000.0);
+        summary.put("maxReactiveActive", samples.stream().mapToInt(PoolSampler.Sample::reactiveActive).max().orElse(0));
+        summary.put("maxReactivePending", samples.stream().mapToInt(PoolSampler.Sample::reactivePending).max().orElse(0));
+        summary.put("maxBusyRequestThreads", samples.stream().mapToInt(PoolSampler.Sample::busyRequestThreads).max().orElse(-1));
+        summary.put("maxLiveThreads", samples.stream().mapToInt(PoolSampler.Sample::liveThreads).max().orElse(0));
+        return summary;
+    }
+
+    private static Path writeReport(ObjectMapper objectMapper, Path reportDir, Map<String, Object> report) throws IOException {
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("report-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        return file;
+    }
+
+    private static void printSummary(LoadTestOptions options, LoadRecorder recorder, List<PoolSampler.Sample> poolSamples) {
+        LatencyStats overall = recorder.overallLatency();
+        System.out.printf("%n=== 压测结果 (目标 %.1f req/s, %s) ===%n", options.rate(), options.duration());
+        System.out.printf("完成 %d 个请求，失败 %d 个，最大并发 %d，调度最大滞后 %.1f ms%n",
+                overall.count(), recorder.totalErrors(), recorder.maxInFlight(), recorder.maxDispatchLagMillis());
+        System.out.printf("%-40s %8s %8s %10s %10s %10s %10s%n", "接口", "请求数", "失败", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        recorder.endpointReport().forEach((key, value) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> endpoint = (Map<String, Object>) value;
+            LatencyStats latency = (LatencyStats) endpoint.get("latency");
+            System.out.printf("%-40s %8d %8d %10.2f %10.2f %10.2f %10.2f%n", endpoint.get("endpoint"), latency.count(),
+                    (Long) endpoint.get("errors"), latency.p50(), latency.p90(), latency.p99(), latency.max());
+        });
+        Map<String, Object> pool = poolSummary(poolSamples);
+        System.out.printf("连接池: 最大活跃 %s，最大排队线程 %s，饱和采样占比 %.1f%%%n",
+                pool.get("maxActive"), pool.get("maxThreadsAwaiting"), (Double) pool.get("saturatedRatio") * 100);
+        System.out.printf("R2DBC 连接池: 最大活跃 %s，最大排队请求 %s%n", pool.get("maxReactiveActive"), pool.get("maxReactivePending"));
+        System.out.printf("线程: Tomcat 最大忙碌线程 %s，JVM 最大平台线程 %s%n", pool.get("maxBusyRequestThreads"), pool.get("maxLiveThreads"));
+    }
+}
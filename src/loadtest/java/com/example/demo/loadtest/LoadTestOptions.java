@@ -0,0 +1,70 @@
+package com.example.demo.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行形如 --rate=200 --duration=60s --mix=user:60,search:20,countByRole:20
+ * <p>
+ * 以 spring. / app. / logging. / server. 开头的参数原样传给被测应用，例如 --spring.threads.virtual.enabled=true
+ */
+record LoadTestOptions(
+        double rate,
+        Duration duration,
+        Duration warmup,
+        EndpointMix mix,
+        int users,
+        int posts,
+        int slowSeconds,
+        Duration requestTimeout,
+        Duration sampleInterval,
+        Path reportDir,
+        Map<String, String> applicationProperties
+) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> applicationProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (name.startsWith("spring.") || name.startsWith("app.") || name.startsWith("logging.") || name.startsWith("server.")) {
+                applicationProperties.put(name, value);
+            } else {
+                options.put(name, value);
+            }
+        }
+
+        LoadTestOptions parsed = new LoadTestOptions(
+                Double.parseDouble(take(options, "rate", "100")),
+                DurationStyle.detectAndParse(take(options, "duration", "30s")),
+                DurationStyle.detectAndParse(take(options, "warmup", "5s")),
+                EndpointMix.parse(take(options, "mix", "user:60,search:20,countByRole:20")),
+                Integer.parseInt(take(options, "users", "10000")),
+                Integer.parseInt(take(options, "posts", "0")),
+                Integer.parseInt(take(options, "slow-seconds", "2")),
+                DurationStyle.detectAndParse(take(options, "request-timeout", "30s")),
+                DurationStyle.detectAndParse(take(options, "sample-interval", "100ms")),
+                Path.of(take(options, "report-dir", "target/loadtest")),
+                applicationProperties);
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("未知参数: " + options.keySet());
+        }
+        if (parsed.rate() <= 0) {
+            throw new IllegalArgumentException("--rate 必须大于 0");
+        }
+        return parsed;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+}
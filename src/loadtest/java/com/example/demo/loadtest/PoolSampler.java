@@ -0,0 +1,91 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.repository.ReactiveReadRepository;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.r2dbc.pool.PoolMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 按固定间隔采样 HikariPoolMXBean、R2DBC 连接池和线程数，生成连接池饱和度时间线
+ */
+final class PoolSampler implements AutoCloseable {
+
+    private final HikariPoolMXBean poolBean;
+    private final HikariConfigMXBean configBean;
+    private final ReactiveReadRepository reactiveReadRepository;
+    private final IntSupplier busyRequestThreads;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "pool-sampler"));
+    private final List<Sample> samples = new ArrayList<>();
+    private volatile long startNanos;
+
+    /**
+     * @param reactiveReadRepository 未开启 /rx/* 时为 null
+     * @param busyRequestThreads     正在处理请求的 Tomcat 线程数，无法获取时返回 -1
+     */
+    PoolSampler(HikariPoolMXBean poolBean, HikariConfigMXBean configBean,
+                ReactiveReadRepository reactiveReadRepository, IntSupplier busyRequestThreads) {
+        this.poolBean = poolBean;
+        this.configBean = configBean;
+        this.reactiveReadRepository = reactiveReadRepository;
+        this.busyRequestThreads = busyRequestThreads;
+    }
+
+    void start(long startNanos, Duration interval) {
+        this.startNanos = startNanos;
+        scheduler.scheduleAtFixedRate(this::sample, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void sample() {
+        Optional<PoolMetrics> reactive = reactiveReadRepository != null ? reactiveReadRepository.getPoolMetrics() : Optional.empty();
+        Sample sample = new Sample(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                poolBean.getActiveConnections(),
+                poolBean.getIdleConnections(),
+                poolBean.getTotalConnections(),
+                poolBean.getThreadsAwaitingConnection(),
+                configBean.getMaximumPoolSize(),
+                reactive.map(PoolMetrics::acquiredSize).orElse(0),
+                reactive.map(PoolMetrics::pendingAcquireSize).orElse(0),
+                busyRequestThreads.getAsInt(),
+                threadBean.getThreadCount());
+        synchronized (samples) {
+            samples.add(sample);
+        }
+    }
+
+    List<Sample> samples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 一次采样，offsetMillis 为相对压测开始的时间；reactiveActive / reactivePending 为 R2DBC 连接池借出的连接数和排队的获取请求数，
+     * liveThreads 为 JVM 中存活的平台线程数（不含虚拟线程，含压测客户端自身的线程）
+     */
+    record Sample(long offsetMillis, int active, int idle, int total, int threadsAwaiting, int maximumPoolSize,
+                  int reactiveActive, int reactivePending, int busyRequestThreads, int liveThreads) {
+
+        boolean saturated() {
+            return threadsAwaiting > 0 || active >= maximumPoolSize;
+        }
+    }
+}
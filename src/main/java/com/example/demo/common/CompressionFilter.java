@@ -0,0 +1,405 @@
+package com.example.demo.common;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按 Accept-Encoding 协商的 gzip 响应压缩
+ * <p>
+ * 响应体先写入大小为 minResponseSize 的缓冲区：响应在缓冲区内写完时原样输出并带上 Content-Length；
+ * 超出时才决定压缩，之后的数据直接经 GZIPOutputStream 写到 Servlet 输出流，不再缓冲整个响应。
+ * 因此阈值对没有 Content-Length 的流式响应（StreamingResponseBody）同样有效，
+ * 而 Tomcat 自带的 server.compression 对这类响应总是压缩。两者不要同时开启。
+ * <p>
+ * 异步请求（StreamingResponseBody）在最后一次异步分派时才结束压缩流，与 ShallowEtagHeaderFilter 的做法相同。
+ * 压缩后的强 ETag 改为弱 ETag，并添加 Vary: Accept-Encoding，避免共享缓存把压缩结果返回给不支持的客户端。
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private final boolean enabled;
+    private final int minResponseSize;
+    private final int level;
+    private final List<MimeType> mimeTypes;
+
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder belowThresholdResponses = new LongAdder();
+    private final LongAdder notCompressibleResponses = new LongAdder();
+    private final LongAdder notAcceptedResponses = new LongAdder();
+    private final LongAdder compressedBytesIn = new LongAdder();
+    private final LongAdder compressedBytesOut = new LongAdder();
+
+    public CompressionFilter(boolean enabled, int minResponseSize, int level, List<String> mimeTypes) {
+        this.enabled = enabled;
+        this.minResponseSize = minResponseSize;
+        this.level = level;
+        this.mimeTypes = mimeTypes.stream().map(MimeTypeUtils::parseMimeType).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletResponse responseToUse = response;
+        if (!isAsyncDispatch(request)) {
+            if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                responseToUse = new CompressingResponse(response);
+            } else {
+                notAcceptedResponses.increment();
+            }
+        }
+        filterChain.doFilter(request, responseToUse);
+        if (!isAsyncStarted(request)) {
+            CompressingResponse compressingResponse = WebUtils.getNativeResponse(responseToUse, CompressingResponse.class);
+            if (compressingResponse != null) {
+                compressingResponse.finish();
+            }
+        }
+    }
+
+    /**
+     * 客户端是否接受 gzip：显式的 gzip（或 x-gzip）优先，其次是 *，q=0 表示拒绝
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (!StringUtils.hasText(acceptEncoding)) {
+            return false;
+        }
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality, quality);
+            } else if (name.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+            return mimeTypes.stream().anyMatch(candidate -> candidate.includes(mimeType));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        long bytesIn = compressedBytesIn.sum();
+        long bytesOut = compressedBytesOut.sum();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("minResponseSize", minResponseSize);
+        status.put("level", level);
+        status.put("compressedResponses", compressedResponses.sum());
+        status.put("belowThresholdResponses", belowThresholdResponses.sum());
+        status.put("notCompressibleResponses", notCompressibleResponses.sum());
+        status.put("notAcceptedResponses", notAcceptedResponses.sum());
+        status.put("compressedBytesIn", bytesIn);
+        status.put("compressedBytesOut", bytesOut);
+        status.put("compressionRatio", bytesIn == 0 ? 0.0 : Math.round(bytesOut * 1000.0 / bytesIn) / 1000.0);
+        return status;
+    }
+
+    /**
+     * 缓冲前 minResponseSize 个字节，超出后再决定是否压缩；Content-Length 在决定之前不会传给容器
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private byte[] buffer;
+        private int count;
+        private long contentLength = -1;
+        private OutputStream target; // 决定之后的输出目标：Servlet 输出流或包裹它的 GZIPOutputStream
+        private GZIPOutputStream gzip;
+        private long bytesIn;
+        private long bytesOut;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private boolean finished;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called on this response");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called on this response");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        private ServletOutputStream stream() {
+            if (outputStream == null) {
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        CompressingResponse.this.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (target != null) {
+                            target.flush();
+                        }
+                    }
+
+                    // 缓冲的数据和压缩后的数据最终都写到被包装响应的输出流，非阻塞写的就绪状态和回调都以它为准
+                    @Override
+                    public boolean isReady() {
+                        try {
+                            return CompressingResponse.super.getOutputStream().isReady();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        try {
+                            CompressingResponse.super.getOutputStream().setWriteListener(writeListener);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            bytesIn += len;
+            if (target == null) {
+                if (count + len <= minResponseSize) {
+                    if (buffer == null) {
+                        buffer = new byte[minResponseSize];
+                    }
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                decide(true);
+            }
+            target.write(b, off, len);
+        }
+
+        /**
+         * 确定输出方式并写出缓冲区中的数据，large 表示响应已超过阈值
+         */
+        private void decide(boolean large) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (large && response.getHeader(HttpHeaders.CONTENT_ENCODING) == null && hasBody(getStatus())
+                    && isCompressible(getContentType())) {
+                compressedResponses.increment();
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+                if (!response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING)) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                String eTag = response.getHeader(HttpHeaders.ETAG);
+                if (eTag != null && !eTag.startsWith("W/")) {
+                    response.setHeader(HttpHeaders.ETAG, "W/" + eTag);
+                }
+                OutputStream counting = new FilterOutputStream(response.getOutputStream()) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        bytesOut += len;
+                        out.write(b, off, len);
+                    }
+                };
+                // syncFlush：流式响应调用 flush() 时已压缩的数据立即发给客户端
+                gzip = new GZIPOutputStream(counting, 8192, true) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+                target = gzip;
+            } else {
+                if (!large) {
+                    belowThresholdResponses.increment();
+                    if (count > 0) {
+                        response.setContentLength(count);
+                    } else if (contentLength >= 0) {
+                        response.setContentLengthLong(contentLength); // HEAD 请求只有长度没有响应体
+                    }
+                } else {
+                    notCompressibleResponses.increment();
+                    if (contentLength >= 0) {
+                        response.setContentLengthLong(contentLength);
+                    }
+                }
+                target = response.getOutputStream();
+            }
+            if (count > 0) {
+                target.write(buffer, 0, count);
+            }
+            buffer = null;
+        }
+
+        private boolean hasBody(int status) {
+            return status != HttpStatus.NO_CONTENT.value() && status != HttpStatus.NOT_MODIFIED.value()
+                    && status != HttpStatus.PARTIAL_CONTENT.value();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                decide(false);
+            }
+            if (gzip != null) {
+                gzip.finish();
+                compressedBytesIn.add(bytesIn);
+                compressedBytesOut.add(bytesOut);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            // 决定之前的 flush 推迟到超过阈值或请求结束，否则就无法再设置 Content-Length / Content-Encoding
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value != null ? Long.parseLong(value) : -1;
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value != null ? Long.parseLong(value) : -1;
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value;
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value;
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (target != null) {
+                throw new IllegalStateException("Response output has already started");
+            }
+            count = 0;
+            bytesIn = 0;
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            contentLength = -1;
+            super.reset();
+        }
+    }
+}
@@ -6,9 +6,13 @@ public enum ErrorCode {
 
     // =========== 一级宏观错误码 业务相关 (1xxx) ===========
     USER_NOT_FOUND(1001, "指定用户不存在", HttpStatus.NOT_FOUND),
+    USER_NAME_DUPLICATED(1002, "用户名已存在", HttpStatus.CONFLICT),
+    USER_UPDATE_CONFLICT(1003, "用户已被其他请求修改，请重新获取后再更新", HttpStatus.CONFLICT),
 
     // =========== 一级宏观错误码 系统相关 (2xxx) ===========
     VALIDATION_ERROR(2001, "参数校验失败", HttpStatus.BAD_REQUEST),
+    SERVICE_BUSY(2002, "服务繁忙，请稍后重试", HttpStatus.SERVICE_UNAVAILABLE),
+    QUERY_TIMEOUT(2003, "查询超时，已取消执行", HttpStatus.SERVICE_UNAVAILABLE),
     INTERNAL_SERVER_ERROR(5000, "服务器内部错误", HttpStatus.INTERNAL_SERVER_ERROR);
 
     private final int code;
@@ -0,0 +1,72 @@
+package com.example.demo.common;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * 以流的方式输出 ApiResponse 列表响应，格式与 ApiResponse.success(List) 相同
+ * <p>
+ * 外层的 code / message / data 和列表中的每一项都通过同一个 JsonGenerator 直接写入响应输出流，
+ * 列表不在内存中组装，也没有中间的 byte[]。ItemSource 在控制器方法返回之后、在异步线程上才被调用，
+ * 读取所需的资源（如 PostService.forEachPostWithAuthorName 的只读事务和 Repository Stream）由它自己打开和关闭。
+ * 已经查询成 List 的结果直接返回 ApiResponse 即可，流式输出只适用于边查边写的大列表。
+ * <p>
+ * 写出第一批数据之前出错时响应尚未提交，异常交给 GlobalExceptionHandler 处理；
+ * 之后出错则直接中断响应，不会补齐括号，客户端得到的是不完整的 JSON 而不是“看起来完整”的截断列表。
+ */
+public final class StreamingApiResponse {
+
+    private StreamingApiResponse() {
+    }
+
+    /**
+     * 列表数据源，把每一项依次交给 action，例如 postService::forEachPostWithAuthorName
+     */
+    @FunctionalInterface
+    public interface ItemSource<T> {
+        void forEach(Consumer<T> action);
+    }
+
+    /**
+     * 成功响应：{"code":200,"message":"OK","data":[...]}
+     */
+    public static <T> StreamingResponseBody success(ObjectMapper objectMapper, Class<T> itemType, ItemSource<T> source) {
+        // 默认每写一个值都会 flush，逐项写出时改为由 JsonGenerator 的缓冲区决定何时写出
+        ObjectWriter itemWriter = objectMapper.writerFor(itemType).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        ApiResponse<Void> envelope = ApiResponse.success(null);
+        return outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeNumberField("code", envelope.getCode());
+            generator.writeStringField("message", envelope.getMessage());
+            generator.writeFieldName("data");
+            // 整个列表共用一个 SequenceWriter，逐项 writeValue 每次都会新建 SerializerProvider
+            SequenceWriter items = itemWriter.writeValuesAsArray(generator);
+            try {
+                source.forEach(item -> {
+                    try {
+                        items.write(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // 通常是客户端中途断开
+            }
+            // 只在成功时关闭：close() 会写出缓冲区，出错时丢弃未写出的部分
+            items.close(); // 只写出 ']'，不关闭 generator
+            generator.writeEndObject();
+            generator.close();
+        };
+    }
+}
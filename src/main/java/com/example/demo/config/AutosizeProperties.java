@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 连接池自适应扩缩容配置，对应 application.yml 中的 app.datasource.autosize.*
+ *
+ * @param enabled              是否启用后台扩缩容
+ * @param interval             采样间隔
+ * @param minPoolSize          maximumPoolSize 的下界
+ * @param maxPoolSize          maximumPoolSize 的上界（不要超过 MySQL 的 max_connections）
+ * @param step                 每次扩容/缩容的连接数
+ * @param growAcquireLatency   采样窗口内平均获取连接耗时超过该值即扩容
+ * @param shrinkUtilization    活跃连接数 / maximumPoolSize 低于该比例时视为空闲
+ * @param shrinkAfterSamples   连续多少次空闲采样后才缩容，避免抖动
+ * @param historySize          保留的扩缩容决策条数
+ */
+@ConfigurationProperties(prefix = "app.datasource.autosize")
+public record AutosizeProperties(
+        boolean enabled,
+        Duration interval,
+        int minPoolSize,
+        int maxPoolSize,
+        int step,
+        Duration growAcquireLatency,
+        double shrinkUtilization,
+        int shrinkAfterSamples,
+        int historySize
+) {
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 连接舱壁配置，对应 application.yml 中的 app.datasource.bulkhead.*
+ *
+ * @param enabled        是否在 DataSource 前启用舱壁
+ * @param maxConcurrent  同时持有连接的最大线程数，通常等于连接池最大连接数
+ * @param acquireTimeout 等待舱壁许可的最长时间，超时后快速失败
+ */
+@ConfigurationProperties(prefix = "app.datasource.bulkhead")
+public record BulkheadProperties(
+        boolean enabled,
+        int maxConcurrent,
+        Duration acquireTimeout
+) {
+}
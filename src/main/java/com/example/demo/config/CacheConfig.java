@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+
+/**
+ * 本地缓存配置
+ * <p>
+ * 缓存管理器按 application.yml 中的 spring.cache.* 创建（Caffeine），users 缓存按版本号合并写入，见 {@link UserCacheManager}。
+ * 这里把缓存切面的顺序设为最高优先级，使其包在 @Transactional 切面外层：
+ * 缓存命中时直接返回，不会开启事务，也就不会从 DemoHikariPool 借出连接；
+ * 而 @CachePut / @CacheEvict 则在事务提交之后才执行，不会把回滚的数据写进缓存。
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    /** 按 ID 缓存 UserResponse 的缓存名 */
+    public static final String USERS_CACHE = "users";
+
+    /**
+     * 替代 Spring Boot 自动装配的 CaffeineCacheManager，规格和缓存名仍来自 spring.cache.*；
+     * spring.cache.type 为其他值（如基准测试的 none）时不创建，由自动装配按该类型处理
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cache", name = "type", havingValue = "caffeine", matchIfMissing = true)
+    public UserCacheManager cacheManager(CacheProperties cacheProperties) {
+        UserCacheManager cacheManager = new UserCacheManager();
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            cacheManager.setCacheSpecification(spec);
+        }
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        }
+        return cacheManager;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * 响应压缩配置，对应 application.yml 中的 app.http.compression.*
+ *
+ * @param enabled         是否启用 CompressionFilter
+ * @param minResponseSize 响应体超过该大小才压缩，流式响应按实际写出的字节数判断
+ * @param level           gzip 压缩级别（1-9），越大压缩率越高、CPU 开销越大
+ * @param mimeTypes       参与压缩的 Content-Type，支持 text/* 这样的通配
+ */
+@ConfigurationProperties(prefix = "app.http.compression")
+public record CompressionProperties(
+        boolean enabled,
+        DataSize minResponseSize,
+        int level,
+        List<String> mimeTypes
+) {
+}
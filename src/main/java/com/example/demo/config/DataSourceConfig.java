@@ -0,0 +1,62 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.DataSourceWrappingPostProcessor;
+import com.example.demo.datasource.LeakTrackingDataSource;
+import com.example.demo.datasource.PoolAcquireMetrics;
+import com.example.demo.datasource.PoolAutosizer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * 连接池监控与调优配置
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({AutosizeProperties.class, LeakDetectionProperties.class})
+public class DataSourceConfig {
+
+    /**
+     * 在连接池启动前为每个 HikariDataSource 挂上 PoolAcquireMetrics，记录获取连接的等待时间
+     */
+    @Bean
+    static BeanPostProcessor poolAcquireMetricsPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikariDS
+                        && hikariDS.getMetricsTrackerFactory() == null && hikariDS.getMetricRegistry() == null) {
+                    hikariDS.setMetricsTrackerFactory(new PoolAcquireMetrics());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 用 LeakTrackingDataSource 包装 DataSource，记录每个借出连接的调用栈，按配置强制回收长时间未归还的连接
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.leak-detection", name = "enabled", havingValue = "true")
+    static DataSourceWrappingPostProcessor leakTrackingDataSourcePostProcessor(ObjectProvider<LeakDetectionProperties> properties) {
+        return new DataSourceWrappingPostProcessor(DataSourceWrappingPostProcessor.LEAK_DETECTION_ORDER, LeakTrackingDataSource.class, dataSource -> {
+            LeakDetectionProperties leakDetection = properties.getObject();
+            return new LeakTrackingDataSource(dataSource, leakDetection.threshold(), leakDetection.reclaim(),
+                    leakDetection.reclaimAfter(), leakDetection.checkInterval(), leakDetection.historySize());
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.autosize", name = "enabled", havingValue = "true")
+    public PoolAutosizer poolAutosizer(DataSource dataSource, AutosizeProperties properties) throws SQLException {
+        return new PoolAutosizer(dataSource, properties);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.BulkheadDataSource;
+import com.example.demo.datasource.DataSourceWrappingPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * 请求执行模式配置
+ * <p>
+ * spring.threads.virtual.enabled=true 时，Spring Boot 会让 Tomcat 请求处理线程和 @Async 使用的
+ * applicationTaskExecutor 都运行在 Java 21 虚拟线程上。虚拟线程不再受 Tomcat 线程池大小约束，
+ * 因此同时开启连接舱壁，保护容量很小的数据库连接池。
+ */
+@Configuration
+@EnableAsync
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class ExecutionConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.bulkhead", name = "enabled", havingValue = "true")
+    static DataSourceWrappingPostProcessor bulkheadDataSourcePostProcessor(ObjectProvider<BulkheadProperties> properties) {
+        return new DataSourceWrappingPostProcessor(DataSourceWrappingPostProcessor.BULKHEAD_ORDER, BulkheadDataSource.class, dataSource -> {
+            BulkheadProperties bulkhead = properties.getObject();
+            return new BulkheadDataSource(dataSource, bulkhead.maxConcurrent(), bulkhead.acquireTimeout().toMillis());
+        });
+    }
+}
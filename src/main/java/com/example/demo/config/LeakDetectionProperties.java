@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 连接泄漏检测配置，对应 application.yml 中的 app.datasource.leak-detection.*
+ *
+ * @param enabled       是否在 DataSource 外层记录每个借出连接的调用栈和请求
+ * @param threshold     借出超过该时长视为疑似泄漏，打印借出时的调用栈
+ * @param reclaim       是否强制关闭超过 reclaimAfter 仍未归还的连接，把它还给连接池
+ * @param reclaimAfter  强制回收的期限，必须大于正常请求（包括流式导出）持有连接的最长时间
+ * @param checkInterval 检查间隔
+ * @param historySize   保留的最近疑似泄漏 / 回收记录条数
+ */
+@ConfigurationProperties(prefix = "app.datasource.leak-detection")
+public record LeakDetectionProperties(
+        boolean enabled,
+        Duration threshold,
+        boolean reclaim,
+        Duration reclaimAfter,
+        Duration checkInterval,
+        int historySize
+) {
+}
@@ -0,0 +1,75 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.DataSourceWrappingPostProcessor;
+import com.example.demo.datasource.InstrumentedDataSource;
+import com.example.demo.datasource.JdbcEventListener;
+import com.example.demo.monitor.LatencyHistograms;
+import com.example.demo.monitor.LatencyInterceptor;
+import com.example.demo.monitor.RepositoryLatencyListener;
+import com.example.demo.monitor.SlowQueryDetector;
+import com.example.demo.monitor.TransactionProfiler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * 延迟监控配置：HTTP 映射、Repository 方法、JDBC 连接获取与 SQL 执行，以及慢查询检测
+ */
+@Configuration
+@EnableConfigurationProperties(SlowQueryProperties.class)
+public class MonitoringConfig implements WebMvcConfigurer {
+
+    private final LatencyInterceptor latencyInterceptor;
+    private final TransactionProfiler transactionProfiler;
+
+    public MonitoringConfig(LatencyInterceptor latencyInterceptor, TransactionProfiler transactionProfiler) {
+        this.latencyInterceptor = latencyInterceptor;
+        this.transactionProfiler = transactionProfiler;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(latencyInterceptor);
+        registry.addInterceptor(transactionProfiler); // 请求结束时清除线程上残留的连接
+    }
+
+    /**
+     * 用 InstrumentedDataSource 包装 DataSource，把 JDBC 事件分发给所有 JdbcEventListener
+     */
+    @Bean
+    static DataSourceWrappingPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<JdbcEventListener> listeners) {
+        return new DataSourceWrappingPostProcessor(DataSourceWrappingPostProcessor.INSTRUMENTATION_ORDER, InstrumentedDataSource.class,
+                dataSource -> new InstrumentedDataSource(dataSource, listeners.orderedStream().toList()));
+    }
+
+    /**
+     * 为每个 Spring Data Repository 注册调用耗时监听器
+     */
+    @Bean
+    static BeanPostProcessor repositoryLatencyPostProcessor(ObjectProvider<LatencyHistograms> histograms) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(
+                            factory -> factory.addInvocationListener(new RepositoryLatencyListener(histograms.getObject())));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.monitor.slow-query", name = "enabled", havingValue = "true")
+    public SlowQueryDetector slowQueryDetector(SlowQueryProperties properties, ObjectProvider<DataSource> dataSource) {
+        return new SlowQueryDetector(properties, dataSource);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 响应式只读接口（/rx/*）的 R2DBC 配置，对应 application.yml 中的 app.r2dbc.*
+ *
+ * @param enabled        是否启用 /rx/* 接口及其连接池
+ * @param url            R2DBC 连接地址，如 r2dbc:mysql://localhost:3306/demo_db
+ * @param username       数据库用户名
+ * @param password       数据库密码
+ * @param initialSize    连接池启动时预先建立的连接数，0 表示首次请求时才建立
+ * @param maxSize        连接池最大连接数，与 Hikari 的 maximum-pool-size 对比时应取相同的值
+ * @param maxAcquireTime 连接池耗尽时等待连接的最长时间，超时返回 503
+ * @param maxIdleTime    空闲连接的最长保留时间
+ */
+@ConfigurationProperties(prefix = "app.r2dbc")
+public record ReactiveProperties(
+        boolean enabled,
+        String url,
+        String username,
+        String password,
+        int initialSize,
+        int maxSize,
+        Duration maxAcquireTime,
+        Duration maxIdleTime
+) {
+}
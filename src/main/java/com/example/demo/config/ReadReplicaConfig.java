@@ -0,0 +1,77 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.ReadWriteRoutingDataSource;
+import com.example.demo.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离配置（app.datasource.replica.enabled=true 时生效）
+ * <p>
+ * 主库连接池仍使用 spring.datasource.*，从库连接池使用 app.datasource.replica.*，两者各自独立的 Hikari 参数。
+ * 两个连接池都是普通的 DataSource Bean，连接获取计时、舱壁等包装分别套在各自的池上；
+ * 对外的 @Primary DataSource 是 ReadWriteRoutingDataSource，JPA、JdbcTemplate 和 Flyway 都使用它。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(ReplicaProperties properties) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.url())
+                .username(properties.username())
+                .password(properties.password())
+                .build();
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               ReplicaProperties properties) {
+        return new ReplicaLagMonitor(primary, replica, properties.maxLag());
+    }
+
+    @Bean
+    @Primary
+    public ReadWriteRoutingDataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                 @Qualifier("replicaDataSource") DataSource replica,
+                                                 ReplicaLagMonitor lagMonitor) {
+        return new ReadWriteRoutingDataSource(primary, replica, lagMonitor);
+    }
+
+    /**
+     * 主库照常迁移；本地 H2 从库没有复制，按相同的配置在从库上再迁移一次，生产环境的从库通过复制获得表结构
+     */
+    @Bean
+    public FlywayMigrationStrategy replicaAwareMigrationStrategy(@Qualifier("replicaDataSource") DataSource replica,
+                                                                 ReplicaProperties properties) {
+        return flyway -> {
+            flyway.migrate();
+            if (properties.migrate()) {
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(replica).load().migrate();
+            }
+        };
+    }
+}
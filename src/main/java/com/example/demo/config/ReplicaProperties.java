@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 读写分离从库配置，对应 application.yml 中的 app.datasource.replica.*（连接池参数在 app.datasource.replica.hikari.*）
+ *
+ * @param enabled          是否启用读写分离，关闭时只有 spring.datasource 一个连接池
+ * @param url              从库 JDBC URL
+ * @param username         从库用户名
+ * @param password         从库密码
+ * @param maxLag           复制延迟超过该值时只读事务回退主库
+ * @param lagCheckInterval 复制延迟检测（心跳）间隔，也是延迟的检测精度
+ * @param migrate          启动时是否在从库上也执行 Flyway 迁移，只用于本地没有复制的 H2 从库
+ */
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public record ReplicaProperties(
+        boolean enabled,
+        String url,
+        String username,
+        String password,
+        Duration maxLag,
+        Duration lagCheckInterval,
+        boolean migrate
+) {
+}
@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 慢查询检测配置，对应 application.yml 中的 app.monitor.slow-query.*
+ *
+ * @param enabled          是否启用慢查询检测
+ * @param threshold        执行耗时超过该值的 SQL 视为慢查询
+ * @param topN             保留的最慢 SQL 形态（归一化后的 SQL）数量
+ * @param recentSize       最近慢查询环形缓冲区的大小
+ * @param explain          是否对慢 SELECT 自动执行 EXPLAIN
+ * @param explainThreshold 执行耗时超过该值的 SELECT 才执行 EXPLAIN
+ * @param explainInterval  同一 SQL 形态两次 EXPLAIN 之间的最小间隔
+ */
+@ConfigurationProperties(prefix = "app.monitor.slow-query")
+public record SlowQueryProperties(
+        boolean enabled,
+        Duration threshold,
+        int topN,
+        int recentSize,
+        boolean explain,
+        Duration explainThreshold,
+        Duration explainInterval
+) {
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.UserResponse;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+/**
+ * users 缓存只接受不比已缓存版本旧的 UserResponse
+ * <p>
+ * getUserById 未命中时在事务外读到版本 N，返回前 updateUser 提交并写入 N+1，随后 N 再被写入，
+ * 普通的 put 会让旧值覆盖新值直到过期。这里按乐观锁版本号合并：已缓存的版本更新时保留原值。
+ * 删除无法用版本比较，删除前开始的读取仍可能把已删除的用户写回缓存，最长持续 expireAfterWrite。
+ */
+public class UserCacheManager extends CaffeineCacheManager {
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        if (CacheConfig.USERS_CACHE.equals(name)) {
+            return new VersionedCache(name, cache, isAllowNullValues());
+        }
+        return super.adaptCaffeineCache(name, cache);
+    }
+
+    static class VersionedCache extends CaffeineCache {
+
+        VersionedCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache, boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (!(value instanceof UserResponse user)) {
+                super.put(key, value);
+                return;
+            }
+            getNativeCache().asMap().merge(key, user, (cached, fresh) -> isOlder(fresh, cached) ? cached : fresh);
+        }
+
+        private static boolean isOlder(Object fresh, Object cached) {
+            return cached instanceof UserResponse current && current.version() != null
+                    && ((UserResponse) fresh).version() != null && ((UserResponse) fresh).version() < current.version();
+        }
+    }
+}
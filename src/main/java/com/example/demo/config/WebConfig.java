@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import com.example.demo.common.CompressionFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP 响应相关配置
+ */
+@Configuration
+@EnableConfigurationProperties(CompressionProperties.class)
+public class WebConfig {
+
+    /**
+     * 响应压缩过滤器，enabled=false 时仍然注册但直接放行，/api/monitor/compression 始终可用
+     */
+    @Bean
+    public CompressionFilter compressionFilter(CompressionProperties properties) {
+        return new CompressionFilter(properties.enabled(), (int) properties.minResponseSize().toBytes(),
+                properties.level(), properties.mimeTypes());
+    }
+}
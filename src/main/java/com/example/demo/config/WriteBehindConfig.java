@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import com.example.demo.repository.UserBatchRepository;
+import com.example.demo.service.ETagRegistry;
+import com.example.demo.service.RoleCountIndex;
+import com.example.demo.service.UserNameIndex;
+import com.example.demo.service.UserService;
+import com.example.demo.service.UserWriteBehindService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+/**
+ * 用户更新写后缓冲配置（app.user.write-behind.enabled=true 时生效）
+ * <p>
+ * 未开启时没有 UserWriteBehindService Bean，PUT /user/{id} 始终同步更新。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.user.write-behind", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindConfig {
+
+    @Bean
+    public UserWriteBehindService userWriteBehindService(UserService userService, UserBatchRepository userBatchRepository,
+                                                         TransactionTemplate transactionTemplate, CacheManager cacheManager,
+                                                         EntityManagerFactory entityManagerFactory, RoleCountIndex roleCountIndex,
+                                                         UserNameIndex userNameIndex, ETagRegistry eTagRegistry,
+                                                         ObjectMapper objectMapper, WriteBehindProperties properties) throws IOException {
+        return new UserWriteBehindService(userService, userBatchRepository, transactionTemplate, cacheManager,
+                entityManagerFactory, roleCountIndex, userNameIndex, eTagRegistry, objectMapper, properties);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 用户更新写后缓冲配置，对应 application.yml 中的 app.user.write-behind.*
+ *
+ * @param enabled        是否启用；关闭时 PUT /user/{id} 始终同步更新
+ * @param flushInterval  刷写间隔，同一用户在一个间隔内的多次更新合并为一次
+ * @param maxPending     等待刷写的用户数上限，达到上限时立即刷写，新的更新等待空位
+ * @param enqueueTimeout 等待空位的最长时间，超时返回 503
+ * @param journalDir     预写日志目录，确认前每条更新都已 fsync 到这里，启动时重放未落库的更新
+ */
+@ConfigurationProperties(prefix = "app.user.write-behind")
+public record WriteBehindProperties(
+        boolean enabled,
+        Duration flushInterval,
+        int maxPending,
+        Duration enqueueTimeout,
+        Path journalDir
+) {
+}
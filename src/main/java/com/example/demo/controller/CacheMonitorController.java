@@ -0,0 +1,128 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.RoleCountIndex;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class CacheMonitorController {
+
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RoleCountIndex roleCountIndex;
+
+    public CacheMonitorController(CacheManager cacheManager, EntityManagerFactory entityManagerFactory,
+                                  RoleCountIndex roleCountIndex) {
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.roleCountIndex = roleCountIndex;
+    }
+
+    /**
+     * 获取本地缓存的命中/未命中/淘汰统计
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+            CacheStats stats = nativeCache.stats();
+
+            Map<String, Object> cacheStatus = new LinkedHashMap<>();
+            cacheStatus.put("estimatedSize", nativeCache.estimatedSize());
+            cacheStatus.put("requestCount", stats.requestCount());
+            cacheStatus.put("hitCount", stats.hitCount());
+            cacheStatus.put("missCount", stats.missCount());
+            cacheStatus.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
+            cacheStatus.put("evictionCount", stats.evictionCount());
+            // 每一次 miss 才会真正访问数据库，hitCount 即为节省下来的连接借用次数
+            cacheStatus.put("savedConnectionAcquires", stats.hitCount());
+            caches.put(name, cacheStatus);
+        }
+
+        return ResponseEntity.ok(Map.of("caches", caches));
+    }
+
+    /**
+     * 获取 Hibernate 二级缓存 / 查询缓存各区域的统计，用于调整 ehcache.xml 中的区域容量
+     */
+    @GetMapping("/hibernate-cache")
+    public ResponseEntity<Map<String, Object>> getHibernateCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(regionName);
+            if (regionStats == null) {
+                continue;
+            }
+            long requests = regionStats.getHitCount() + regionStats.getMissCount();
+            Map<String, Object> regionStatus = new LinkedHashMap<>();
+            regionStatus.put("hitCount", regionStats.getHitCount());
+            regionStatus.put("missCount", regionStats.getMissCount());
+            regionStatus.put("putCount", regionStats.getPutCount());
+            regionStatus.put("hitRate", String.format("%.2f%%", requests == 0 ? 0.0 : regionStats.getHitCount() * 100.0 / requests));
+            regions.put(regionName, regionStatus);
+        }
+
+        // 每条可缓存查询的命中情况
+        Map<String, Object> queries = new LinkedHashMap<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStats = statistics.getQueryStatistics(query);
+            if (queryStats.getCacheHitCount() + queryStats.getCacheMissCount() == 0) {
+                continue;
+            }
+            Map<String, Object> queryStatus = new LinkedHashMap<>();
+            queryStatus.put("cacheHitCount", queryStats.getCacheHitCount());
+            queryStatus.put("cacheMissCount", queryStats.getCacheMissCount());
+            queryStatus.put("cachePutCount", queryStats.getCachePutCount());
+            queryStatus.put("executionCount", queryStats.getExecutionCount());
+            queryStatus.put("executionAvgTime", queryStats.getExecutionAvgTime() + " ms");
+            queries.put(query, queryStatus);
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+        totals.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+        totals.put("secondLevelCachePutCount", statistics.getSecondLevelCachePutCount());
+        totals.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        totals.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        totals.put("queryCachePutCount", statistics.getQueryCachePutCount());
+        totals.put("updateTimestampsCacheHitCount", statistics.getUpdateTimestampsCacheHitCount());
+        totals.put("updateTimestampsCachePutCount", statistics.getUpdateTimestampsCachePutCount());
+        totals.put("statisticsEnabled", statistics.isStatisticsEnabled());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totals", totals);
+        result.put("regions", regions);
+        result.put("queries", queries);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 获取内存角色计数器的当前值和最近一次对账结果
+     */
+    @GetMapping("/role-counts")
+    public ResponseEntity<Map<String, Object>> getRoleCounts() {
+        return ResponseEntity.ok(roleCountIndex.getStatus());
+    }
+}
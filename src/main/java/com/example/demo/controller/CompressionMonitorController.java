@@ -0,0 +1,28 @@
+package com.example.demo.controller;
+
+import com.example.demo.common.CompressionFilter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class CompressionMonitorController {
+
+    private final CompressionFilter compressionFilter;
+
+    public CompressionMonitorController(CompressionFilter compressionFilter) {
+        this.compressionFilter = compressionFilter;
+    }
+
+    /**
+     * 获取响应压缩的次数、未压缩的原因分布和压缩率
+     */
+    @GetMapping("/compression")
+    public ResponseEntity<Map<String, Object>> getCompressionStats() {
+        return ResponseEntity.ok(compressionFilter.getStatus());
+    }
+}
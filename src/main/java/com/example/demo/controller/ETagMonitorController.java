@@ -0,0 +1,28 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ETagRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class ETagMonitorController {
+
+    private final ETagRegistry eTagRegistry;
+
+    public ETagMonitorController(ETagRegistry eTagRegistry) {
+        this.eTagRegistry = eTagRegistry;
+    }
+
+    /**
+     * 获取条件 GET 的 ETag 登记表规模和 304 次数
+     */
+    @GetMapping("/etags")
+    public ResponseEntity<Map<String, Object>> getETagStats() {
+        return ResponseEntity.ok(eTagRegistry.getStatus());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.controller;
+
+import com.example.demo.monitor.LatencyHistograms;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class LatencyMonitorController {
+
+    private final LatencyHistograms latencyHistograms;
+
+    public LatencyMonitorController(LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    /**
+     * 获取延迟直方图（毫秒）
+     * <p>
+     * http.connectionAcquire 与 http.statementExecute 是同一映射在单次请求中等待连接和执行 SQL 的总耗时，
+     * 对比两者即可判断一个慢请求是连接池饥饿还是 SQL 慢。
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatency() {
+        return ResponseEntity.ok(Map.of(
+            "unit", "ms",
+            "histograms", latencyHistograms.snapshot()
+        ));
+    }
+
+    /**
+     * 清空所有延迟直方图
+     */
+    @DeleteMapping("/latency")
+    public ResponseEntity<Map<String, Object>> resetLatency() {
+        latencyHistograms.reset();
+        return ResponseEntity.ok(Map.of("status", "reset"));
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.demo.controller;
 
+import com.example.demo.datasource.BulkheadDataSource;
+import com.example.demo.datasource.LeakTrackingDataSource;
+import com.example.demo.datasource.PoolAutosizer;
+import com.example.demo.datasource.ReadWriteRoutingDataSource;
+import com.example.demo.repository.ReactiveReadRepository;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,7 +15,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.sql.DataSource;
+import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -19,43 +27,51 @@ public class PoolMonitorController {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private ObjectProvider<PoolAutosizer> poolAutosizer;
+
+    @Autowired
+    private ObjectProvider<ReactiveReadRepository> reactiveReadRepository;
+
     /**
      * 获取连接池状态信息
      */
     @GetMapping("/pool-status")
     public ResponseEntity<Map<String, Object>> getPoolStatus() {
         try {
-            HikariDataSource hikariDS = (HikariDataSource) dataSource;
-            HikariPoolMXBean poolBean = hikariDS.getHikariPoolMXBean();
+            return ResponseEntity.ok(poolStatus(dataSource));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Failed to get pool status: " + e.getMessage());
+            error.put("status", "ERROR");
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
 
-            Map<String, Object> status = new HashMap<>();
-            
-            // 连接数信息
-            status.put("activeConnections", poolBean.getActiveConnections());
-            status.put("idleConnections", poolBean.getIdleConnections());
-            status.put("totalConnections", poolBean.getTotalConnections());
-            status.put("threadsAwaitingConnection", poolBean.getThreadsAwaitingConnection());
-            
-            // 配置信息
-            status.put("maximumPoolSize", hikariDS.getMaximumPoolSize());
-            status.put("minimumIdle", hikariDS.getMinimumIdle());
-            status.put("poolName", hikariDS.getPoolName());
-            
-            // 计算使用率
-            int totalConnections = poolBean.getTotalConnections();
-            int activeConnections = poolBean.getActiveConnections();
-            double utilizationRate = totalConnections > 0 ? 
-                (double) activeConnections / totalConnections * 100 : 0;
-            status.put("utilizationRate", String.format("%.2f%%", utilizationRate));
-            
-            // 健康状态
-            boolean isHealthy = poolBean.getThreadsAwaitingConnection() == 0 && 
-                               activeConnections < hikariDS.getMaximumPoolSize();
-            status.put("isHealthy", isHealthy);
-            status.put("status", isHealthy ? "HEALTHY" : "WARNING");
+    /**
+     * 获取每个连接池的状态；开启读写分离时分别返回主库、从库连接池，以及从库延迟和读请求的路由情况；
+     * 开启 /rx/* 接口时同时返回 R2DBC 连接池
+     */
+    @GetMapping("/pools")
+    public ResponseEntity<Map<String, Object>> getPools() {
+        try {
+            Map<String, Object> pools = new LinkedHashMap<>();
+            ReadWriteRoutingDataSource routing = dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+                    ? dataSource.unwrap(ReadWriteRoutingDataSource.class) : null;
+            if (routing == null) {
+                pools.put("primary", poolStatus(dataSource));
+                reactiveReadRepository.ifAvailable(repository -> pools.put("reactive", repository.getPoolStatus()));
+                return ResponseEntity.ok(Map.of("readReplica", false, "pools", pools));
+            }
+            pools.put("primary", poolStatus(routing.getPrimary()));
+            pools.put("replica", poolStatus(routing.getReplica()));
+            reactiveReadRepository.ifAvailable(repository -> pools.put("reactive", repository.getPoolStatus()));
 
-            return ResponseEntity.ok(status);
-            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("readReplica", true);
+            result.put("routing", routing.getStatus());
+            result.put("pools", pools);
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Failed to get pool status: " + e.getMessage());
@@ -64,13 +80,93 @@ public class PoolMonitorController {
         }
     }
 
+    /**
+     * 获取每个连接池当前借出的连接（持有时长、线程、请求路径、借出时的调用栈）以及最近的疑似泄漏和强制回收记录
+     */
+    @GetMapping("/leaks")
+    public ResponseEntity<Map<String, Object>> getLeaks() {
+        try {
+            Map<String, Object> pools = new LinkedHashMap<>();
+            ReadWriteRoutingDataSource routing = dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+                    ? dataSource.unwrap(ReadWriteRoutingDataSource.class) : null;
+            if (routing == null) {
+                putLeakStatus(pools, "primary", dataSource);
+            } else {
+                putLeakStatus(pools, "primary", routing.getPrimary());
+                putLeakStatus(pools, "replica", routing.getReplica());
+            }
+            if (pools.isEmpty()) {
+                return ResponseEntity.ok(Map.of(
+                    "enabled", false,
+                    "message", "未开启，设置 app.datasource.leak-detection.enabled=true 启用"
+                ));
+            }
+            return ResponseEntity.ok(Map.of("enabled", true, "pools", pools));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Failed to get leak status: " + e.getMessage());
+            error.put("status", "ERROR");
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    private static void putLeakStatus(Map<String, Object> pools, String name, DataSource dataSource) throws SQLException {
+        if (dataSource.isWrapperFor(LeakTrackingDataSource.class)) {
+            pools.put(name, dataSource.unwrap(LeakTrackingDataSource.class).getStatus());
+        }
+    }
+
+    private Map<String, Object> poolStatus(DataSource dataSource) throws SQLException {
+        HikariDataSource hikariDS = dataSource.unwrap(HikariDataSource.class);
+        HikariPoolMXBean poolBean = hikariDS.getHikariPoolMXBean();
+
+        Map<String, Object> status = new HashMap<>();
+        
+        // 连接数信息
+        status.put("activeConnections", poolBean.getActiveConnections());
+        status.put("idleConnections", poolBean.getIdleConnections());
+        status.put("totalConnections", poolBean.getTotalConnections());
+        status.put("threadsAwaitingConnection", poolBean.getThreadsAwaitingConnection());
+        
+        // 配置信息
+        status.put("maximumPoolSize", hikariDS.getMaximumPoolSize());
+        status.put("minimumIdle", hikariDS.getMinimumIdle());
+        status.put("poolName", hikariDS.getPoolName());
+        
+        // 计算使用率
+        int totalConnections = poolBean.getTotalConnections();
+        int activeConnections = poolBean.getActiveConnections();
+        double utilizationRate = totalConnections > 0 ? 
+            (double) activeConnections / totalConnections * 100 : 0;
+        status.put("utilizationRate", String.format("%.2f%%", utilizationRate));
+        
+        // 健康状态
+        boolean isHealthy = poolBean.getThreadsAwaitingConnection() == 0 && 
+                           activeConnections < hikariDS.getMaximumPoolSize();
+        status.put("isHealthy", isHealthy);
+        status.put("status", isHealthy ? "HEALTHY" : "WARNING");
+
+        // 连接舱壁（开启时）
+        if (dataSource.isWrapperFor(BulkheadDataSource.class)) {
+            BulkheadDataSource bulkhead = dataSource.unwrap(BulkheadDataSource.class);
+            Map<String, Object> bulkheadStatus = new HashMap<>();
+            bulkheadStatus.put("maxConcurrent", bulkhead.getMaxConcurrent());
+            bulkheadStatus.put("availablePermits", bulkhead.getAvailablePermits());
+            bulkheadStatus.put("threadsAwaitingPermit", bulkhead.getQueueLength());
+            bulkheadStatus.put("rejectedCount", bulkhead.getRejectedCount());
+            status.put("bulkhead", bulkheadStatus);
+        }
+
+        return status;
+    }
+
     /**
      * 获取连接池详细配置信息
      */
     @GetMapping("/pool-config")
     public ResponseEntity<Map<String, Object>> getPoolConfig() {
         try {
-            HikariDataSource hikariDS = (HikariDataSource) dataSource;
+            HikariDataSource hikariDS = dataSource.unwrap(HikariDataSource.class);
 
             Map<String, Object> config = new HashMap<>();
             config.put("poolName", hikariDS.getPoolName());
@@ -101,7 +197,7 @@ public class PoolMonitorController {
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
         try {
-            HikariDataSource hikariDS = (HikariDataSource) dataSource;
+            HikariDataSource hikariDS = dataSource.unwrap(HikariDataSource.class);
             HikariPoolMXBean poolBean = hikariDS.getHikariPoolMXBean();
 
             Map<String, Object> health = new HashMap<>();
@@ -133,4 +229,25 @@ public class PoolMonitorController {
             return ResponseEntity.internalServerError().body(error);
         }
     }
+
+    /**
+     * 获取连接池自适应扩缩容的配置、最近一次采样和历史决策
+     */
+    @GetMapping("/pool-autosize")
+    public ResponseEntity<Map<String, Object>> getPoolAutosize() {
+        PoolAutosizer autosizer = poolAutosizer.getIfAvailable();
+        if (autosizer == null) {
+            return ResponseEntity.ok(Map.of(
+                "enabled", false,
+                "message", "未开启，设置 app.datasource.autosize.enabled=true 启用"
+            ));
+        }
+
+        Map<String, Object> autosize = new HashMap<>();
+        autosize.put("enabled", true);
+        autosize.put("config", autosizer.getProperties());
+        autosize.put("lastSample", autosizer.getLastSample());
+        autosize.put("decisions", autosizer.getHistory());
+        return ResponseEntity.ok(autosize);
+    }
 }
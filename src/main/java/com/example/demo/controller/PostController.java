@@ -0,0 +1,74 @@
+package com.example.demo.controller;
+
+import com.example.demo.common.ApiResponse;
+import com.example.demo.common.StreamingApiResponse;
+import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.PostBatchCreateRequest;
+import com.example.demo.dto.PostBatchCreateResponse;
+import com.example.demo.dto.PostExportFormat;
+import com.example.demo.dto.PostSearchPage;
+import com.example.demo.service.PostService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/post")
+public class PostController {
+
+    private final PostService postService;
+    private final ObjectMapper objectMapper;
+
+    public PostController(PostService postService, ObjectMapper objectMapper) {
+        this.postService = postService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(summary = "批量创建文章", description = "传入文章列表，按用户分组，每个用户的文章在一个事务中使用 JDBC 批量插入。用户不存在或插入失败只影响该用户的文章。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "批次处理完成，逐用户结果见 users"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "文章列表为空或超过单批上限"),})
+
+    @PostMapping("/batch")
+    public ApiResponse<PostBatchCreateResponse> createBatch(@Valid @RequestBody PostBatchCreateRequest batchRequest) {
+        PostBatchCreateResponse result = postService.createPosts(batchRequest.posts());
+        return ApiResponse.success(result);
+    }
+
+    @Operation(summary = "检索文章", description = "在内存倒排索引中检索文章标题和正文（中文按相邻两字切分），按 BM25 相关度排序。响应中的 nextCursor 作为下一次请求的 cursor。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "cursor 格式错误"),})
+
+    @GetMapping("/search")
+    public ApiResponse<PostSearchPage> searchPosts(
+            @Parameter(description = "检索词，多个词之间为 OR 关系", example = "spring") @RequestParam String q,
+            @Parameter(description = "上一页返回的 nextCursor，首页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，最大 " + PostService.MAX_SEARCH_PAGE_SIZE, example = "20") @RequestParam(defaultValue = "20") int size) {
+        PostSearchPage page = postService.searchPosts(q, cursor, size);
+        return ApiResponse.success(page);
+    }
+
+    @Operation(summary = "查询全部文章及作者", description = "返回全部文章的标题和作者名，格式与其他列表接口相同（ApiResponse 包装），由 JsonGenerator 边读边写出，不在内存中组装列表。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"),})
+
+    @GetMapping("/authors")
+    public ResponseEntity<StreamingResponseBody> listPostsWithAuthors() {
+        StreamingResponseBody body = StreamingApiResponse.success(objectMapper, PostAuthorDto.class, postService::forEachPostWithAuthorName);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @Operation(summary = "流式导出文章", description = "以 NDJSON 或 CSV 流式输出 id > cursor 的文章及作者，文章正文按字符流读取后直接写出，服务端内存占用与表大小和正文长度无关。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "导出成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "不支持的导出格式"),})
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPosts(
+            @Parameter(description = "导出格式：ndjson 或 csv", example = "ndjson") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "从该ID之后开始导出，默认从头开始", example = "0") @RequestParam(defaultValue = "0") int cursor) {
+        PostExportFormat exportFormat = PostExportFormat.from(format);
+        StreamingResponseBody body = outputStream -> postService.exportPosts(cursor, exportFormat, outputStream);
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+    }
+}
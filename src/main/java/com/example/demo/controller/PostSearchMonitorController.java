@@ -0,0 +1,28 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.PostSearchIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class PostSearchMonitorController {
+
+    private final PostSearchIndex postSearchIndex;
+
+    public PostSearchMonitorController(PostSearchIndex postSearchIndex) {
+        this.postSearchIndex = postSearchIndex;
+    }
+
+    /**
+     * 获取文章检索倒排索引的规模、构建耗时、估算内存占用和查询耗时
+     */
+    @GetMapping("/post-search")
+    public ResponseEntity<Map<String, Object>> getPostSearchIndex() {
+        return ResponseEntity.ok(postSearchIndex.getStatus());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.controller;
+
+import com.example.demo.common.ApiResponse;
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.repository.ReactiveReadRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 与 /user、/post 只读接口对应的响应式版本，经 R2DBC 独立连接池查询
+ * <p>
+ * 仍运行在 Spring MVC 上：返回 Mono/Flux 时请求进入异步模式，Tomcat 线程在订阅后即归还，
+ * 结果由驱动的线程回调写出。不经过 Spring Cache、Hibernate 二级缓存和 ETag，每次都查询数据库。
+ */
+@RestController
+@RequestMapping("/rx")
+@ConditionalOnProperty(prefix = "app.r2dbc", name = "enabled", havingValue = "true")
+public class ReactiveController {
+
+    private final ReactiveReadRepository reactiveReadRepository;
+
+    public ReactiveController(ReactiveReadRepository reactiveReadRepository) {
+        this.reactiveReadRepository = reactiveReadRepository;
+    }
+
+    @Operation(summary = "根据ID查询用户（R2DBC）", description = "与 GET /user/{id} 相同，经 R2DBC 连接池查询，不使用缓存。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "成功找到用户"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "当用户ID不存在时"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "R2DBC 连接池耗尽且等待超时"),})
+
+    @GetMapping("/user/{id}")
+    public Mono<ApiResponse<UserResponse>> getUser(@Parameter(description = "用户的唯一ID", required = true, example = "1") @PathVariable int id) {
+        return reactiveReadRepository.findUserById(id)
+                .switchIfEmpty(Mono.error(() -> new BusinessException(ErrorCode.USER_NOT_FOUND)))
+                .map(ApiResponse::success);
+    }
+
+    @Operation(summary = "根据姓名和角色查询用户（R2DBC）", description = "与 GET /user/search 相同，经 R2DBC 连接池查询。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "R2DBC 连接池耗尽且等待超时"),})
+
+    @GetMapping("/user/search")
+    public Mono<ApiResponse<List<UserResponse>>> searchUsers(
+            @Parameter(description = "用户姓名", required = true) @RequestParam String name,
+            @Parameter(description = "用户角色", required = true) @RequestParam String role) {
+        return reactiveReadRepository.findUsersByNameAndRole(name, role)
+                .collectList()
+                .map(ApiResponse::success);
+    }
+
+    @Operation(summary = "流式查询全部文章及作者（R2DBC）", description = "以 NDJSON 逐行输出全部文章的标题和作者名。每写完一行才向数据库结果集请求下一行，客户端读得慢时服务端不会堆积结果。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"),})
+
+    @GetMapping(value = "/posts/authors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PostAuthorDto> streamPostsWithAuthors() {
+        return reactiveReadRepository.streamPostsWithAuthorNames();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class SingleFlightMonitorController {
+
+    private final UserService userService;
+
+    public SingleFlightMonitorController(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * 获取并发相同读取的合并统计（省下的数据库查询次数）
+     */
+    @GetMapping("/single-flight")
+    public ResponseEntity<Map<String, Object>> getSingleFlightStats() {
+        return ResponseEntity.ok(userService.getSingleFlightStatus());
+    }
+}
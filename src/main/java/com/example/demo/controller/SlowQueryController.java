@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/slow")
@@ -54,4 +55,37 @@ public class SlowQueryController {
             ));
         }
     }
+
+    /**
+     * 异步执行慢查询：立即释放容器线程，超时后取消 SQL，线程池满时返回 503
+     */
+    @GetMapping("/async/query/{seconds}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> slowQueryAsync(@PathVariable int seconds) {
+        return slowQueryService.slowQueryAsync(seconds)
+                .thenApply(result -> ResponseEntity.ok(Map.of(
+                    "status", "success",
+                    "message", result,
+                    "duration", seconds + " 秒"
+                )));
+    }
+
+    /**
+     * 异步执行复杂查询
+     */
+    @GetMapping("/async/complex")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> complexQueryAsync() {
+        return slowQueryService.complexQueryAsync()
+                .thenApply(result -> ResponseEntity.ok(Map.of(
+                    "status", "success",
+                    "message", result
+                )));
+    }
+
+    /**
+     * 异步查询线程池状态
+     */
+    @GetMapping("/async/status")
+    public ResponseEntity<Map<String, Object>> asyncStatus() {
+        return ResponseEntity.ok(slowQueryService.getAsyncExecutorStatus());
+    }
 }
@@ -0,0 +1,43 @@
+package com.example.demo.controller;
+
+import com.example.demo.monitor.SlowQueryDetector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class SlowQueryMonitorController {
+
+    private final ObjectProvider<SlowQueryDetector> slowQueryDetector;
+
+    public SlowQueryMonitorController(ObjectProvider<SlowQueryDetector> slowQueryDetector) {
+        this.slowQueryDetector = slowQueryDetector;
+    }
+
+    /**
+     * 获取最慢的 SQL 形态（含 EXPLAIN 执行计划）和最近的慢查询
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries() {
+        SlowQueryDetector detector = slowQueryDetector.getIfAvailable();
+        if (detector == null) {
+            return ResponseEntity.ok(Map.of(
+                "enabled", false,
+                "message", "未开启，设置 app.monitor.slow-query.enabled=true 启用"
+            ));
+        }
+
+        Map<String, Object> slowQueries = new HashMap<>();
+        slowQueries.put("enabled", true);
+        slowQueries.put("config", detector.getProperties());
+        slowQueries.put("topShapes", detector.getTopShapes());
+        slowQueries.put("recent", detector.getRecent());
+        return ResponseEntity.ok(slowQueries);
+    }
+}
@@ -22,7 +22,7 @@ public class TransactionController {
     }
 
     /**
-     * 模拟连接泄漏 - 故意不关闭连接
+     * 模拟连接泄漏 - 故意不关闭连接，借出调用栈见 /api/monitor/leaks
      */
     @GetMapping("/test-leak")
     public String testLeak() throws Exception {
@@ -0,0 +1,39 @@
+package com.example.demo.controller;
+
+import com.example.demo.monitor.TransactionProfiler;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class TransactionMonitorController {
+
+    private final TransactionProfiler transactionProfiler;
+
+    public TransactionMonitorController(TransactionProfiler transactionProfiler) {
+        this.transactionProfiler = transactionProfiler;
+    }
+
+    /**
+     * 获取每个事务方法的耗时、连接持有时间、SQL 条数和挂起外层事务的次数，
+     * 以及一次调用同时持有多个连接、可能造成连接池死锁的方法
+     */
+    @GetMapping("/transactions")
+    public ResponseEntity<Map<String, Object>> getTransactions() {
+        return ResponseEntity.ok(transactionProfiler.getStatus());
+    }
+
+    /**
+     * 清空事务统计
+     */
+    @DeleteMapping("/transactions")
+    public ResponseEntity<Map<String, Object>> resetTransactions() {
+        transactionProfiler.reset();
+        return ResponseEntity.ok(Map.of("status", "reset"));
+    }
+}
@@ -1,38 +1,130 @@
 package com.example.demo.controller;
 
 import com.example.demo.common.ApiResponse;
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.CursorPage;
 import com.example.demo.dto.RoleCountDto;
+import com.example.demo.dto.UserBatchCreateRequest;
+import com.example.demo.dto.UserBatchCreateResponse;
 import com.example.demo.dto.UserCreateRequest;
 import com.example.demo.dto.UserResponse;
 import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.dto.UserWithPostsResponse;
+import com.example.demo.service.ETagRegistry;
+import com.example.demo.service.UserBatchService;
+import com.example.demo.service.UserNameIndex;
 import com.example.demo.service.UserService;
+import com.example.demo.service.UserWriteBehindService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/user")
 public class UserController {
 
+    /** NDJSON 流式输出时每写多少行 flush 一次 */
+    private static final int STREAM_FLUSH_ROWS = 500;
+
     private final UserService userService;
+    private final UserBatchService userBatchService;
+    private final ETagRegistry eTagRegistry;
+    private final UserWriteBehindService writeBehind; // 未开启写后缓冲时为 null
+    private final ObjectWriter userWriter;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserBatchService userBatchService, ETagRegistry eTagRegistry,
+                          ObjectProvider<UserWriteBehindService> writeBehind, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userBatchService = userBatchService;
+        this.eTagRegistry = eTagRegistry;
+        this.writeBehind = writeBehind.getIfAvailable();
+        // 逐行写入同一个输出流，不能让 Jackson 在每次写完后关闭它
+        this.userWriter = objectMapper.writerFor(UserResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Operation(summary = "分页列出用户", description = "基于主键的 keyset 分页：返回 id > cursor 的下一页用户，响应中的 nextCursor 作为下一次请求的 cursor。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"),})
+
+    @GetMapping
+    public ApiResponse<CursorPage<UserResponse>> listUsers(
+            @Parameter(description = "上一页最后一个用户的ID，首页传 0", example = "0") @RequestParam(defaultValue = "0") int cursor,
+            @Parameter(description = "每页条数，最大 " + UserService.MAX_PAGE_SIZE, example = "20") @RequestParam(defaultValue = "20") int size) {
+        CursorPage<UserResponse> page = userService.listUsers(cursor, size);
+        return ApiResponse.success(page);
+    }
+
+    @Operation(summary = "分页列出用户及其最新文章", description = "基于主键的 keyset 分页，每个用户附带按ID倒序的最新 postsPerUser 篇文章摘要和文章总数。无论页大小，每次请求固定执行两条 SQL。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"),})
+
+    @GetMapping("/withPosts")
+    public ApiResponse<CursorPage<UserWithPostsResponse>> listUsersWithPosts(
+            @Parameter(description = "上一页最后一个用户的ID，首页传 0", example = "0") @RequestParam(defaultValue = "0") int cursor,
+            @Parameter(description = "每页条数，最大 " + UserService.MAX_PAGE_SIZE, example = "20") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "每个用户返回的文章数，最大 " + UserService.MAX_POSTS_PER_USER, example = "5") @RequestParam(defaultValue = "5") int postsPerUser) {
+        CursorPage<UserWithPostsResponse> page = userService.listUsersWithPosts(cursor, size, postsPerUser);
+        return ApiResponse.success(page);
+    }
+
+    @Operation(summary = "流式导出用户", description = "以 NDJSON（每行一个 JSON 对象）流式输出 id > cursor 的全部用户，服务端内存占用与表大小无关。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "导出成功"),})
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(
+            @Parameter(description = "从该ID之后开始导出，默认从头开始", example = "0") @RequestParam(defaultValue = "0") int cursor) {
+        StreamingResponseBody body = outputStream -> {
+            int[] rows = {0};
+            userService.forEachUserAfter(cursor, user -> {
+                try {
+                    userWriter.writeValue(outputStream, user);
+                    outputStream.write('\n');
+                    if (++rows[0] % STREAM_FLUSH_ROWS == 0) {
+                        outputStream.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
-    @Operation(summary = "根据ID查询用户", description = "传入用户ID，获取该用户的详细信息。")
-    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "成功找到用户"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "当用户ID不存在时"),})
+    @Operation(summary = "根据ID查询用户", description = "传入用户ID，获取该用户的详细信息。响应头 ETag 为用户的版本号，带 If-None-Match 且未变化时返回 304。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "成功找到用户"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "用户未变化"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "当用户ID不存在时"),})
 
     @GetMapping("/{id}")
-    public ApiResponse<UserResponse> getUser(@Parameter(description = "用户的唯一ID", required = true, example = "1") @PathVariable int id) {
+    public ResponseEntity<ApiResponse<UserResponse>> getUser(@Parameter(description = "用户的唯一ID", required = true, example = "1") @PathVariable int id,
+                                                             WebRequest webRequest) {
+        // 已登记的 ETag 与 If-None-Match 相同时直接返回 304，不访问缓存和数据库，也不序列化响应体
+        String knownETag = eTagRegistry.knownUserETag(id);
+        if (knownETag != null && webRequest.checkNotModified(knownETag)) {
+            eTagRegistry.recordNotModified();
+            return null;
+        }
         UserResponse userResponse = userService.getUserById(id);
-        return ApiResponse.success(userResponse);
+        return ResponseEntity.ok()
+                .eTag(eTagRegistry.rememberUser(userResponse))
+                .body(ApiResponse.success(userResponse));
     }
 
     @Operation(summary = "注册新用户", description = "传入用户名和角色，创建一个新用户。ID由系统自动生成。")
@@ -44,13 +136,52 @@ public class UserController {
         return ApiResponse.success(createdUser);
     }
 
-    @Operation(summary = "更新用户信息", description = "传入用户ID和新的用户信息，更新该用户。")
-    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "用户更新成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "当用户ID不存在时"),})
+    @Operation(summary = "批量注册用户", description = "传入用户列表，按分块使用 JDBC 批量插入。每个条目单独返回结果，校验失败或用户名重复的条目不会导致整个批次失败。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "批次处理完成，逐条结果见 results"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "用户列表为空或超过单批上限"),})
+
+    @PostMapping("/batch")
+    public ApiResponse<UserBatchCreateResponse> registerBatch(@Valid @RequestBody UserBatchCreateRequest batchRequest) {
+        UserBatchCreateResponse result = userBatchService.createUsers(batchRequest.users());
+        return ApiResponse.success(result);
+    }
+
+    @Operation(summary = "更新用户信息", description = "传入用户ID和新的用户信息，更新该用户。带 If-Match（上次响应的 ETag 或 version）时仅在版本未变化时更新；不带时与并发更新冲突后自动重试。响应头 ETag 为更新后的版本。开启写后缓冲（app.user.write-behind.enabled）时，不带 If-Match 的更新写入预写日志后即返回 202，不带 ETag，稍后批量落库。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "用户更新成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "202", description = "更新已进入写后缓冲，将在一个刷写间隔内落库"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "当用户ID不存在时"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "If-Match 与当前版本不一致，或重试后仍然冲突"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "写后缓冲已满且等待超时"),})
 
     @PutMapping("/{id}")
-    public ApiResponse<UserResponse> updateUser(@PathVariable int id, @Valid @RequestBody UserUpdateRequest updateRequest) {
-        UserResponse updatedUser = userService.updateUser(id, updateRequest);
-        return ApiResponse.success(updatedUser);
+    public ResponseEntity<ApiResponse<UserResponse>> updateUser(
+            @PathVariable int id,
+            @Parameter(description = "期望的当前版本，如 \"3\"；* 或不传表示不检查") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UserUpdateRequest updateRequest) {
+        Long expectedVersion = parseIfMatch(ifMatch);
+        if (writeBehind != null) {
+            if (expectedVersion == null) {
+                return ResponseEntity.accepted().body(ApiResponse.success(writeBehind.submit(id, updateRequest)));
+            }
+            writeBehind.awaitFlushed(id); // 版本比较需要先让缓冲中的更新落库
+        }
+        UserResponse updatedUser = userService.updateUser(id, updateRequest, expectedVersion);
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(updatedUser.version()))
+                .body(ApiResponse.success(updatedUser));
+    }
+
+    /**
+     * 解析 If-Match 中的版本号。If-Match 要求强比较，弱 ETag（W/ 前缀）或无法解析的值不可能匹配，按冲突处理
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("\"") && tag.endsWith("\"") && tag.length() >= 2) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.USER_UPDATE_CONFLICT);
+        }
     }
 
     @Operation(summary = "删除用户", description = "传入用户ID，删除该用户。")
@@ -58,17 +189,30 @@ public class UserController {
 
     @DeleteMapping("/{id}")
     public ApiResponse<Void> deleteUser(@PathVariable int id) {
+        if (writeBehind != null) {
+            writeBehind.awaitFlushed(id);
+        }
         userService.deleteUserById(id);
         return ApiResponse.success(null);
     }
 
-    @Operation(summary = "统计各角色用户数量", description = "统计每个角色下的用户数量。")
-    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "统计成功"),})
+    @Operation(summary = "统计各角色用户数量", description = "统计每个角色下的用户数量。计数变化后 ETag 随之改变，带 If-None-Match 且未变化时返回 304。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "统计成功"), @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "计数未变化"),})
 
     @GetMapping("/countByRole")
-    public ApiResponse<List<RoleCountDto>> countUsersByRole() {
+    public ResponseEntity<ApiResponse<List<RoleCountDto>>> countUsersByRole(WebRequest webRequest) {
+        // 先取 ETag 再读计数，读取期间的更新只会让响应比 ETag 新
+        String eTag = userService.countUsersByRoleETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            eTagRegistry.recordNotModified();
+            return null;
+        }
         List<RoleCountDto> counts = userService.countUsersByRole();
-        return ApiResponse.success(counts);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.body(ApiResponse.success(counts));
     }
 
     @Operation(summary = "统计用户数量超过指定值的角色", description = "统计用户数量超过 minCount 的角色及其数量。")
@@ -90,7 +234,18 @@ public class UserController {
     }
 
 
-    @Operation(summary = "根据姓名和角色查询用户", description = "根据用户的姓名和角色查询用户列表。")
+    @Operation(summary = "用户名前缀补全", description = "按字典序返回以 prefix 开头（不区分大小写）的用户名，由内存中的字典树提供，不访问数据库。")
+    @ApiResponses(value = {@io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功"),})
+
+    @GetMapping("/suggest")
+    public ApiResponse<List<String>> suggestUserNames(
+            @Parameter(description = "用户名前缀", required = true, example = "Han") @RequestParam String prefix,
+            @Parameter(description = "最多返回条数，最大 " + UserNameIndex.MAX_SUGGESTIONS, example = "10") @RequestParam(defaultValue = "10") int limit) {
+        List<String> names = userService.suggestUserNames(prefix, limit);
+        return ApiResponse.success(names);
+    }
+
+    @Operation(summary = "根据姓名和角色查询用户", description = "根据用户的姓名和角色查询用户列表。同时到达的相同查询只执行一次数据库查询并共享结果。")
 
     @ApiResponses(value = {
 
@@ -106,7 +261,7 @@ public class UserController {
 
             @Parameter(description = "用户角色", required = true) @RequestParam String role) {
 
-        List<UserResponse> users = userService.findUsersByNameAndRole(name, role);
+        List<UserResponse> users = userService.findUsersByNameAndRole(name, role); // name 唯一，结果至多一条，且已在合并读取中查询成 List，不需要流式输出
 
         return ApiResponse.success(users);
 
@@ -0,0 +1,28 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.UserNameIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class UserSuggestMonitorController {
+
+    private final UserNameIndex userNameIndex;
+
+    public UserSuggestMonitorController(UserNameIndex userNameIndex) {
+        this.userNameIndex = userNameIndex;
+    }
+
+    /**
+     * 获取用户名字典树的规模、估算内存占用和补全耗时
+     */
+    @GetMapping("/user-suggest")
+    public ResponseEntity<Map<String, Object>> getUserSuggestIndex() {
+        return ResponseEntity.ok(userNameIndex.getStatus());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.UserWriteBehindService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+public class WriteBehindMonitorController {
+
+    private final ObjectProvider<UserWriteBehindService> writeBehind;
+
+    public WriteBehindMonitorController(ObjectProvider<UserWriteBehindService> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * 获取用户更新写后缓冲的积压、合并率和刷写耗时
+     */
+    @GetMapping("/write-behind")
+    public ResponseEntity<Map<String, Object>> getWriteBehindStats() {
+        UserWriteBehindService service = writeBehind.getIfAvailable();
+        if (service == null) {
+            return ResponseEntity.ok(Map.of(
+                "enabled", false,
+                "message", "未开启，设置 app.user.write-behind.enabled=true 启用"
+            ));
+        }
+        return ResponseEntity.ok(service.getStatus());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接舱壁（Bulkhead）
+ * <p>
+ * 在 getConnection 之前用一个公平信号量限制同时持有连接的线程数。虚拟线程几乎没有创建成本，
+ * 成千上万个请求会同时涌向只有 10 个连接的池；有了舱壁，超出的请求在信号量上排队，
+ * 等待超过 acquireTimeout 则快速失败，而不是全部堆积在 Hikari 的等待队列里。
+ * 许可在连接 close() 时归还。
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final ResizableSemaphore permits;
+    private volatile int maxConcurrent;
+    private final long acquireTimeoutMillis;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public BulkheadDataSource(DataSource targetDataSource, int maxConcurrent, long acquireTimeoutMillis) {
+        super(targetDataSource);
+        this.permits = new ResizableSemaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        try {
+            return releaseOnClose(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermit();
+        try {
+            return releaseOnClose(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejectedCount.increment();
+                throw new SQLTransientConnectionException(
+                        "Connection bulkhead is full, waited " + acquireTimeoutMillis + "ms (maxConcurrent=" + maxConcurrent + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for connection bulkhead", e);
+        }
+    }
+
+    /**
+     * 包装连接，使其 close() 时只归还一次许可
+     */
+    private Connection releaseOnClose(Connection target) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return JdbcInvocationHandler.newProxy(Connection.class, new JdbcInvocationHandler(target) {
+            @Override
+            protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                    try {
+                        return proceed(method, args);
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                }
+                return proceed(method, args);
+            }
+        });
+    }
+
+    /**
+     * 调整许可总数，与连接池 maximumPoolSize 保持一致。
+     * 缩小时已借出的许可不受影响，归还后才会真正生效。
+     */
+    public synchronized void resize(int newMaxConcurrent) {
+        int delta = newMaxConcurrent - maxConcurrent;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        maxConcurrent = newMaxConcurrent;
+    }
+
+    /**
+     * 公开 reducePermits 的公平信号量
+     */
+    private static class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    // --- 监控指标 ---
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getAvailablePermits() { return permits.availablePermits(); }
+    public int getQueueLength() { return permits.getQueueLength(); }
+    public long getRejectedCount() { return rejectedCount.sum(); }
+}
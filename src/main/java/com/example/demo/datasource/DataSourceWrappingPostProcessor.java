@@ -0,0 +1,54 @@
+package com.example.demo.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+/**
+ * 在 DataSource Bean 初始化完成后为其套上一层包装
+ * <p>
+ * 多个包装按 order 从小到大依次套上，order 越小越靠近连接池，越大越靠近调用方。
+ */
+public class DataSourceWrappingPostProcessor implements BeanPostProcessor, Ordered {
+
+    /** 连接舱壁：限制并发借用 */
+    public static final int BULKHEAD_ORDER = 100;
+    /** 连接获取 / SQL 执行计时：放在舱壁外层，获取耗时包含在舱壁上排队的时间 */
+    public static final int INSTRUMENTATION_ORDER = 200;
+    /** 连接泄漏检测：放在最外层，记录调用方拿到的连接；强制回收时的 close 经过计时和舱壁，统计和许可都能归还 */
+    public static final int LEAK_DETECTION_ORDER = 300;
+
+    private final int order;
+    private final Class<? extends DataSource> wrapperType;
+    private final Function<DataSource, DataSource> wrapper;
+
+    public DataSourceWrappingPostProcessor(int order, Class<? extends DataSource> wrapperType, Function<DataSource, DataSource> wrapper) {
+        this.order = order;
+        this.wrapperType = wrapperType;
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !isWrapped(dataSource)) {
+            return wrapper.apply(dataSource);
+        }
+        return bean;
+    }
+
+    private boolean isWrapped(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(wrapperType);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.temporal.Temporal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JDBC 计时包装
+ * <p>
+ * 分别记录 getConnection 的等待耗时和每条 SQL 的执行耗时（连同 PreparedStatement 绑定的参数），并通知所有 JdbcEventListener。
+ * 两者分开统计，才能区分一次慢请求到底是“等连接”（连接池饥饿）还是“SQL 本身慢”。
+ * 连接归还时同样通知监听器，附带连接被持有的时长和借出时监听器返回的对象，监听器据此按连接而不是按线程跟踪借出状态。
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    /** 超过该长度的字符串参数不保留原值 */
+    private static final int MAX_CAPTURED_STRING_LENGTH = 256;
+
+    private final List<JdbcEventListener> listeners;
+
+    public InstrumentedDataSource(DataSource targetDataSource, List<JdbcEventListener> listeners) {
+        super(targetDataSource);
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection acquire(ConnectionSource source) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = source.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            fireConnectionAcquired(System.nanoTime() - start, false);
+            throw e;
+        }
+        return instrument(connection, fireConnectionAcquired(System.nanoTime() - start, true));
+    }
+
+    /**
+     * attachments 为各监听器在借出时返回的对象，按监听器顺序保存在代理上，归还时传回
+     */
+    private Connection instrument(Connection target, Object[] attachments) {
+        long acquiredAt = System.nanoTime();
+        return JdbcInvocationHandler.newProxy(Connection.class, new JdbcInvocationHandler(target) {
+            private final AtomicBoolean closed = new AtomicBoolean(); // 泄漏回收线程可能与业务线程同时 close
+
+            @Override
+            protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("close".equals(method.getName())) {
+                    try {
+                        return proceed(method, args);
+                    } finally {
+                        if (closed.compareAndSet(false, true)) {
+                            fireConnectionReleased(System.nanoTime() - acquiredAt, attachments);
+                        }
+                    }
+                }
+                Object result = proceed(method, args);
+                return switch (method.getName()) {
+                    case "createStatement" -> instrument((Statement) result, Statement.class, null, (Connection) proxy);
+                    case "prepareStatement" -> instrument((PreparedStatement) result, PreparedStatement.class, (String) args[0], (Connection) proxy);
+                    case "prepareCall" -> instrument((CallableStatement) result, CallableStatement.class, (String) args[0], (Connection) proxy);
+                    default -> result;
+                };
+            }
+        });
+    }
+
+    private <T extends Statement> T instrument(T target, Class<T> type, String preparedSql, Connection connectionProxy) {
+        return JdbcInvocationHandler.newProxy(type, new JdbcInvocationHandler(target) {
+            private String batchSql;
+            private Object[] parameters = NO_PARAMETERS;
+            private int parameterCount;
+
+            @Override
+            protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("getConnection".equals(name)) {
+                    return connectionProxy;
+                }
+                if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    bindParameter(index, "setNull".equals(name) ? null : args[1]);
+                } else if ("clearParameters".equals(name)) {
+                    parameters = NO_PARAMETERS;
+                    parameterCount = 0;
+                } else if ("addBatch".equals(name) && args != null && args.length == 1 && batchSql == null) {
+                    batchSql = (String) args[0];
+                }
+                if (!name.startsWith("execute")) {
+                    return proceed(method, args);
+                }
+
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String s ? s
+                        : batchSql;
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    Object result = proceed(method, args);
+                    success = true;
+                    return result;
+                } finally {
+                    fireStatementExecuted(new StatementExecution(sql, Arrays.asList(Arrays.copyOf(parameters, parameterCount)), System.nanoTime() - start, success));
+                    if ("executeBatch".equals(name)) {
+                        batchSql = null;
+                    }
+                }
+            }
+
+            private void bindParameter(int index, Object value) {
+                if (index > parameters.length) {
+                    parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+                }
+                parameters[index - 1] = capture(value);
+                parameterCount = Math.max(parameterCount, index);
+            }
+        });
+    }
+
+    /**
+     * 只保留小的标量参数；LOB、流、字节数组和过长的字符串（如文章正文）换成类型标记，不把业务内容留在监控数据里
+     */
+    private static Object capture(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Enum<?>
+                || value instanceof Temporal || value instanceof java.util.Date) {
+            return value;
+        }
+        if (value instanceof String s && s.length() <= MAX_CAPTURED_STRING_LENGTH) {
+            return s;
+        }
+        return new StatementExecution.OmittedParameter(value.getClass().getSimpleName());
+    }
+
+    private Object[] fireConnectionAcquired(long elapsedNanos, boolean success) {
+        Object[] attachments = new Object[listeners.size()];
+        for (int i = 0; i < attachments.length; i++) {
+            attachments[i] = listeners.get(i).onConnectionAcquired(elapsedNanos, success);
+        }
+        return attachments;
+    }
+
+    private void fireConnectionReleased(long heldNanos, Object[] attachments) {
+        for (int i = 0; i < attachments.length; i++) {
+            listeners.get(i).onConnectionReleased(heldNanos, attachments[i]);
+        }
+    }
+
+    private void fireStatementExecuted(StatementExecution execution) {
+        for (JdbcEventListener listener : listeners) {
+            listener.onStatementExecuted(execution);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.datasource;
+
+/**
+ * InstrumentedDataSource 的事件回调
+ * <p>
+ * 回调在业务线程上同步执行，实现必须足够轻量且不能抛出异常。
+ */
+public interface JdbcEventListener {
+
+    /**
+     * getConnection 返回（或失败）之后调用
+     *
+     * @param elapsedNanos 等待连接的耗时
+     * @param success      是否成功拿到连接
+     * @return 与该连接关联的对象，保存在连接代理上，归还时原样传给 onConnectionReleased；不需要时返回 null
+     */
+    default Object onConnectionAcquired(long elapsedNanos, boolean success) {
+        return null;
+    }
+
+    /**
+     * 连接第一次 close（归还连接池）之后调用。泄漏的连接被回收时，调用发生在回收线程上而不是借出连接的线程上
+     *
+     * @param heldNanos  从拿到连接到归还的耗时
+     * @param attachment 借出时 onConnectionAcquired 的返回值
+     */
+    default void onConnectionReleased(long heldNanos, Object attachment) {
+    }
+
+    /**
+     * 一次 execute / executeQuery / executeUpdate / executeBatch 完成（或失败）之后调用
+     */
+    default void onStatementExecuted(StatementExecution execution) {
+    }
+}
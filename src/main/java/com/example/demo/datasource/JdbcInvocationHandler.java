@@ -0,0 +1,44 @@
+package com.example.demo.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * JDBC 对象（Connection / Statement）动态代理的基类
+ * <p>
+ * equals / hashCode 按代理对象自身的身份处理，其余方法交给子类，子类通过 proceed() 调用被代理对象。
+ */
+abstract class JdbcInvocationHandler implements InvocationHandler {
+
+    protected final Object target;
+
+    protected JdbcInvocationHandler(Object target) {
+        this.target = target;
+    }
+
+    @Override
+    public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> handle(proxy, method, args);
+        };
+    }
+
+    protected abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+    protected Object proceed(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T newProxy(Class<T> iface, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler);
+    }
+}
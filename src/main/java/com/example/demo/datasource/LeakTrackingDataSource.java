@@ -0,0 +1,269 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接泄漏检测
+ * <p>
+ * 记录每个借出连接的借出时间、线程、请求路径和调用栈（只在借出时创建 Throwable，报告时才展开调用栈）。
+ * 后台线程定期检查：借出超过 threshold 的连接打印一次借出调用栈；开启 reclaim 时，超过 reclaimAfter 的连接被
+ * abort 后 close，物理连接被连接池丢弃并补充新连接，舱壁许可随 close 归还。之后泄漏方再使用这个连接会得到 SQLException。
+ * <p>
+ * 包装在最外层，调用方拿到的就是这里的代理，强制 close 会依次经过计时和舱壁的代理。
+ */
+public class LeakTrackingDataSource extends DelegatingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeakTrackingDataSource.class);
+
+    /** 报告调用栈时跳过的框架代码 */
+    private static final List<String> FRAMEWORK_PACKAGES = List.of(
+            "java.", "jdk.", "sun.", "jakarta.", "org.springframework.", "org.hibernate.", "org.apache.", "com.zaxxer.",
+            "com.sun.proxy.", "org.junit.", "com.example.demo.datasource.");
+    private static final int MAX_STACK_FRAMES = 20;
+
+    /** 所有实例共用一个检查线程，实例销毁时取消自己的检查任务并立即从队列中移除 */
+    private static final ScheduledThreadPoolExecutor REAPER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "connection-leak-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        REAPER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final Duration threshold;
+    private final boolean reclaim;
+    private final Duration reclaimAfter;
+    private final ConcurrentMap<Long, Borrowing> borrowings = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final LongAdder borrowedCount = new LongAdder();
+    private final LongAdder suspectedCount = new LongAdder();
+    private final LongAdder reclaimedCount = new LongAdder();
+    private final LeakEvent[] history;
+    private long historyCursor;
+    private final ScheduledFuture<?> checkTask;
+
+    public LeakTrackingDataSource(DataSource targetDataSource, Duration threshold, boolean reclaim, Duration reclaimAfter,
+                                  Duration checkInterval, int historySize) {
+        super(targetDataSource);
+        this.threshold = threshold;
+        this.reclaim = reclaim;
+        this.reclaimAfter = reclaimAfter;
+        this.history = new LeakEvent[Math.max(1, historySize)];
+        this.checkTask = REAPER.scheduleWithFixedDelay(this::check, checkInterval.toNanos(), checkInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection track(Connection target) {
+        Borrowing borrowing = new Borrowing(nextId.incrementAndGet(), target, System.nanoTime(), Instant.now(),
+                Thread.currentThread().getName(), currentRequest(), new Throwable("Connection borrowed here"));
+        borrowings.put(borrowing.id, borrowing);
+        borrowedCount.increment();
+        return JdbcInvocationHandler.newProxy(Connection.class, new JdbcInvocationHandler(target) {
+            @Override
+            protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("close".equals(name) && method.getParameterCount() == 0) {
+                    // 已被回收的连接由检查线程关闭过，这里什么都不做
+                    if (borrowings.remove(borrowing.id) == null) {
+                        return null;
+                    }
+                    return proceed(method, args);
+                }
+                if (borrowing.reclaimed) {
+                    if ("isClosed".equals(name)) {
+                        return true;
+                    }
+                    throw new SQLException("Connection was reclaimed by leak detection after being held for "
+                            + reclaimAfter.toSeconds() + "s; borrowed by "
+                            + (borrowing.request != null ? borrowing.request : "thread " + borrowing.thread));
+                }
+                return proceed(method, args);
+            }
+        });
+    }
+
+    private static String currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return servletAttributes.getRequest().getMethod() + " " + servletAttributes.getRequest().getRequestURI();
+        }
+        return null;
+    }
+
+    private void check() {
+        try {
+            long now = System.nanoTime();
+            for (Borrowing borrowing : borrowings.values()) {
+                long heldNanos = now - borrowing.startNanos;
+                if (!borrowing.suspected && heldNanos >= threshold.toNanos()) {
+                    borrowing.suspected = true;
+                    suspectedCount.increment();
+                    remember(new LeakEvent(Instant.now(), "suspected", borrowing.thread, borrowing.request, heldNanos / 1_000_000));
+                    logger.warn("连接疑似泄漏：已借出 {} ms，线程 {}，请求 {}", heldNanos / 1_000_000, borrowing.thread,
+                            borrowing.request, borrowing.borrowedAt);
+                }
+                if (reclaim && heldNanos >= reclaimAfter.toNanos()) {
+                    reclaim(borrowing, heldNanos);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("连接泄漏检查失败", e);
+        }
+    }
+
+    /**
+     * abort 物理连接（不等待泄漏方正在执行的 SQL），再 close 把连接池中的位置还回去
+     */
+    private void reclaim(Borrowing borrowing, long heldNanos) {
+        if (borrowings.remove(borrowing.id) == null) {
+            return; // 检查期间已被正常归还
+        }
+        borrowing.reclaimed = true;
+        try {
+            borrowing.target.abort(Runnable::run);
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("abort 泄漏连接失败: {}", e.getMessage());
+        }
+        try {
+            borrowing.target.close();
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("关闭泄漏连接失败: {}", e.getMessage());
+        }
+        reclaimedCount.increment();
+        remember(new LeakEvent(Instant.now(), "reclaimed", borrowing.thread, borrowing.request, heldNanos / 1_000_000));
+        logger.warn("已强制回收借出 {} ms 未归还的连接，线程 {}，请求 {}", heldNanos / 1_000_000, borrowing.thread,
+                borrowing.request, borrowing.borrowedAt);
+    }
+
+    /**
+     * 停止检查（上下文关闭或刷新时），否则检查任务一直引用这个实例和它跟踪的连接
+     */
+    @Override
+    public void destroy() {
+        checkTask.cancel(false);
+    }
+
+    private synchronized void remember(LeakEvent event) {
+        history[(int) (historyCursor++ % history.length)] = event;
+    }
+
+    private synchronized List<LeakEvent> recent() {
+        List<LeakEvent> events = new ArrayList<>(history.length);
+        for (long i = historyCursor - 1; i >= 0 && i >= historyCursor - history.length; i--) {
+            events.add(history[(int) (i % history.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * 借出时的调用栈，只保留业务代码的栈帧
+     */
+    private static List<String> applicationFrames(Throwable borrowedAt) {
+        return Arrays.stream(borrowedAt.getStackTrace())
+                .filter(frame -> FRAMEWORK_PACKAGES.stream().noneMatch(frame.getClassName()::startsWith))
+                .limit(MAX_STACK_FRAMES)
+                .map(StackTraceElement::toString)
+                .toList();
+    }
+
+    /**
+     * 当前借出的连接（按持有时间从长到短）、累计次数和最近的疑似泄漏 / 回收记录
+     */
+    public Map<String, Object> getStatus() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> live = borrowings.values().stream()
+                .sorted(Comparator.comparingLong(borrowing -> borrowing.startNanos))
+                .map(borrowing -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("id", borrowing.id);
+                    entry.put("heldMillis", (now - borrowing.startNanos) / 1_000_000);
+                    entry.put("borrowedAt", borrowing.borrowedAtTime);
+                    entry.put("thread", borrowing.thread);
+                    entry.put("request", borrowing.request);
+                    entry.put("suspected", borrowing.suspected);
+                    entry.put("stack", applicationFrames(borrowing.borrowedAt));
+                    return entry;
+                })
+                .toList();
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("threshold", threshold.toString());
+        config.put("reclaim", reclaim);
+        config.put("reclaimAfter", reclaimAfter.toString());
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("config", config);
+        status.put("borrowed", live.size());
+        status.put("totalBorrowed", borrowedCount.sum());
+        status.put("suspectedCount", suspectedCount.sum());
+        status.put("reclaimedCount", reclaimedCount.sum());
+        status.put("live", live);
+        status.put("recent", recent());
+        return status;
+    }
+
+    private static final class Borrowing {
+        final long id;
+        final Connection target;
+        final long startNanos;
+        final Instant borrowedAtTime;
+        final String thread;
+        final String request;
+        final Throwable borrowedAt;
+        volatile boolean suspected;
+        volatile boolean reclaimed;
+
+        Borrowing(long id, Connection target, long startNanos, Instant borrowedAtTime, String thread, String request, Throwable borrowedAt) {
+            this.id = id;
+            this.target = target;
+            this.startNanos = startNanos;
+            this.borrowedAtTime = borrowedAtTime;
+            this.thread = thread;
+            this.request = request;
+            this.borrowedAt = borrowedAt;
+        }
+    }
+
+    /**
+     * 一次疑似泄漏或强制回收，type 为 suspected / reclaimed
+     */
+    public record LeakEvent(Instant at, String type, String thread, String request, long heldMillis) {
+    }
+}
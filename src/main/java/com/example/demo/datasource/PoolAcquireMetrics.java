@@ -0,0 +1,67 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hikari 连接获取指标
+ * <p>
+ * 通过 Hikari 自带的 MetricsTrackerFactory 扩展点累计“从池中借出连接”的等待时间、超时次数和连接占用时间。
+ * 只做累加，调用方通过两次 snapshot() 的差值得到某个时间窗口内的平均值。
+ */
+public class PoolAcquireMetrics implements MetricsTrackerFactory {
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageCount.increment();
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+            }
+        };
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(acquireCount.sum(), acquireNanos.sum(), timeoutCount.sum(), usageCount.sum(), usageMillis.sum());
+    }
+
+    /**
+     * 某一时刻的累计值
+     */
+    public record Snapshot(long acquireCount, long acquireNanos, long timeoutCount, long usageCount, long usageMillis) {
+
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+        /** 与更早的快照相比，窗口内的平均获取连接耗时（毫秒） */
+        public double avgAcquireMillisSince(Snapshot previous) {
+            long count = acquireCount - previous.acquireCount;
+            return count == 0 ? 0 : (acquireNanos - previous.acquireNanos) / 1_000_000.0 / count;
+        }
+
+        /** 与更早的快照相比，窗口内的获取连接超时次数 */
+        public long timeoutsSince(Snapshot previous) {
+            return timeoutCount - previous.timeoutCount;
+        }
+    }
+}
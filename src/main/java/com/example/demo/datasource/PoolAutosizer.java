@@ -0,0 +1,146 @@
+package com.example.demo.datasource;
+
+import com.example.demo.config.AutosizeProperties;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 连接池自适应扩缩容
+ * <p>
+ * 按固定间隔采样 HikariPoolMXBean 和 PoolAcquireMetrics：
+ * <ul>
+ *     <li>有线程在排队等待连接（连接池或舱壁）、出现获取超时、或窗口内平均获取耗时超过阈值 —— 扩容 step 个连接</li>
+ *     <li>连续 shrinkAfterSamples 次无人排队且使用率低于 shrinkUtilization —— 缩容 step 个连接</li>
+ * </ul>
+ * 通过 HikariConfigMXBean 在运行时修改 maximumPoolSize / minimumIdle，始终限制在 [minPoolSize, maxPoolSize] 内。
+ */
+public class PoolAutosizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolAutosizer.class);
+
+    private final DataSource dataSource;
+    private final AutosizeProperties properties;
+    private final int configuredMinimumIdle;
+    private final Deque<ResizeDecision> history = new ArrayDeque<>();
+
+    private PoolAcquireMetrics.Snapshot previousSnapshot = PoolAcquireMetrics.Snapshot.EMPTY;
+    private int idleSamples;
+    private volatile Sample lastSample;
+
+    public PoolAutosizer(DataSource dataSource, AutosizeProperties properties) throws SQLException {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.configuredMinimumIdle = dataSource.unwrap(HikariDataSource.class).getMinimumIdle();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.autosize.interval}")
+    public void sample() throws SQLException {
+        HikariDataSource hikariDS = dataSource.unwrap(HikariDataSource.class);
+        HikariPoolMXBean poolBean = hikariDS.getHikariPoolMXBean();
+        if (poolBean == null) {
+            return; // 连接池尚未启动
+        }
+        HikariConfigMXBean configBean = hikariDS.getHikariConfigMXBean();
+
+        PoolAcquireMetrics.Snapshot snapshot = hikariDS.getMetricsTrackerFactory() instanceof PoolAcquireMetrics metrics
+                ? metrics.snapshot() : PoolAcquireMetrics.Snapshot.EMPTY;
+        double avgAcquireMillis = snapshot.avgAcquireMillisSince(previousSnapshot);
+        long timeouts = snapshot.timeoutsSince(previousSnapshot);
+        previousSnapshot = snapshot;
+
+        int active = poolBean.getActiveConnections();
+        // 开启舱壁时，排队的线程等在信号量上而不是连接池里，两者都计入
+        int awaiting = poolBean.getThreadsAwaitingConnection();
+        if (dataSource.isWrapperFor(BulkheadDataSource.class)) {
+            awaiting += dataSource.unwrap(BulkheadDataSource.class).getQueueLength();
+        }
+        int currentMax = configBean.getMaximumPoolSize();
+        double utilization = (double) active / currentMax;
+        Sample sample = new Sample(Instant.now(), active, poolBean.getIdleConnections(), poolBean.getTotalConnections(),
+                awaiting, currentMax, configBean.getMinimumIdle(), avgAcquireMillis, timeouts);
+        lastSample = sample;
+
+        String reason = null;
+        int newMax = currentMax;
+        if (awaiting > 0 || timeouts > 0 || avgAcquireMillis > properties.growAcquireLatency().toMillis()) {
+            idleSamples = 0;
+            newMax = Math.min(currentMax + properties.step(), properties.maxPoolSize());
+            reason = String.format("awaiting=%d, timeouts=%d, avgAcquire=%.2fms", awaiting, timeouts, avgAcquireMillis);
+        } else if (utilization < properties.shrinkUtilization()) {
+            if (++idleSamples >= properties.shrinkAfterSamples()) {
+                idleSamples = 0;
+                newMax = Math.max(currentMax - properties.step(), properties.minPoolSize());
+                reason = String.format("utilization=%.2f%% for %d samples", utilization * 100, properties.shrinkAfterSamples());
+            }
+        } else {
+            idleSamples = 0;
+        }
+
+        if (newMax != currentMax) {
+            resize(hikariDS, configBean, sample, newMax, reason);
+        }
+    }
+
+    private void resize(HikariDataSource hikariDS, HikariConfigMXBean configBean, Sample sample, int newMax, String reason) throws SQLException {
+        // 保留与当前活跃连接数相当的空闲连接，扩容后新连接可以立即被借出；缩容时不低于原始配置
+        int newMinIdle = Math.min(Math.max(sample.active(), configuredMinimumIdle), newMax);
+        if (newMax > sample.maximumPoolSize()) {
+            configBean.setMaximumPoolSize(newMax);
+            configBean.setMinimumIdle(newMinIdle);
+        } else {
+            configBean.setMinimumIdle(newMinIdle);
+            configBean.setMaximumPoolSize(newMax);
+        }
+        if (dataSource.isWrapperFor(BulkheadDataSource.class)) {
+            dataSource.unwrap(BulkheadDataSource.class).resize(newMax);
+        }
+
+        ResizeDecision decision = new ResizeDecision(sample.timestamp(), newMax > sample.maximumPoolSize() ? "GROW" : "SHRINK",
+                reason, sample.maximumPoolSize(), newMax, sample.minimumIdle(), newMinIdle, sample);
+        logger.info("连接池 {} 调整: maximumPoolSize {} -> {}, minimumIdle {} -> {} ({})", hikariDS.getPoolName(),
+                decision.oldMaximumPoolSize(), newMax, decision.oldMinimumIdle(), newMinIdle, reason);
+        synchronized (history) {
+            history.addFirst(decision);
+            while (history.size() > properties.historySize()) {
+                history.removeLast();
+            }
+        }
+    }
+
+    public AutosizeProperties getProperties() { return properties; }
+    public Sample getLastSample() { return lastSample; }
+
+    /** 最近的扩缩容决策，最新的在前 */
+    public List<ResizeDecision> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * 一次采样结果
+     */
+    public record Sample(Instant timestamp, int active, int idle, int total, int threadsAwaiting,
+                         int maximumPoolSize, int minimumIdle, double avgAcquireMillis, long acquireTimeouts) {
+    }
+
+    /**
+     * 一次扩缩容决策
+     */
+    public record ResizeDecision(Instant timestamp, String action, String reason,
+                                 int oldMaximumPoolSize, int newMaximumPoolSize,
+                                 int oldMinimumIdle, int newMinimumIdle, Sample sample) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离数据源：只读事务使用从库连接池，其余使用主库连接池
+ * <p>
+ * JpaTransactionManager 在开启事务时就向 DataSource 要连接，此时还没有设置事务的只读标记，
+ * 所以先交给 LazyConnectionDataSourceProxy 返回一个连接代理：Spring 随后对它调用 setReadOnly(true)，
+ * 执行第一条 SQL 时才真正借出连接，只读的借自从库，否则借自主库。没有执行 SQL 的事务不会占用任何连接。
+ * <p>
+ * 在只读事务中直接调用 DataSource#getConnection（如 SlowQueryService）时不会再有人设置 setReadOnly，
+ * 这里按当前事务的只读属性直接路由。
+ * <p>
+ * 从库延迟超过阈值或连接失败时，只读连接改从主库借出（ReplicaLagMonitor）。
+ * 主库数据源仍是 unwrap 的目标，/api/monitor/pool-status、PoolAutosizer 等按原样观测主库连接池。
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadDataSource readDataSource;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+    private final LongAdder replicaFailures = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        super(primary);
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.readDataSource = new ReadDataSource();
+        setReadOnlyDataSource(readDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return readDataSource.getConnection();
+        }
+        return super.getConnection();
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(lagMonitor.getStatus());
+        status.put("replicaReads", replicaReads.sum());
+        status.put("fallbackReads", fallbackReads.sum());
+        status.put("replicaFailures", replicaFailures.sum());
+        return status;
+    }
+
+    /**
+     * 只读连接的来源：从库可用时借自从库，连接失败则记为不可用并改借主库
+     */
+    private final class ReadDataSource extends DelegatingDataSource {
+
+        ReadDataSource() {
+            super(replica);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (lagMonitor.isReplicaUsable()) {
+                try {
+                    Connection connection = replica.getConnection();
+                    replicaReads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replicaFailures.increment();
+                    lagMonitor.markUnavailable(e.getMessage());
+                }
+            }
+            fallbackReads.increment();
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
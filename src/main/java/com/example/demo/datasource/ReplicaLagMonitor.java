@@ -0,0 +1,112 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于心跳表的主从复制延迟检测
+ * <p>
+ * 每轮先读从库 replication_heartbeat 中的心跳，再向主库写入新的心跳（当前时间戳）。
+ * 从库读到的心跳与上一轮写入主库的心跳之差即为复制延迟，精度为一个检测间隔：
+ * 从库已经应用了上一轮的心跳时延迟为 0。延迟超过 maxLag、或从库不可达时，只读事务回退到主库。
+ * <p>
+ * 检测依赖心跳表随主库复制到从库，与 MySQL 的复制方式和账号权限（SHOW REPLICA STATUS）无关。
+ * 本地两个 H2 实例之间没有复制，从库的心跳停留在迁移时的初始值，只读事务会一直回退主库，
+ * 测试中通过直接写从库心跳来模拟复制追上或落后。
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String READ_HEARTBEAT = "SELECT beat_millis FROM replication_heartbeat WHERE id = 1";
+    private static final String WRITE_HEARTBEAT = "UPDATE replication_heartbeat SET beat_millis = ? WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    private long lastWrittenBeat = -1; // 只在检测线程上读写
+    private volatile boolean replicaUsable;
+    private volatile long lagMillis = -1;
+    private volatile String lastError;
+    private volatile Instant lastCheckedAt;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, Duration maxLag) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLag.toMillis();
+    }
+
+    /**
+     * 启动完成（Flyway 迁移之后）立即检测一次，在此之前只读事务都走主库
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        check();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval}")
+    public synchronized void check() {
+        boolean usable;
+        try {
+            Long replicaBeat = replica.queryForObject(READ_HEARTBEAT, Long.class);
+            if (lastWrittenBeat < 0) {
+                lastWrittenBeat = primary.queryForObject(READ_HEARTBEAT, Long.class);
+            }
+            lagMillis = Math.max(0, lastWrittenBeat - replicaBeat);
+            usable = lagMillis <= maxLagMillis;
+            lastError = null;
+        } catch (RuntimeException e) {
+            usable = false;
+            lastError = e.getMessage();
+        }
+        try {
+            long beat = System.currentTimeMillis();
+            primary.update(WRITE_HEARTBEAT, beat);
+            lastWrittenBeat = beat;
+        } catch (RuntimeException e) {
+            logger.warn("写入主库心跳失败: {}", e.getMessage());
+        }
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("从库延迟 {} ms，只读事务恢复路由到从库", lagMillis);
+            } else {
+                logger.warn("从库不可用（延迟 {} ms，错误: {}），只读事务回退主库", lagMillis, lastError);
+            }
+        }
+        replicaUsable = usable;
+        lastCheckedAt = Instant.now();
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * 从库连接失败时由路由数据源调用，立即停止路由到从库，直到下一轮检测恢复
+     */
+    public void markUnavailable(String error) {
+        replicaUsable = false;
+        lastError = error;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("replicaUsable", replicaUsable);
+        status.put("lagMillis", lagMillis);
+        status.put("maxLagMillis", maxLagMillis);
+        status.put("lastError", lastError);
+        status.put("lastCheckedAt", lastCheckedAt);
+        return status;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.datasource;
+
+import java.util.List;
+
+/**
+ * 一次 SQL 执行的信息
+ *
+ * @param sql          执行的 SQL（PreparedStatement 为预编译时的 SQL）
+ * @param parameters   PreparedStatement 绑定的参数，按下标从 1 开始依次排列；普通 Statement 为空列表。
+ *                     LOB、流、字节数组和过长的字符串不保留原值，以 OmittedParameter 代替
+ * @param elapsedNanos 执行耗时，不包含之后遍历 ResultSet 的时间
+ * @param success      是否执行成功
+ */
+public record StatementExecution(String sql, List<Object> parameters, long elapsedNanos, boolean success) {
+
+    /**
+     * 未保留原值的参数，只记录类型
+     */
+    public record OmittedParameter(String type) {
+
+        @Override
+        public String toString() {
+            return "<" + type + ">";
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * DTO for a keyset (cursor) paginated result.
+ * The client passes nextCursor back as the cursor parameter to fetch the following page.
+ */
+public record CursorPage<T>(
+        List<T> items,
+        Integer nextCursor, // null when there is no next page
+        boolean hasMore
+) {
+}
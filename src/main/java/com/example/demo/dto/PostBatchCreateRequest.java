@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO for receiving bulk post ingestion requests.
+ * Posts are grouped by userId by the service and each user's posts are inserted as one JDBC batch.
+ */
+public record PostBatchCreateRequest(
+        @NotEmpty(message = "Posts cannot be empty")
+        @Size(max = 5000, message = "At most 5000 posts per batch")
+        List<@Valid PostCreateRequest> posts
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * DTO for returning the per-user outcome of a bulk post ingestion.
+ */
+public record PostBatchCreateResponse(
+        int total,
+        int created,
+        int failed,
+        List<PostBatchUserResult> users
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+/**
+ * DTO for the outcome of one user's posts in a bulk post ingestion.
+ */
+public record PostBatchUserResult(
+        int userId,
+        boolean success,
+        int code, // 200 on success, otherwise an ErrorCode code
+        String message,
+        int posts, // Number of posts submitted for this user
+        int created
+) {
+}
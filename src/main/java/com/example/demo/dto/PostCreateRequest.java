@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for a single post in a bulk post ingestion request.
+ */
+public record PostCreateRequest(
+        @NotNull(message = "User id cannot be null")
+        Integer userId,
+
+        @NotBlank(message = "Title cannot be blank")
+        @Size(max = 255, message = "Title must be at most 255 characters")
+        String title,
+
+        String content
+) {
+}
@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output formats supported by the streaming post export.
+ */
+public enum PostExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8));
+
+    private final MediaType mediaType;
+
+    PostExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Resolves a format from a case-insensitive request parameter.
+     */
+    public static PostExportFormat from(String value) {
+        for (PostExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BusinessException(ErrorCode.VALIDATION_ERROR);
+    }
+}
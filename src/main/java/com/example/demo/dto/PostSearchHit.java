@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for one ranked post search result.
+ */
+@Schema(description = "文章检索结果")
+public record PostSearchHit(
+        @Schema(description = "文章ID", example = "1")
+        Integer id,
+
+        @Schema(description = "文章标题", example = "Hello")
+        String title,
+
+        @Schema(description = "作者用户名", example = "Hanzhi")
+        String authorName,
+
+        @Schema(description = "BM25 相关度", example = "3.52")
+        float score
+) {
+}
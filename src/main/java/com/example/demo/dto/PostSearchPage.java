@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * DTO for a page of ranked post search results.
+ * The client passes nextCursor back as the cursor parameter to fetch the following page.
+ */
+public record PostSearchPage(
+        List<PostSearchHit> items,
+        String nextCursor, // "<score>_<id>" of the last item, null when there is no next page
+        boolean hasMore,
+        int totalHits
+) {
+}
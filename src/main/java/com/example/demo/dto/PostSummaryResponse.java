@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for a post listed under its author, without the (potentially large) content.
+ */
+@Schema(description = "文章摘要")
+public record PostSummaryResponse(
+        @Schema(description = "文章ID", example = "1")
+        Integer id,
+
+        @Schema(description = "文章标题", example = "Hello")
+        String title
+) {
+}
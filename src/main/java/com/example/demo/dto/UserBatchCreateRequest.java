@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO for receiving batch user creation requests.
+ * Each item is validated individually by the service so that one bad item does not reject the whole batch.
+ */
+public record UserBatchCreateRequest(
+        @NotEmpty(message = "Users cannot be empty")
+        @Size(max = 5000, message = "At most 5000 users per batch")
+        List<UserCreateRequest> users
+) {
+}
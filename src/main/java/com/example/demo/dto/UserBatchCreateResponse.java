@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * DTO for returning the per-item outcome of a batch user creation.
+ */
+public record UserBatchCreateResponse(
+        int total,
+        int created,
+        int failed,
+        List<UserBatchItemResult> results
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+/**
+ * DTO for the result of a single item in a batch user creation.
+ */
+public record UserBatchItemResult(
+        int index, // Position of the item in the request list
+        boolean success,
+        int code, // 200 on success, otherwise an ErrorCode code
+        String message,
+        UserResponse user // null when the item failed
+) {
+}
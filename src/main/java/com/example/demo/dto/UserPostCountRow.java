@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+/**
+ * A DTO to hold one row of the per-user post count query.
+ */
+public record UserPostCountRow(
+        Integer userId,
+        Long postCount
+) {
+}
@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+/**
+ * A DTO to hold one row of the per-user limited post query: the post plus its author's total post count.
+ */
+public record UserPostSummaryRow(
+        Integer userId,
+        Long userPostCount,
+        Integer postId,
+        String title
+) {
+}
@@ -17,6 +17,9 @@ public record UserResponse(
         String name,
 
         @Schema(description = "用户角色", example = "Android Dev")
-        String role
+        String role,
+
+        @Schema(description = "乐观锁版本号，更新时作为 If-Match 传回", example = "0")
+        Long version
 ) {
 }
\ No newline at end of file
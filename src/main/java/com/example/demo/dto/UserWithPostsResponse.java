@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for a user together with their most recent posts.
+ */
+@Schema(description = "用户及其最新文章")
+public record UserWithPostsResponse(
+        @Schema(description = "用户唯一ID", example = "1")
+        Integer id,
+
+        @JsonProperty("user_name")
+        @Schema(description = "用户名", example = "Hanzhi")
+        String name,
+
+        @Schema(description = "用户角色", example = "Android Dev")
+        String role,
+
+        @Schema(description = "该用户的文章总数", example = "12")
+        long postCount,
+
+        @Schema(description = "按ID倒序的最新若干篇文章")
+        List<PostSummaryResponse> posts
+) {
+}
@@ -4,6 +4,7 @@ import com.example.demo.dto.UserCreateRequest;
 import com.example.demo.dto.UserResponse;
 import com.example.demo.model.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
@@ -14,6 +15,9 @@ public interface UserMapper {
      * @param request The source DTO.
      * @return The mapped User entity.
      */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true) // assigned by Hibernate on insert
+    @Mapping(target = "posts", ignore = true)
     User toEntity(UserCreateRequest request);
 
     /**
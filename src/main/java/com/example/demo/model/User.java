@@ -1,19 +1,31 @@
 package com.example.demo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User {
+    /** 二级缓存区域名，对应 ehcache.xml 中的 cache alias */
+    public static final String CACHE_REGION = "user";
+
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
     private String name;
     private String role;
 
+    // 乐观锁版本号：Hibernate 更新时生成 UPDATE ... WHERE id = ? AND version = ?，并在成功后加一
+    @Version
+    private Long version;
+
     // 一对多关系：一个 User 可以有多篇 Post
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Post> posts = new ArrayList<>();
@@ -53,6 +65,14 @@ public class User {
         this.role = role;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<Post> getPosts() {
         return posts;
     }
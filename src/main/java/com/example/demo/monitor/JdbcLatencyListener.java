@@ -0,0 +1,39 @@
+package com.example.demo.monitor;
+
+import com.example.demo.datasource.JdbcEventListener;
+import com.example.demo.datasource.StatementExecution;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把连接获取和 SQL 执行耗时写入直方图，同时累加到当前请求上
+ */
+@Component
+public class JdbcLatencyListener implements JdbcEventListener {
+
+    private final LatencyHistograms histograms;
+
+    public JdbcLatencyListener(LatencyHistograms histograms) {
+        this.histograms = histograms;
+    }
+
+    @Override
+    public Object onConnectionAcquired(long elapsedNanos, boolean success) {
+        histograms.record(LatencyHistograms.JDBC, success ? "connectionAcquire" : "connectionAcquireFailed", elapsedNanos);
+        RequestTimings timings = RequestTimings.current();
+        if (timings != null) {
+            timings.connectionAcquireNanos += elapsedNanos;
+            timings.connectionAcquireCount++;
+        }
+        return null;
+    }
+
+    @Override
+    public void onStatementExecuted(StatementExecution execution) {
+        histograms.record(LatencyHistograms.JDBC, execution.success() ? "statementExecute" : "statementExecuteFailed", execution.elapsedNanos());
+        RequestTimings timings = RequestTimings.current();
+        if (timings != null) {
+            timings.statementExecuteNanos += execution.elapsedNanos();
+            timings.statementCount++;
+        }
+    }
+}
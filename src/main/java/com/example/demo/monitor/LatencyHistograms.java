@@ -0,0 +1,77 @@
+package com.example.demo.monitor;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 延迟直方图注册表
+ * <p>
+ * 按 “分类 -> 名称” 维护 HdrHistogram（微秒精度，3 位有效数字，自动扩容），
+ * 记录为无锁操作，可以放在每个请求 / 每条 SQL 的热路径上。
+ */
+@Component
+public class LatencyHistograms {
+
+    /** 每个 Controller 映射的请求总耗时，名称形如 "GET /user/{id}" */
+    public static final String HTTP = "http";
+    /** 每个 Controller 映射在一次请求中等待数据库连接的总耗时 */
+    public static final String HTTP_CONNECTION_ACQUIRE = "http.connectionAcquire";
+    /** 每个 Controller 映射在一次请求中执行 SQL 的总耗时 */
+    public static final String HTTP_STATEMENT_EXECUTE = "http.statementExecute";
+    /** 每个 Repository 方法的耗时，名称形如 "UserRepository.findById" */
+    public static final String REPOSITORY = "repository";
+    /** 单次 getConnection / 单条 SQL 的耗时 */
+    public static final String JDBC = "jdbc";
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms = new ConcurrentHashMap<>();
+
+    public void record(String category, String name, long elapsedNanos) {
+        histograms.computeIfAbsent(category, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, k -> new ConcurrentHistogram(3))
+                .recordValue(Math.max(1, elapsedNanos / 1_000));
+    }
+
+    /**
+     * 所有直方图的百分位快照，按分类和名称排序
+     */
+    public Map<String, Map<String, LatencyStats>> snapshot() {
+        Map<String, Map<String, LatencyStats>> result = new TreeMap<>();
+        histograms.forEach((category, byName) -> {
+            Map<String, LatencyStats> stats = new TreeMap<>();
+            byName.forEach((name, histogram) -> stats.put(name, LatencyStats.of(histogram.copy())));
+            result.put(category, stats);
+        });
+        return result;
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * 单个直方图的统计结果，耗时单位为毫秒
+     */
+    public record LatencyStats(long count, double mean, double p50, double p90, double p99, double p999, double max) {
+
+        public static LatencyStats of(Histogram histogram) {
+            return new LatencyStats(
+                    histogram.getTotalCount(),
+                    toMillis(histogram.getMean()),
+                    toMillis(histogram.getValueAtPercentile(50)),
+                    toMillis(histogram.getValueAtPercentile(90)),
+                    toMillis(histogram.getValueAtPercentile(99)),
+                    toMillis(histogram.getValueAtPercentile(99.9)),
+                    toMillis(histogram.getMaxValue()));
+        }
+
+        private static double toMillis(double micros) {
+            return Math.round(micros) / 1_000.0;
+        }
+    }
+}
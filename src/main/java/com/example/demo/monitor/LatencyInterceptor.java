@@ -0,0 +1,58 @@
+package com.example.demo.monitor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 按 Controller 映射记录请求耗时，以及请求内等待连接、执行 SQL 的耗时
+ */
+@Component
+public class LatencyInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = LatencyInterceptor.class.getName() + ".start";
+
+    private final LatencyHistograms histograms;
+
+    public LatencyInterceptor(LatencyHistograms histograms) {
+        this.histograms = histograms;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            // 异步请求会再次分派进来，保留第一次分派的开始时间
+            if (request.getAttribute(START_ATTRIBUTE) == null) {
+                request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            }
+            RequestTimings.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 请求转为异步处理，当前线程即将归还容器
+        RequestTimings.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod) || !(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        String name = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        histograms.record(LatencyHistograms.HTTP, name, System.nanoTime() - start);
+
+        RequestTimings timings = RequestTimings.end();
+        if (timings != null && timings.connectionAcquireCount > 0) {
+            histograms.record(LatencyHistograms.HTTP_CONNECTION_ACQUIRE, name, timings.connectionAcquireNanos);
+        }
+        if (timings != null && timings.statementCount > 0) {
+            histograms.record(LatencyHistograms.HTTP_STATEMENT_EXECUTE, name, timings.statementExecuteNanos);
+        }
+    }
+}
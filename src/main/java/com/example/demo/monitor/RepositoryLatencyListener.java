@@ -0,0 +1,23 @@
+package com.example.demo.monitor;
+
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录每个 Spring Data Repository 方法的调用耗时
+ */
+public class RepositoryLatencyListener implements RepositoryMethodInvocationListener {
+
+    private final LatencyHistograms histograms;
+
+    public RepositoryLatencyListener(LatencyHistograms histograms) {
+        this.histograms = histograms;
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        String name = invocation.getRepositoryInterface().getSimpleName() + "." + invocation.getMethod().getName();
+        histograms.record(LatencyHistograms.REPOSITORY, name, invocation.getDuration(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.monitor;
+
+/**
+ * 当前请求线程上累计的 JDBC 耗时
+ * <p>
+ * 由 LatencyInterceptor 在请求开始时开启、结束时取出，期间 JdbcLatencyListener 往里累加。
+ * 只统计请求线程上的 JDBC 调用，异步线程上的调用不计入。
+ */
+final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    long connectionAcquireNanos;
+    int connectionAcquireCount;
+    long statementExecuteNanos;
+    int statementCount;
+
+    static void start() {
+        CURRENT.set(new RequestTimings());
+    }
+
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    static RequestTimings end() {
+        RequestTimings timings = CURRENT.get();
+        CURRENT.remove();
+        return timings;
+    }
+}
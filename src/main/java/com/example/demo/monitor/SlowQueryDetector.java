@@ -0,0 +1,298 @@
+package com.example.demo.monitor;
+
+import com.example.demo.config.SlowQueryProperties;
+import com.example.demo.datasource.JdbcEventListener;
+import com.example.demo.datasource.StatementExecution;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 慢查询检测
+ * <p>
+ * 作为 JdbcEventListener 接收每条 SQL 的执行耗时，超过阈值的 SQL：
+ * <ul>
+ *     <li>写入最近慢查询环形缓冲区</li>
+ *     <li>按归一化后的 SQL 形态（字面量替换为 ?）聚合，只保留最慢的 topN 个形态</li>
+ *     <li>SELECT 语句在后台线程上用旁路连接（不占用连接池）执行 EXPLAIN，记录执行计划和用到的索引</li>
+ * </ul>
+ * 快 SQL 只有一次比较的开销。
+ */
+public class SlowQueryDetector implements JdbcEventListener, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryDetector.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final SlowQueryProperties properties;
+    private final ObjectProvider<DataSource> dataSource;
+    private final long thresholdNanos;
+    private final long explainThresholdNanos;
+
+    private final Map<String, ShapeStats> shapes = new HashMap<>();
+    private final SlowQueryEvent[] recent;
+    private long recentCursor;
+
+    private final ThreadPoolExecutor explainExecutor;
+    private Connection explainConnection; // 仅在 explainExecutor 的单个线程上使用
+
+    public SlowQueryDetector(SlowQueryProperties properties, ObjectProvider<DataSource> dataSource) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.thresholdNanos = properties.threshold().toNanos();
+        this.explainThresholdNanos = properties.explainThreshold().toNanos();
+        this.recent = new SlowQueryEvent[properties.recentSize()];
+        // 单线程、有界队列，队列满时直接丢弃 EXPLAIN 任务，绝不阻塞业务线程
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void onStatementExecuted(StatementExecution execution) {
+        if (execution.elapsedNanos() < thresholdNanos || execution.sql() == null) {
+            return;
+        }
+        String shape = normalize(execution.sql());
+        Instant now = Instant.now();
+        boolean explain;
+        synchronized (this) {
+            recent[(int) (recentCursor++ % recent.length)] = new SlowQueryEvent(now, shape, execution.sql(),
+                    execution.elapsedNanos() / 1_000_000.0, execution.success(), Thread.currentThread().getName());
+
+            ShapeStats stats = shapes.get(shape);
+            if (stats == null) {
+                stats = admitShape(shape, execution.elapsedNanos());
+                if (stats == null) {
+                    return; // 比当前 topN 中最快的还快，不保留
+                }
+            }
+            stats.record(execution, now);
+            explain = properties.explain()
+                    && execution.elapsedNanos() >= explainThresholdNanos
+                    && shape.regionMatches(true, 0, "select", 0, 6)
+                    && (stats.explainedAt == null || stats.explainedAt.plus(properties.explainInterval()).isBefore(now));
+            if (explain) {
+                stats.explainedAt = now;
+            }
+        }
+        if (explain) {
+            List<Object> parameters = execution.parameters();
+            explainExecutor.execute(() -> explain(shape, execution.sql(), parameters));
+        }
+    }
+
+    /**
+     * 为新的 SQL 形态腾出位置：未满直接加入，已满则淘汰最大耗时最小的形态
+     */
+    private ShapeStats admitShape(String shape, long elapsedNanos) {
+        if (shapes.size() >= properties.topN()) {
+            ShapeStats fastest = shapes.values().stream()
+                    .min(Comparator.comparingLong(s -> s.maxNanos))
+                    .orElseThrow();
+            if (fastest.maxNanos >= elapsedNanos) {
+                return null;
+            }
+            shapes.remove(fastest.shape);
+        }
+        ShapeStats stats = new ShapeStats(shape);
+        shapes.put(shape, stats);
+        return stats;
+    }
+
+    private void explain(String shape, String sql, List<Object> parameters) {
+        try {
+            Connection connection = explainConnection();
+            if (connection == null) {
+                return;
+            }
+            List<Map<String, Object>> rows = new ArrayList<>();
+            Set<String> keys = new LinkedHashSet<>();
+            try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    // 未保留原值的参数按 NULL 绑定，执行计划只依赖 SQL 形态和索引
+                    Object parameter = parameters.get(i);
+                    stmt.setObject(i + 1, parameter instanceof StatementExecution.OmittedParameter ? null : parameter);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    while (rs.next()) {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        for (int c = 1; c <= meta.getColumnCount(); c++) {
+                            row.put(meta.getColumnLabel(c), rs.getObject(c));
+                        }
+                        // MySQL 的 EXPLAIN 中 key 列即实际使用的索引
+                        Object key = row.get("key");
+                        if (key != null) {
+                            keys.add(key.toString());
+                        }
+                        rows.add(row);
+                    }
+                }
+            }
+            updatePlan(shape, new ExplainPlan(Instant.now(), rows, List.copyOf(keys), null));
+        } catch (Exception e) {
+            logger.debug("EXPLAIN 失败: {}", sql, e);
+            updatePlan(shape, new ExplainPlan(Instant.now(), List.of(), List.of(), e.getMessage()));
+        }
+    }
+
+    private synchronized void updatePlan(String shape, ExplainPlan plan) {
+        ShapeStats stats = shapes.get(shape);
+        if (stats != null) {
+            stats.plan = plan;
+        }
+    }
+
+    /**
+     * 旁路连接：直接用连接池的 JDBC 配置单独建立一个连接，连接池耗尽时也能执行 EXPLAIN
+     */
+    private Connection explainConnection() throws SQLException {
+        if (explainConnection != null && explainConnection.isValid(1)) {
+            return explainConnection;
+        }
+        if (explainConnection != null) {
+            try {
+                explainConnection.close();
+            } catch (SQLException ignored) {
+                // 连接已失效，忽略
+            }
+        }
+        HikariDataSource hikariDS = dataSource.getObject().unwrap(HikariDataSource.class);
+        if (hikariDS.getJdbcUrl() == null) {
+            return null;
+        }
+        explainConnection = DriverManager.getConnection(hikariDS.getJdbcUrl(), hikariDS.getUsername(), hikariDS.getPassword());
+        explainConnection.setReadOnly(true);
+        return explainConnection;
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * 最慢的 SQL 形态，按最大耗时倒序
+     */
+    public synchronized List<ShapeSnapshot> getTopShapes() {
+        return shapes.values().stream()
+                .sorted(Comparator.comparingLong((ShapeStats s) -> s.maxNanos).reversed())
+                .map(ShapeStats::snapshot)
+                .toList();
+    }
+
+    /**
+     * 最近的慢查询，最新的在前
+     */
+    public synchronized List<SlowQueryEvent> getRecent() {
+        List<SlowQueryEvent> events = new ArrayList<>(recent.length);
+        for (long i = recentCursor - 1; i >= 0 && i >= recentCursor - recent.length; i--) {
+            events.add(recent[(int) (i % recent.length)]);
+        }
+        return events;
+    }
+
+    public SlowQueryProperties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public void destroy() throws SQLException {
+        explainExecutor.shutdownNow();
+        if (explainConnection != null) {
+            explainConnection.close();
+        }
+    }
+
+    /**
+     * 单个 SQL 形态的聚合统计，由外层 synchronized 保护
+     */
+    private static final class ShapeStats {
+        final String shape;
+        long count;
+        long totalNanos;
+        long maxNanos;
+        String slowestSql;
+        List<String> slowestParameterTypes;
+        Instant lastSeen;
+        Instant explainedAt;
+        ExplainPlan plan;
+
+        ShapeStats(String shape) {
+            this.shape = shape;
+        }
+
+        void record(StatementExecution execution, Instant now) {
+            count++;
+            totalNanos += execution.elapsedNanos();
+            if (execution.elapsedNanos() > maxNanos) {
+                maxNanos = execution.elapsedNanos();
+                slowestSql = execution.sql();
+                slowestParameterTypes = execution.parameters().stream().map(SlowQueryDetector::parameterType).toList();
+            }
+            lastSeen = now;
+        }
+
+        ShapeSnapshot snapshot() {
+            return new ShapeSnapshot(shape, count, totalNanos / 1_000_000.0 / count, maxNanos / 1_000_000.0,
+                    slowestSql, slowestParameterTypes, lastSeen, plan);
+        }
+    }
+
+    /**
+     * 参数只对外展示类型，原值（用户名、文章内容等）只用于 EXPLAIN
+     */
+    private static String parameterType(Object parameter) {
+        if (parameter == null) {
+            return "null";
+        }
+        if (parameter instanceof StatementExecution.OmittedParameter omitted) {
+            return omitted.toString();
+        }
+        return parameter.getClass().getSimpleName();
+    }
+
+    public record ShapeSnapshot(String shape, long count, double avgMillis, double maxMillis,
+                                String slowestSql, List<String> slowestParameterTypes, Instant lastSeen, ExplainPlan plan) {
+    }
+
+    public record SlowQueryEvent(Instant timestamp, String shape, String sql, double elapsedMillis, boolean success, String thread) {
+    }
+
+    public record ExplainPlan(Instant capturedAt, List<Map<String, Object>> rows, List<String> usedIndexes, String error) {
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.demo.monitor;
+
+import com.example.demo.datasource.JdbcEventListener;
+import com.example.demo.datasource.ReadWriteRoutingDataSource;
+import com.example.demo.datasource.StatementExecution;
+import com.example.demo.monitor.LatencyHistograms.LatencyStats;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按事务方法统计事务耗时、连接持有时间、SQL 条数、挂起外层事务的次数，以及同一线程同时持有的连接数
+ * <p>
+ * 作为 TransactionExecutionListener 由 Spring Boot 注册到事务管理器上，只在真正开启物理事务时回调：
+ * 以 REQUIRED 加入外层事务的调用不单独计数，它的 SQL 计入外层事务。
+ * 作为 JdbcEventListener 接收连接借出、归还和 SQL 执行事件，归到当前线程最内层的事务上。
+ * 借出的连接记在借出线程上，归属（线程和方法）保存在连接代理上，归还时移除的正是这一条，
+ * 即使连接被泄漏回收器在另一个线程上关闭；请求结束时仍未归还的连接不再计入该线程，线程被复用时不会误报。
+ * <p>
+ * 一次调用同时持有 N（N >= 2）个连接的方法（典型的是在事务中调用 REQUIRES_NEW 方法）有连接池死锁的风险：
+ * 并发调用数超过 (maximumPoolSize - 1) / (N - 1) 时，所有连接可能都被持有第一个连接、等待第二个连接的线程占满，
+ * 只能等 connection-timeout 超时解除。
+ */
+@Component
+public class TransactionProfiler implements TransactionExecutionListener, JdbcEventListener, AsyncHandlerInterceptor {
+
+    /** 不在事务中借出的连接（自动提交的 JdbcTemplate 调用等） */
+    static final String NO_TRANSACTION = "(none)";
+    /** TransactionTemplate 等编程式事务没有方法名 */
+    static final String PROGRAMMATIC = "(programmatic)";
+
+    private static final ThreadLocal<ThreadState> STATE = ThreadLocal.withInitial(ThreadState::new);
+
+    private final ObjectProvider<DataSource> dataSource;
+    private final ConcurrentMap<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> requestMaxConnections = new ConcurrentHashMap<>();
+
+    public TransactionProfiler(ObjectProvider<DataSource> dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        ThreadState state = STATE.get();
+        Frame frame = new Frame(transaction, stats(transaction.getTransactionName()), System.nanoTime(),
+                !state.transactions.isEmpty() && !transaction.isNested(), state.holds.size());
+        state.transactions.push(frame);
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            Frame frame = remove(transaction);
+            if (frame != null) {
+                frame.stats.beginFailures.increment();
+            }
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        complete(transaction, commitFailure == null ? Outcome.COMMITTED : Outcome.FAILED);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        complete(transaction, rollbackFailure == null ? Outcome.ROLLED_BACK : Outcome.FAILED);
+    }
+
+    @Override
+    public Object onConnectionAcquired(long elapsedNanos, boolean success) {
+        if (!success) {
+            return null;
+        }
+        ThreadState state = STATE.get();
+        Frame innermost = state.transactions.peek();
+        ConnectionHold hold = new ConnectionHold(state, innermost != null ? innermost.stats : stats(NO_TRANSACTION));
+        state.holds.add(hold);
+        int held = state.holds.size();
+        for (Frame frame : state.transactions) {
+            frame.maxConnectionsHeld = Math.max(frame.maxConnectionsHeld, held);
+        }
+        if (held > 1) {
+            String request = currentRequest();
+            if (request != null) {
+                requestMaxConnections.computeIfAbsent(request, k -> new AtomicInteger()).accumulateAndGet(held, Math::max);
+            }
+        }
+        return hold;
+    }
+
+    @Override
+    public void onConnectionReleased(long heldNanos, Object attachment) {
+        if (attachment instanceof ConnectionHold hold) {
+            hold.owner.holds.remove(hold); // 请求结束时已被清除的不在其中
+            hold.stats.connectionHold.recordValue(Math.max(1, heldNanos / 1_000));
+        }
+    }
+
+    @Override
+    public void onStatementExecuted(StatementExecution execution) {
+        Frame innermost = STATE.get().transactions.peek();
+        if (innermost != null) {
+            innermost.statements++;
+        }
+    }
+
+    /**
+     * 请求结束时清除当前线程上残留的事务和连接（泄漏的连接稍后被回收时仍会记录持有时间）
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        STATE.remove();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 请求转为异步处理，当前线程即将归还容器
+        STATE.remove();
+    }
+
+    private void complete(TransactionExecution transaction, Outcome outcome) {
+        Frame frame = remove(transaction);
+        if (frame == null) {
+            return;
+        }
+        MethodStats stats = frame.stats;
+        stats.duration.recordValue(Math.max(1, (System.nanoTime() - frame.startNanos) / 1_000));
+        switch (outcome) {
+            case COMMITTED -> stats.commits.increment();
+            case ROLLED_BACK -> stats.rollbacks.increment();
+            case FAILED -> stats.failures.increment();
+        }
+        stats.statements.add(frame.statements);
+        stats.maxStatements.accumulateAndGet(frame.statements, Math::max);
+        stats.maxConnectionsHeld.accumulateAndGet(frame.maxConnectionsHeld, Math::max);
+        if (frame.suspendedOuter) {
+            stats.suspendedOuter.increment();
+        }
+        if (transaction.isNested()) {
+            stats.nested.increment();
+        }
+        stats.readOnly = transaction.isReadOnly();
+    }
+
+    /**
+     * 从当前线程的事务栈中移除该事务，通常就是栈顶
+     */
+    private static Frame remove(TransactionExecution transaction) {
+        Deque<Frame> transactions = STATE.get().transactions;
+        for (Iterator<Frame> it = transactions.iterator(); it.hasNext(); ) {
+            Frame frame = it.next();
+            if (frame.transaction == transaction) {
+                it.remove();
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private MethodStats stats(String transactionName) {
+        String name = transactionName == null || transactionName.isEmpty() ? PROGRAMMATIC : simpleName(transactionName);
+        return methods.computeIfAbsent(name, k -> new MethodStats());
+    }
+
+    /**
+     * "com.example.demo.service.UserService.getUserById" -> "UserService.getUserById"
+     */
+    private static String simpleName(String transactionName) {
+        int method = transactionName.lastIndexOf('.');
+        int type = method > 0 ? transactionName.lastIndexOf('.', method - 1) : -1;
+        return transactionName.substring(type + 1);
+    }
+
+    private static String currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        Object pattern = servletAttributes.getRequest().getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return servletAttributes.getRequest().getMethod() + " " + (pattern != null ? pattern : servletAttributes.getRequest().getRequestURI());
+    }
+
+    /**
+     * 主库连接池的 maximumPoolSize，无法获取时返回 -1
+     */
+    private int maximumPoolSize() {
+        try {
+            DataSource primary = dataSource.getObject();
+            if (primary.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+                primary = primary.unwrap(ReadWriteRoutingDataSource.class).getPrimary();
+            }
+            return primary.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        int poolSize = maximumPoolSize();
+        Map<String, Object> byMethod = new TreeMap<>();
+        Map<String, Object> deadlockRisks = new TreeMap<>();
+        methods.forEach((name, stats) -> {
+            byMethod.put(name, stats.snapshot());
+            int held = stats.maxConnectionsHeld.get();
+            if (held > 1) {
+                Map<String, Object> risk = new LinkedHashMap<>();
+                risk.put("maxConnectionsHeld", held);
+                risk.put("maximumPoolSize", poolSize);
+                if (poolSize > 0) {
+                    int safeConcurrency = (poolSize - 1) / (held - 1);
+                    risk.put("safeConcurrency", safeConcurrency);
+                    risk.put("message", "一次调用同时持有 " + held + " 个连接，并发调用超过 " + safeConcurrency
+                            + " 时连接池可能死锁，需要 maximumPoolSize >= 并发数 × " + (held - 1) + " + 1");
+                }
+                deadlockRisks.put(name, risk);
+            }
+        });
+        Map<String, Integer> requests = new TreeMap<>();
+        requestMaxConnections.forEach((request, max) -> requests.put(request, max.get()));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("unit", "ms");
+        status.put("methods", byMethod);
+        status.put("poolDeadlockRisks", deadlockRisks);
+        status.put("requestsHoldingMultipleConnections", requests);
+        return status;
+    }
+
+    public void reset() {
+        methods.clear();
+        requestMaxConnections.clear();
+    }
+
+    private enum Outcome {
+        COMMITTED, ROLLED_BACK, FAILED
+    }
+
+    /**
+     * 当前线程上尚未结束的物理事务（栈顶为最内层）和尚未归还的连接；连接可能在其他线程上归还，holds 需要线程安全
+     */
+    private static final class ThreadState {
+        final Deque<Frame> transactions = new ArrayDeque<>();
+        final Set<ConnectionHold> holds = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * 一个借出的连接：借出它的线程和借出时所在事务的方法，保存在连接代理上。按引用比较，同一方法的多个连接各占一项
+     */
+    private static final class ConnectionHold {
+        final ThreadState owner;
+        final MethodStats stats;
+
+        ConnectionHold(ThreadState owner, MethodStats stats) {
+            this.owner = owner;
+            this.stats = stats;
+        }
+    }
+
+    private static final class Frame {
+        final TransactionExecution transaction;
+        final MethodStats stats;
+        final long startNanos;
+        final boolean suspendedOuter;
+        int statements;
+        int maxConnectionsHeld;
+
+        Frame(TransactionExecution transaction, MethodStats stats, long startNanos, boolean suspendedOuter, int connectionsHeld) {
+            this.transaction = transaction;
+            this.stats = stats;
+            this.startNanos = startNanos;
+            this.suspendedOuter = suspendedOuter;
+            this.maxConnectionsHeld = connectionsHeld;
+        }
+    }
+
+    private static final class MethodStats {
+        final Histogram duration = new ConcurrentHistogram(3);
+        final Histogram connectionHold = new ConcurrentHistogram(3);
+        final LongAdder commits = new LongAdder();
+        final LongAdder rollbacks = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder beginFailures = new LongAdder();
+        final LongAdder statements = new LongAdder();
+        final AtomicInteger maxStatements = new AtomicInteger();
+        final AtomicInteger maxConnectionsHeld = new AtomicInteger();
+        final LongAdder suspendedOuter = new LongAdder();
+        final LongAdder nested = new LongAdder();
+        volatile Boolean readOnly;
+
+        Map<String, Object> snapshot() {
+            Histogram durations = duration.copy();
+            long transactions = durations.getTotalCount();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("transactions", transactions);
+            snapshot.put("readOnly", readOnly);
+            snapshot.put("commits", commits.sum());
+            snapshot.put("rollbacks", rollbacks.sum());
+            snapshot.put("failures", failures.sum());
+            snapshot.put("beginFailures", beginFailures.sum());
+            snapshot.put("duration", LatencyStats.of(durations));
+            snapshot.put("connectionHold", LatencyStats.of(connectionHold.copy()));
+            snapshot.put("statementsPerTransaction", transactions == 0 ? 0.0
+                    : Math.round((double) statements.sum() / transactions * 10) / 10.0);
+            snapshot.put("maxStatements", maxStatements.get());
+            snapshot.put("maxConnectionsHeld", maxConnectionsHeld.get());
+            // 开启时当前线程已有未结束的事务（且不是保存点）：REQUIRES_NEW 挂起了外层事务
+            snapshot.put("suspendedOuter", suspendedOuter.sum());
+            snapshot.put("nested", nested.sum());
+            return snapshot;
+        }
+    }
+}
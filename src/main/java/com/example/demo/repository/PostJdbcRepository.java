@@ -0,0 +1,137 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.PostCreateRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于 JdbcTemplate 的文章批量写入和流式导出
+ * <p>
+ * Post.id 同样是 IDENTITY 主键，批量写入绕过 JPA 直接使用 JDBC batch。
+ * 导出时使用只进、只读的游标逐行读取 posts JOIN users，content 以字符流的形式交给调用方，
+ * 不会先在 Hibernate 中把整篇 @Lob 正文加载成 String，也不会把结果集放进持久化上下文。
+ */
+@Repository
+public class PostJdbcRepository {
+
+    /** 导出时每次从数据库拉取的行数（MySQL 需配合 useCursorFetch=true） */
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO posts (title, content, user_id) VALUES (?, ?, ?)";
+
+    private static final String EXPORT_SQL = """
+            SELECT p.id, p.title, p.content, u.id AS user_id, u.name AS author_name
+            FROM posts p JOIN users u ON u.id = p.user_id
+            WHERE p.id > ?
+            ORDER BY p.id""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PostJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 查询给定用户ID中存在于数据库的部分
+     */
+    public Set<Integer> findExistingUserIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        List<Integer> existing = jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", userIds),
+                Integer.class);
+        return new HashSet<>(existing);
+    }
+
+    /**
+     * 以一个 JDBC batch 插入同一用户的一组文章，按输入顺序返回生成的主键
+     */
+    public List<Integer> insertBatch(int userId, List<PostCreateRequest> posts) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setString(1, posts.get(i).title());
+                        ps.setString(2, posts.get(i).content());
+                        ps.setInt(3, userId);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return posts.size();
+                    }
+                },
+                keyHolder);
+
+        List<Integer> ids = new ArrayList<>(posts.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).intValue());
+        }
+        return ids;
+    }
+
+    /**
+     * 按主键查询文章标题和作者名，不读取正文
+     */
+    public Map<Integer, PostAuthorDto> findTitlesWithAuthors(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Integer, PostAuthorDto> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT p.id, p.title, u.name AS author_name FROM posts p JOIN users u ON u.id = p.user_id WHERE p.id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                (RowCallbackHandler) rs -> result.put(rs.getInt("id"), new PostAuthorDto(rs.getString("title"), rs.getString("author_name"))));
+        return result;
+    }
+
+    /**
+     * 按 id 顺序逐行遍历 id > cursor 的文章及其作者，整个遍历期间占用一个连接
+     */
+    public void forEachPostWithAuthor(int cursor, PostRowHandler handler) {
+        jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            ps.setInt(1, cursor);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            try (Reader content = rs.getCharacterStream("content")) {
+                handler.handle(rs.getInt("id"), rs.getString("title"), rs.getInt("user_id"), rs.getString("author_name"), content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 导出时的逐行回调，content 为 null 表示正文为空；Reader 只在回调内有效
+     */
+    @FunctionalInterface
+    public interface PostRowHandler {
+        void handle(int id, String title, int userId, String authorName, Reader content) throws IOException, SQLException;
+    }
+}
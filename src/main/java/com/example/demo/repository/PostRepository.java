@@ -1,14 +1,56 @@
 package com.example.demo.repository;
 
 import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.UserPostCountRow;
+import com.example.demo.dto.UserPostSummaryRow;
 import com.example.demo.model.Post;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface PostRepository extends JpaRepository<Post, Integer> {
 
     @Query("SELECT new com.example.demo.dto.PostAuthorDto(p.title, u.name) FROM Post p JOIN p.user u")
     List<PostAuthorDto> findPostsWithAuthorNames();
+
+    /**
+     * findPostsWithAuthorNames 的流式版本，供 /post/authors 边读边写出响应，调用方必须在事务内消费并关闭 Stream
+     */
+    @Query("SELECT new com.example.demo.dto.PostAuthorDto(p.title, u.name) FROM Post p JOIN p.user u ORDER BY p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + UserRepository.STREAM_FETCH_SIZE))
+    Stream<PostAuthorDto> streamPostsWithAuthorNames();
+
+    /**
+     * 一次查询取出多个用户各自最新的 postsPerUser 篇文章（不含正文）及每个用户的文章总数。
+     * 每个用户的集合分页由窗口函数在数据库中完成，不会把用户的全部文章加载到内存后再截断。
+     */
+    @Query("""
+            SELECT new com.example.demo.dto.UserPostSummaryRow(r.userId, r.postCount, r.id, r.title)
+            FROM (SELECT p.user.id AS userId, p.id AS id, p.title AS title,
+                         row_number() OVER (PARTITION BY p.user.id ORDER BY p.id DESC) AS rn,
+                         count(*) OVER (PARTITION BY p.user.id) AS postCount
+                  FROM Post p
+                  WHERE p.user.id IN :userIds) r
+            WHERE r.rn <= :postsPerUser
+            ORDER BY r.userId, r.id DESC""")
+    List<UserPostSummaryRow> findLatestPostSummaries(@Param("userIds") Collection<Integer> userIds,
+                                                     @Param("postsPerUser") int postsPerUser);
+
+    /**
+     * 多个用户各自的文章总数，没有文章的用户不返回；不需要文章摘要时代替 findLatestPostSummaries
+     */
+    @Query("""
+            SELECT new com.example.demo.dto.UserPostCountRow(p.user.id, count(p))
+            FROM Post p
+            WHERE p.user.id IN :userIds
+            GROUP BY p.user.id""")
+    List<UserPostCountRow> countPostsByUserIds(@Param("userIds") Collection<Integer> userIds);
 }
@@ -0,0 +1,123 @@
+package com.example.demo.repository;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.UserResponse;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 基于 R2DBC DatabaseClient 的只读查询，供 /rx/* 接口使用
+ * <p>
+ * 使用独立的 r2dbc-pool 连接池，与 JPA / JdbcTemplate 使用的 Hikari 连接池互不影响。
+ * 连接池由本类持有，不注册为 ConnectionFactory Bean：容器中一旦出现 ConnectionFactory，
+ * DataSourceAutoConfiguration 会让位，JPA 就没有 DataSource 可用了。
+ * <p>
+ * 查询结果按订阅方的请求量逐行交付：连接池耗尽时获取连接的请求在池内排队，不占用线程；
+ * 结果集设置了 fetchSize，驱动支持时（r2dbc-mysql）按批从服务端拉取，下游消费变慢时不会把整张表读进内存。
+ */
+public class ReactiveReadRepository implements DisposableBean {
+
+    private static final String FIND_USER_SQL = "SELECT id, name, role, version FROM users WHERE id = :id";
+
+    private static final String FIND_USERS_BY_NAME_AND_ROLE_SQL =
+            "SELECT id, name, role, version FROM users WHERE name = :name AND role = :role";
+
+    private static final String POSTS_WITH_AUTHOR_NAMES_SQL = """
+            SELECT p.title, u.name AS author_name
+            FROM posts p JOIN users u ON u.id = p.user_id
+            ORDER BY p.id""";
+
+    private final ConnectionPool connectionPool;
+    private final String poolName;
+    private final DatabaseClient databaseClient;
+
+    public ReactiveReadRepository(ConnectionPool connectionPool, String poolName) {
+        this.connectionPool = connectionPool;
+        this.poolName = poolName;
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    public Mono<UserResponse> findUserById(int id) {
+        return databaseClient.sql(FIND_USER_SQL)
+                .bind("id", id)
+                .map(ReactiveReadRepository::toUserResponse)
+                .one()
+                .onErrorMap(ReactiveReadRepository::isAcquireTimeout, e -> new BusinessException(ErrorCode.SERVICE_BUSY));
+    }
+
+    public Flux<UserResponse> findUsersByNameAndRole(String name, String role) {
+        return databaseClient.sql(FIND_USERS_BY_NAME_AND_ROLE_SQL)
+                .bind("name", name)
+                .bind("role", role)
+                .map(ReactiveReadRepository::toUserResponse)
+                .all()
+                .onErrorMap(ReactiveReadRepository::isAcquireTimeout, e -> new BusinessException(ErrorCode.SERVICE_BUSY));
+    }
+
+    /**
+     * 按 ID 顺序流式读取全部文章的标题和作者名，与 PostRepository#streamPostsWithAuthorNames 相同
+     */
+    public Flux<PostAuthorDto> streamPostsWithAuthorNames() {
+        return databaseClient.sql(POSTS_WITH_AUTHOR_NAMES_SQL)
+                .filter(statement -> statement.fetchSize(UserRepository.STREAM_FETCH_SIZE))
+                .map(row -> new PostAuthorDto(row.get("title", String.class), row.get("author_name", String.class)))
+                .all()
+                .onErrorMap(ReactiveReadRepository::isAcquireTimeout, e -> new BusinessException(ErrorCode.SERVICE_BUSY));
+    }
+
+    public Optional<PoolMetrics> getPoolMetrics() {
+        return connectionPool.getMetrics();
+    }
+
+    /**
+     * 连接池状态，字段含义与 /api/monitor/pool-status 中的 Hikari 连接池对应
+     */
+    public Map<String, Object> getPoolStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        getPoolMetrics().ifPresent(metrics -> {
+            status.put("activeConnections", metrics.acquiredSize());
+            status.put("idleConnections", metrics.idleSize());
+            status.put("totalConnections", metrics.allocatedSize());
+            status.put("pendingAcquires", metrics.pendingAcquireSize());
+            status.put("maximumPoolSize", metrics.getMaxAllocatedSize());
+        });
+        status.put("poolName", poolName);
+        status.put("driver", connectionPool.getMetadata().getName());
+        return status;
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private static UserResponse toUserResponse(Readable row) {
+        return new UserResponse(
+                row.get("id", Integer.class),
+                row.get("name", String.class),
+                row.get("role", String.class),
+                row.get("version", Long.class));
+    }
+
+    /**
+     * 连接池耗尽且等待超过 max-acquire-time，与 Hikari 的 connection-timeout 一样按服务繁忙处理
+     */
+    private static boolean isAcquireTimeout(Throwable e) {
+        return e instanceof DataAccessResourceFailureException
+                && (e.getCause() instanceof R2dbcTimeoutException || e.getCause() instanceof TimeoutException);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.dto.UserUpdateRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于 JdbcTemplate 的用户批量写入
+ * <p>
+ * User.id 使用 IDENTITY 主键，Hibernate 无法对其做批量插入，因此批量场景绕过 JPA，
+ * 直接使用 JDBC batch。配合 MySQL 的 rewriteBatchedStatements=true，一个批次会被改写成一条多值 INSERT。
+ * 写后缓冲的批量更新同样走 JDBC batch，版本号在 SQL 中加一，与 JPA 乐观锁更新保持一致。
+ */
+@Repository
+public class UserBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO users (name, role) VALUES (?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE users SET name = ?, role = ?, version = version + 1 WHERE id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public UserBatchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 查询给定用户名中已经存在于数据库的部分
+     */
+    public Set<String> findExistingNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return Set.of();
+        }
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT name FROM users WHERE name IN (:names)",
+                new MapSqlParameterSource("names", names),
+                String.class);
+        return new HashSet<>(existing);
+    }
+
+    /**
+     * 以一个 JDBC batch 插入一组用户，按输入顺序返回生成的主键
+     */
+    public List<Integer> insertBatch(List<UserCreateRequest> users) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setString(1, users.get(i).name());
+                        ps.setString(2, users.get(i).role());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                },
+                keyHolder);
+
+        List<Integer> ids = new ArrayList<>(users.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).intValue());
+        }
+        return ids;
+    }
+
+    /**
+     * 查询并锁定给定ID的用户（SELECT ... FOR UPDATE），返回ID到当前值的映射，不存在的ID不在结果中。
+     * 在更新所在的事务中调用，读到的旧值与随后的 UPDATE 之间不会被并发更新穿插
+     */
+    public Map<Integer, UserResponse> lockByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Integer, UserResponse> users = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, name, role, version FROM users WHERE id IN (:ids) FOR UPDATE",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    int id = rs.getInt("id");
+                    users.put(id, new UserResponse(id, rs.getString("name"), rs.getString("role"), rs.getLong("version")));
+                });
+        return users;
+    }
+
+    /**
+     * 以一个 JDBC batch 更新一组用户的姓名和角色，返回实际更新到的用户ID
+     */
+    public List<Integer> updateBatch(Map<Integer, UserUpdateRequest> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Integer, UserUpdateRequest>> entries = new ArrayList<>(updates.entrySet());
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, entries.get(i).getValue().name());
+                ps.setString(2, entries.get(i).getValue().role());
+                ps.setInt(3, entries.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        List<Integer> updated = new ArrayList<>(entries.size());
+        for (int i = 0; i < counts.length; i++) {
+            // 驱动改写批次后可能只返回 SUCCESS_NO_INFO
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                updated.add(entries.get(i).getKey());
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * 单条插入，用于批次冲突后逐条定位失败项
+     */
+    public int insertOne(UserCreateRequest user) {
+        return insertBatch(List.of(user)).get(0);
+    }
+}
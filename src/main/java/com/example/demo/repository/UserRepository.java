@@ -2,40 +2,125 @@ package com.example.demo.repository;
 
 import com.example.demo.dto.RoleCountDto;
 
+import com.example.demo.dto.UserResponse;
+
 import com.example.demo.model.User;
 
+import org.springframework.data.domain.Limit;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Query;
 
+import org.springframework.data.jpa.repository.QueryHints;
+
 import org.springframework.data.repository.query.Param;
 
 
 
+import jakarta.persistence.QueryHint;
+
 import java.util.List;
 
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 
 
 public interface UserRepository extends JpaRepository<User, Integer> {
 
 
 
+    /** 流式读取时每次从数据库拉取的行数 */
+    int STREAM_FETCH_SIZE = 500;
+
+    /** 按角色聚合查询的查询缓存区域，对应 ehcache.xml 中的 cache alias */
+    String ROLE_COUNTS_CACHE_REGION = "user-role-counts";
+
+
+
     @Query("SELECT new com.example.demo.dto.RoleCountDto(u.role, COUNT(u)) FROM User u GROUP BY u.role ORDER BY u.role")
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = ROLE_COUNTS_CACHE_REGION)})
+
     List<RoleCountDto> countUsersByRole();
 
 
 
     @Query("SELECT new com.example.demo.dto.RoleCountDto(u.role, COUNT(u)) FROM User u GROUP BY u.role HAVING COUNT(u) > :minCount ORDER BY u.role")
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = ROLE_COUNTS_CACHE_REGION)})
+
     List<RoleCountDto> countUsersByRoleHavingMinCount(@Param("minCount") long minCount);
 
 
 
+    /**
+     * 与 countUsersByRole 相同但不走查询缓存，供 RoleCountIndex 对账时读取数据库的真实结果
+     */
+    @Query("SELECT new com.example.demo.dto.RoleCountDto(u.role, COUNT(u)) FROM User u GROUP BY u.role ORDER BY u.role")
+
+    List<RoleCountDto> countUsersByRoleUncached();
+
+
+
     @Query("SELECT u FROM User u WHERE u.name = :name AND u.role = :role")
 
     List<User> findByNameAndRole(@Param("name") String name, @Param("role") String role);
 
+
+
+    /**
+     * 基于主键的 keyset 分页：WHERE id > cursor ORDER BY id，走主键索引，不受 OFFSET 深翻页影响
+     */
+    @Query("SELECT u FROM User u WHERE u.id > :cursor ORDER BY u.id ASC")
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+
+    List<User> findNextPage(@Param("cursor") int cursor, Limit limit);
+
+
+
+    /**
+     * 游标流式读取：直接投影为 DTO（不进入持久化上下文），按 fetch size 分批从数据库拉取，
+     * 调用方必须在事务内消费并关闭 Stream。MySQL 需配合 useCursorFetch=true 才会使用服务端游标。
+     */
+    @Query("SELECT new com.example.demo.dto.UserResponse(u.id, u.name, u.role, u.version) FROM User u WHERE u.id > :cursor ORDER BY u.id ASC")
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+
+    Stream<UserResponse> streamAfter(@Param("cursor") int cursor);
+
+
+
+    /**
+     * 流式读取全部用户名，供 UserNameIndex 构建字典树，调用方必须在事务内消费并关闭 Stream
+     */
+    @Query("SELECT u.name FROM User u")
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+
+    Stream<String> streamAllNames();
+
+
+
+    /**
+     * 匹配 LIKE 模式的用户名（pattern 为小写，以 ! 转义；MySQL 字符串中的反斜杠本身是转义符，不用它做 ESCAPE），
+     * 仅在 UserNameIndex 尚未加载完成时供前缀补全使用
+     */
+    @Query("SELECT u.name FROM User u WHERE LOWER(u.name) LIKE :pattern ESCAPE '!' ORDER BY LOWER(u.name) ASC, u.id ASC")
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+
+    List<String> findNamesByPrefix(@Param("pattern") String pattern, Limit limit);
+
 }
 
 
@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 写入提交后才更新内存中的派生状态（计数器、索引、ETag 等），回滚的写入不会生效
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * 当前线程有事务同步时在提交后执行 action，否则（不在事务中）立即执行
+     */
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.UserResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 条件 GET 使用的 ETag 登记表
+ * <p>
+ * 按用户ID记录最近一次返回给客户端的强 ETag（即用户的乐观锁版本号），容量和过期时间有上限。
+ * 请求带 If-None-Match 且与登记的 ETag 相同时，控制器直接返回 304，不访问缓存、数据库，也不序列化响应体。
+ * 用户被更新或删除时在事务提交后把条目换成只记录已提交版本的标记，下一次 GET 重新计算并登记。
+ * 每个条目带版本号，登记只接受不低于已知版本的 ETag：在更新提交前读到旧版本的 GET 即使在标记之后才登记，
+ * 也不会把旧 ETag 写回去，否则带旧 If-None-Match 的客户端会一直收到 304。
+ * 过期时间限制了绕过 UserService 的写入可能造成的陈旧窗口。
+ */
+@Service
+public class ETagRegistry {
+
+    private final Cache<Integer, UserTag> userETags;
+    private final LongAdder notModifiedCount = new LongAdder();
+
+    public ETagRegistry(@Value("${app.http.etag.max-entries:10000}") long maxEntries,
+                        @Value("${app.http.etag.ttl:10m}") Duration ttl) {
+        this.userETags = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 用户响应的强 ETag，与 PUT /user/{id} 返回的 ETag 相同
+     */
+    public static String userETag(UserResponse user) {
+        return "\"" + user.version() + "\"";
+    }
+
+    /**
+     * 已登记的 ETag，未登记或已过期时返回 null
+     */
+    public String knownUserETag(int id) {
+        UserTag tag = userETags.getIfPresent(id);
+        return tag == null ? null : tag.etag();
+    }
+
+    /**
+     * 登记本次返回的用户响应的 ETag；响应的版本低于已知版本（读取之后又有更新提交）时只返回、不登记
+     */
+    public String rememberUser(UserResponse user) {
+        String etag = userETag(user);
+        long version = user.version();
+        userETags.asMap().merge(user.id(), new UserTag(version, etag),
+                (known, remembered) -> known.version() > version ? known : remembered);
+        return etag;
+    }
+
+    /**
+     * 在当前事务提交后撤下用户的 ETag，并记下已提交的版本，之后只登记不低于该版本的 ETag；回滚的写入不影响已登记的 ETag
+     */
+    public void recordUserChanged(int id, long committedVersion) {
+        AfterCommit.run(() -> userETags.asMap().merge(id, new UserTag(committedVersion, null),
+                (known, committed) -> known.version() > committedVersion ? known : committed));
+    }
+
+    /**
+     * 在当前事务提交后撤下已删除用户的 ETag，此后不再登记
+     */
+    public void recordUserDeleted(int id) {
+        recordUserChanged(id, Long.MAX_VALUE);
+    }
+
+    public void recordNotModified() {
+        notModifiedCount.increment();
+    }
+
+    public Map<String, Object> getStatus() {
+        CacheStats stats = userETags.stats();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("userEntries", userETags.estimatedSize()); // 包括只记录版本的条目
+        status.put("lookupHitCount", stats.hitCount());
+        status.put("lookupMissCount", stats.missCount());
+        status.put("evictionCount", stats.evictionCount());
+        // 每一次 304 都省下了一次缓存/数据库读取和一次 JSON 序列化
+        status.put("notModifiedCount", notModifiedCount.sum());
+        return status;
+    }
+
+    /**
+     * 登记表条目：已知的最新版本及其 ETag，etag 为 null 表示该版本已提交但还没有 GET 登记过
+     */
+    private record UserTag(long version, String etag) {
+    }
+}
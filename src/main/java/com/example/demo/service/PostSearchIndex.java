@@ -0,0 +1,385 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.PostJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 文章标题和正文的内存倒排索引
+ * <p>
+ * 每个词对应一个按文章ID升序排列的 int[] 倒排表（以及同样是 int[] 的词频），文章长度存放在以ID为下标的 int[] 中，
+ * 不为每篇文章或每个倒排项创建对象。启动时从数据库流式读取全部文章构建，之后由 PostService 在批量写入提交后增量追加，
+ * UserService 删除用户时把其文章标记为已删除（查询时跳过，已删除的文章超过四分之一时压缩倒排表）。
+ * 绕过这两个服务写入的文章（如 JPA 级联保存）由定时任务按 ID 追加。
+ * <p>
+ * 查询按 BM25 打分（标题中的词按 TITLE_BOOST 倍计数），多个词之间为 OR 关系，
+ * 按 (score 降序, id 升序) 做 keyset 分页：下一页从上一页最后一条的 (score, id) 之后继续。
+ */
+@Service
+public class PostSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    /** 查询最多使用的词数，超出部分忽略 */
+    public static final int MAX_QUERY_TERMS = 32;
+
+    private static final int TITLE_BOOST = 3;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final PostJdbcRepository postJdbcRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下字段都由 lock 保护
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private int[] docLengths = new int[1024]; // 下标为文章ID，0 表示不存在或已删除
+    private int maxIndexedId;
+    private int docCount;
+    private long totalLength;
+    private long postingCount;
+    private int deletedDocuments; // 已删除但仍留在倒排表中的文章数
+
+    private final LongAdder searchCount = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private volatile boolean ready;
+    private volatile long buildMillis;
+    private volatile Instant builtAt;
+
+    public PostSearchIndex(PostJdbcRepository postJdbcRepository) {
+        this.postJdbcRepository = postJdbcRepository;
+    }
+
+    /**
+     * 应用启动完成（Flyway 迁移之后）构建索引；构建期间持有写锁，提交后到达的增量更新会等待构建完成
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            postJdbcRepository.forEachPostWithAuthor(0, (id, title, userId, authorName, content) -> addDocument(id, title, content));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+        builtAt = Instant.now();
+        ready = true;
+        logger.info("文章检索索引已构建: {} 篇文章, {} 个词, 耗时 {} ms, 约 {} KB",
+                docCount, postings.size(), buildMillis, estimateBytes() / 1024);
+    }
+
+    /**
+     * 追加 ID 大于已索引最大ID的文章，补上绕过 PostService 的写入
+     */
+    @Scheduled(initialDelayString = "${app.post.search.refresh-interval}",
+            fixedDelayString = "${app.post.search.refresh-interval}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int before = docCount;
+            postJdbcRepository.forEachPostWithAuthor(maxIndexedId, (id, title, userId, authorName, content) -> addDocument(id, title, content));
+            if (docCount != before) {
+                logger.info("文章检索索引追加了 {} 篇文章", docCount - before);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 在当前事务提交后把新文章加入索引，回滚的写入不会被索引
+     */
+    public void recordCreated(int id, String title, String content) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                addDocument(id, title, content == null ? null : new StringReader(content));
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // StringReader 不会抛出 IOException
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后把文章标记为已删除
+     */
+    public void recordDeleted(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Integer> deleted = List.copyOf(ids);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int id : deleted) {
+                    if (id < docLengths.length && docLengths[id] > 0) {
+                        deletedDocuments++;
+                        totalLength -= docLengths[id];
+                        docLengths[id] = 0;
+                        docCount--;
+                    }
+                }
+                if (deletedDocuments > docCount / 4) {
+                    compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 调用方需持有写锁。同一篇文章重复加入时忽略（启动构建与提交后的增量更新可能读到同一篇）
+     */
+    private void addDocument(int id, String title, Reader content) throws IOException {
+        if (id < docLengths.length && docLengths[id] > 0) {
+            return;
+        }
+        Map<String, int[]> termFrequencies = new HashMap<>();
+        int[] length = {0};
+        TextTokenizer.tokenize(title, term -> {
+            termFrequencies.computeIfAbsent(term, t -> new int[1])[0] += TITLE_BOOST;
+            length[0] += TITLE_BOOST;
+        });
+        if (content != null) {
+            TextTokenizer.tokenize(content, term -> {
+                termFrequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+                length[0]++;
+            });
+        }
+        if (id >= docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, Math.max(id + 1, docLengths.length * 2));
+        }
+        docLengths[id] = Math.max(length[0], 1); // 没有任何词的文章长度记为 1，与“已删除”区分
+        termFrequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new PostingList()).add(id, frequency[0]));
+        postingCount += termFrequencies.size();
+        totalLength += docLengths[id];
+        docCount++;
+        maxIndexedId = Math.max(maxIndexedId, id);
+    }
+
+    /**
+     * 从倒排表中移除已删除文章的项，调用方需持有写锁
+     */
+    private void compact() {
+        postingCount = 0;
+        postings.values().removeIf(list -> {
+            postingCount += list.retainLive(docLengths);
+            return list.size == 0;
+        });
+        deletedDocuments = 0;
+        logger.info("文章检索索引已压缩: {} 个词, {} 个倒排项", postings.size(), postingCount);
+    }
+
+    /**
+     * 按相关度返回 afterScore/afterId 之后的 size 条结果（首页两者传 null）
+     */
+    public SearchResult search(String query, Float afterScore, Integer afterId, int size) {
+        long start = System.nanoTime();
+        Set<String> terms = new LinkedHashSet<>();
+        TextTokenizer.tokenize(query, term -> {
+            if (terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term);
+            }
+        });
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            List<Float> idfs = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    idfs.add((float) Math.log(1 + (docCount - list.size + 0.5) / (list.size + 0.5)));
+                }
+            }
+
+            // 保留排在游标之后的前 size + 1 条，堆顶是其中排名最靠后的一条
+            Comparator<ScoredPost> ranking = Comparator.comparingDouble((ScoredPost hit) -> -hit.score()).thenComparingInt(ScoredPost::id);
+            PriorityQueue<ScoredPost> top = new PriorityQueue<>(size + 1, ranking.reversed());
+            float averageLength = docCount == 0 ? 1 : (float) totalLength / docCount;
+            int totalHits = 0;
+
+            // 按文章ID同时遍历各倒排表（document-at-a-time），不需要为每篇候选文章分配累加器
+            int[] positions = new int[lists.size()];
+            while (true) {
+                int docId = Integer.MAX_VALUE;
+                for (int i = 0; i < lists.size(); i++) {
+                    if (positions[i] < lists.get(i).size) {
+                        docId = Math.min(docId, lists.get(i).docIds[positions[i]]);
+                    }
+                }
+                if (docId == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    if (positions[i] < list.size && list.docIds[positions[i]] == docId) {
+                        int frequency = list.frequencies[positions[i]++];
+                        score += idfs.get(i) * frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * docLengths[docId] / averageLength));
+                    }
+                }
+                if (docLengths[docId] == 0) {
+                    continue; // 已删除
+                }
+                totalHits++;
+                ScoredPost hit = new ScoredPost(docId, score);
+                if (afterScore != null && ranking.compare(hit, new ScoredPost(afterId, afterScore)) <= 0) {
+                    continue;
+                }
+                top.offer(hit);
+                if (top.size() > size + 1) {
+                    top.poll();
+                }
+            }
+
+            List<ScoredPost> hits = new ArrayList<>(top);
+            hits.sort(ranking);
+            boolean hasMore = hits.size() > size;
+            return new SearchResult(hasMore ? hits.subList(0, size) : hits, totalHits, hasMore);
+        } finally {
+            lock.readLock().unlock();
+            searchCount.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 估算索引占用的堆内存（字节），按 64 位 JVM、压缩指针、紧凑字符串计算
+     */
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 16 + 4L * docLengths.length;                  // docLengths
+            bytes += 48 + 4L * Integer.highestOneBit(Math.max(postings.size(), 1) * 2); // HashMap 本身和桶数组
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                String term = entry.getKey();
+                boolean latin1 = term.chars().allMatch(c -> c < 256);
+                bytes += 32;                                            // HashMap.Node
+                bytes += 24 + 16 + align((long) term.length() * (latin1 ? 1 : 2)); // String 及其 byte[]
+                PostingList list = entry.getValue();
+                bytes += 24 + 2 * (16 + align(4L * list.docIds.length)); // PostingList 及两个 int[]
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public Map<String, Object> getStatus() {
+        long searches = searchCount.sum();
+        Map<String, Object> status = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            status.put("ready", ready);
+            status.put("documents", docCount);
+            status.put("terms", postings.size());
+            status.put("postings", postingCount);
+            status.put("deletedDocuments", deletedDocuments);
+            status.put("maxIndexedId", maxIndexedId);
+            status.put("averageDocumentLength", docCount == 0 ? 0 : Math.round(totalLength * 10.0 / docCount) / 10.0);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long bytes = estimateBytes();
+        status.put("estimatedBytes", bytes);
+        status.put("estimatedSize", String.format("%.2f MB", bytes / 1024.0 / 1024.0));
+        status.put("buildMillis", buildMillis);
+        status.put("builtAt", builtAt);
+        status.put("searchCount", searches);
+        status.put("avgSearchMicros", searches == 0 ? 0 : searchNanos.sum() / searches / 1000);
+        return status;
+    }
+
+    /**
+     * 一个词的倒排表：按文章ID升序的 docIds 和对应的词频，容量不足时按 1.5 倍扩容
+     */
+    private static final class PostingList {
+
+        private int[] docIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int docId, int frequency) {
+            if (size == docIds.length) {
+                int capacity = size + (size >> 1) + 1;
+                docIds = Arrays.copyOf(docIds, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            // 新文章的ID通常最大，直接追加；提交顺序与ID顺序不一致时插入到正确位置
+            int position = size == 0 || docIds[size - 1] < docId ? size : -Arrays.binarySearch(docIds, 0, size, docId) - 1;
+            System.arraycopy(docIds, position, docIds, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            docIds[position] = docId;
+            frequencies[position] = frequency;
+            size++;
+        }
+
+        /**
+         * 只保留 docLengths 中仍然存在的文章，返回保留后的项数
+         */
+        int retainLive(int[] docLengths) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (docLengths[docIds[i]] > 0) {
+                    docIds[kept] = docIds[i];
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    /**
+     * 一条命中：文章ID和相关度
+     */
+    public record ScoredPost(int id, float score) {
+    }
+
+    /**
+     * 一页查询结果，totalHits 为所有匹配的文章数
+     */
+    public record SearchResult(List<ScoredPost> hits, int totalHits, boolean hasMore) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.service;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.PostAuthorDto;
+import com.example.demo.dto.PostBatchCreateResponse;
+import com.example.demo.dto.PostBatchUserResult;
+import com.example.demo.dto.PostCreateRequest;
+import com.example.demo.dto.PostExportFormat;
+import com.example.demo.dto.PostSearchHit;
+import com.example.demo.dto.PostSearchPage;
+import com.example.demo.repository.PostJdbcRepository;
+import com.example.demo.repository.PostRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 文章的批量写入与流式导出
+ * <p>
+ * 批量写入按用户分组，每个用户的文章在独立的事务中以 JDBC batch 插入，一个用户失败不影响其他用户。
+ * 导出按行写出，正文以字符流拷贝到响应中，内存占用只与单行的缓冲区有关，与表大小无关。
+ */
+@Service
+public class PostService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostService.class);
+
+    /** 导出时每写多少行 flush 一次 */
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    /** 检索单页最大条数 */
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    private final PostJdbcRepository postJdbcRepository;
+    private final PostRepository postRepository;
+    private final PostSearchIndex postSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public PostService(PostJdbcRepository postJdbcRepository,
+                       PostRepository postRepository,
+                       PostSearchIndex postSearchIndex,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${app.post.batch.chunk-size:500}") int chunkSize) {
+        this.postJdbcRepository = postJdbcRepository;
+        this.postRepository = postRepository;
+        this.postSearchIndex = postSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public PostBatchCreateResponse createPosts(List<PostCreateRequest> requests) {
+        // 1. 按用户分组，保持请求中的先后顺序
+        Map<Integer, List<PostCreateRequest>> postsByUser = new LinkedHashMap<>();
+        for (PostCreateRequest request : requests) {
+            postsByUser.computeIfAbsent(request.userId(), id -> new ArrayList<>()).add(request);
+        }
+
+        // 2. 一次查询过滤掉不存在的用户，避免外键冲突让整个批次回滚
+        Set<Integer> existingUserIds = postJdbcRepository.findExistingUserIds(postsByUser.keySet());
+
+        // 3. 每个用户一个事务，事务内按分块提交 JDBC batch
+        List<PostBatchUserResult> results = new ArrayList<>(postsByUser.size());
+        postsByUser.forEach((userId, posts) -> {
+            if (!existingUserIds.contains(userId)) {
+                results.add(failure(userId, posts.size(), ErrorCode.USER_NOT_FOUND));
+                return;
+            }
+            try {
+                Integer created = transactionTemplate.execute(status -> {
+                    int inserted = 0;
+                    for (int from = 0; from < posts.size(); from += chunkSize) {
+                        List<PostCreateRequest> chunk = posts.subList(from, Math.min(from + chunkSize, posts.size()));
+                        List<Integer> ids = postJdbcRepository.insertBatch(userId, chunk);
+                        for (int i = 0; i < ids.size(); i++) {
+                            postSearchIndex.recordCreated(ids.get(i), chunk.get(i).title(), chunk.get(i).content());
+                        }
+                        inserted += ids.size();
+                    }
+                    return inserted;
+                });
+                results.add(new PostBatchUserResult(userId, true, 200, "OK", posts.size(), created));
+            } catch (DataAccessException e) {
+                // 预检查之后用户仍可能被并发删除，此时该用户的文章整体回滚
+                logger.warn("用户 {} 的文章批量插入失败: {}", userId, e.getMessage());
+                results.add(failure(userId, posts.size(), ErrorCode.INTERNAL_SERVER_ERROR));
+            }
+        });
+
+        int created = results.stream().mapToInt(PostBatchUserResult::created).sum();
+        return new PostBatchCreateResponse(requests.size(), created, requests.size() - created, results);
+    }
+
+    private static PostBatchUserResult failure(int userId, int posts, ErrorCode errorCode) {
+        return new PostBatchUserResult(userId, false, errorCode.getCode(), errorCode.getMessage(), posts, 0);
+    }
+
+    /**
+     * 在内存倒排索引中检索标题和正文，按相关度排序；cursor 为上一页返回的 nextCursor，首页传 null
+     */
+    public PostSearchPage searchPosts(String query, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+        Float afterScore = null;
+        Integer afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                afterScore = Float.parseFloat(cursor.substring(0, separator));
+                afterId = Integer.parseInt(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new BusinessException(ErrorCode.VALIDATION_ERROR);
+            }
+        }
+
+        PostSearchIndex.SearchResult result = postSearchIndex.search(query, afterScore, afterId, pageSize);
+        // 只为本页的文章查询标题和作者；索引尚未收到删除通知的文章在这里被跳过
+        Map<Integer, PostAuthorDto> titles = postJdbcRepository.findTitlesWithAuthors(
+                result.hits().stream().map(PostSearchIndex.ScoredPost::id).toList());
+        List<PostSearchHit> items = new ArrayList<>(result.hits().size());
+        for (PostSearchIndex.ScoredPost hit : result.hits()) {
+            PostAuthorDto post = titles.get(hit.id());
+            if (post != null) {
+                items.add(new PostSearchHit(hit.id(), post.postTitle(), post.authorName(), hit.score()));
+            }
+        }
+
+        String nextCursor = null;
+        if (result.hasMore()) {
+            PostSearchIndex.ScoredPost last = result.hits().get(result.hits().size() - 1);
+            nextCursor = last.score() + "_" + last.id();
+        }
+        return new PostSearchPage(items, nextCursor, result.hasMore(), result.totalHits());
+    }
+
+    /**
+     * 按 ID 顺序流式遍历全部文章的标题和作者名，逐条交给 consumer 处理，整个遍历在同一个只读事务内完成
+     */
+    @Transactional(readOnly = true)
+    public void forEachPostWithAuthorName(Consumer<PostAuthorDto> consumer) {
+        try (Stream<PostAuthorDto> posts = postRepository.streamPostsWithAuthorNames()) {
+            posts.forEach(consumer);
+        }
+    }
+
+    /**
+     * 将 id > cursor 的文章及作者按指定格式逐行写入输出流
+     */
+    public void exportPosts(int cursor, PostExportFormat format, OutputStream outputStream) throws IOException {
+        try {
+            switch (format) {
+                case NDJSON -> exportNdjson(cursor, outputStream);
+                case CSV -> exportCsv(cursor, outputStream);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // 通常是客户端中途断开
+        }
+    }
+
+    private void exportNdjson(int cursor, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) { // 行之间只用换行分隔，去掉默认的空格分隔符
+            int[] rows = {0};
+            postJdbcRepository.forEachPostWithAuthor(cursor, (id, title, userId, authorName, content) -> {
+                generator.writeStartObject();
+                generator.writeNumberField("id", id);
+                generator.writeStringField("title", title);
+                generator.writeNumberField("userId", userId);
+                generator.writeStringField("authorName", authorName);
+                generator.writeFieldName("content");
+                if (content == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(content, -1); // 边读边转义写出，不拼成完整的 String
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if (++rows[0] % EXPORT_FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            });
+            generator.flush();
+        }
+    }
+
+    private void exportCsv(int cursor, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("id,title,user_id,author_name,content\r\n");
+        int[] rows = {0};
+        char[] buffer = new char[8192];
+        postJdbcRepository.forEachPostWithAuthor(cursor, (id, title, userId, authorName, content) -> {
+            writer.write(Integer.toString(id));
+            writer.write(',');
+            writeCsvField(writer, title);
+            writer.write(',');
+            writer.write(Integer.toString(userId));
+            writer.write(',');
+            writeCsvField(writer, authorName);
+            writer.write(',');
+            if (content != null) {
+                writer.write('"');
+                for (int n; (n = content.read(buffer)) != -1; ) {
+                    writeCsvEscaped(writer, buffer, n);
+                }
+                writer.write('"');
+            }
+            writer.write("\r\n");
+            if (++rows[0] % EXPORT_FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        });
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write('"');
+        writeCsvEscaped(writer, value.toCharArray(), value.length());
+        writer.write('"');
+    }
+
+    /**
+     * RFC 4180：字段整体加引号，字段内的双引号写两次
+     */
+    private static void writeCsvEscaped(Writer writer, char[] chars, int length) throws IOException {
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == '"') {
+                writer.write(chars, start, i - start + 1);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(chars, start, length - start);
+    }
+}
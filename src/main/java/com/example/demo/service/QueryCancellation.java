@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 一次异步查询的取消句柄
+ * <p>
+ * 执行线程开始时登记自己和正在执行的 Statement；超时后由另一个线程调用 cancel()，
+ * 通过 Statement.cancel() 让数据库中止正在执行的 SQL（MySQL 会发送 KILL QUERY），并中断执行线程
+ * （用于打断 Thread.sleep 或在连接池上的等待）。尚未开始执行的任务被取消后直接跳过。
+ */
+class QueryCancellation {
+
+    private Thread runner;
+    private Statement statement;
+    private boolean cancelled;
+    private boolean finished;
+
+    /**
+     * 执行线程开始执行任务时调用，已被取消则返回 false
+     */
+    synchronized boolean start() {
+        if (cancelled) {
+            return false;
+        }
+        runner = Thread.currentThread();
+        return true;
+    }
+
+    /**
+     * 登记即将执行的 Statement，已被取消则直接抛出异常
+     */
+    synchronized void register(Statement stmt) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled before execution");
+        }
+        statement = stmt;
+    }
+
+    synchronized void finish() {
+        finished = true;
+        runner = null;
+        statement = null;
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (finished) {
+            return;
+        }
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // Statement 可能已经执行完毕或已关闭
+            }
+        }
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RoleCountDto;
+import com.example.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存中的 role -> 用户数 计数器（物化的 GROUP BY role）
+ * <p>
+ * 启动时从数据库加载一次，之后由 UserService 在每次创建、修改角色、删除提交后增量更新，
+ * /user/countByRole 读取时无需访问数据库。每个角色一个 LongAdder，并发写入不会争用同一个计数器。
+ * <p>
+ * 绕过 UserService / UserBatchService 的写入（TransactionExperimentService 的实验接口、直接改库等）会造成偏差，
+ * 由定时对账任务按数据库结果纠正。对账查询期间如果有增量更新，本轮结果可能已过时，直接跳过等待下一轮。
+ * <p>
+ * 启动时 Web 服务器已经在接收写入，加载可能因此被跳过：只有第一次对账成功写回之后计数器才可用（ready），
+ * 在此之前 UserService 仍走数据库查询，不会用只含启动期间增量的计数作答。
+ */
+@Service
+public class RoleCountIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleCountIndex.class);
+
+    /** 启动加载遇到并发写入时的最多尝试次数 */
+    private static final int SEED_ATTEMPTS = 5;
+
+    private final UserRepository userRepository;
+    // 对账以主库为准：读写分离时只读事务会被路由到可能有延迟的从库，这里用读写事务读取
+    private final TransactionTemplate primaryTransaction;
+    // 按角色名排序，与 ORDER BY role 的结果顺序一致
+    private final ConcurrentSkipListMap<String, LongAdder> counts = new ConcurrentSkipListMap<>();
+    // 每次增量更新或对账纠正加一，对账时用来判断查询期间是否有并发写入，也作为 /user/countByRole 的 ETag
+    private final AtomicLong updateSequence = new AtomicLong();
+    // 进程启动时间，与 updateSequence 一起组成 ETag，重启后计数从 0 开始也不会与旧的 ETag 相同
+    private final long epoch = System.currentTimeMillis();
+    // 增量更新之间共享读锁互不阻塞；对账写回时持有写锁，避免覆盖掉同时发生的增量
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder correctionCount = new LongAdder();
+
+    private volatile boolean ready;
+    private volatile Instant lastReconciledAt;
+    private volatile Map<String, Long> lastDrift = Map.of();
+
+    public RoleCountIndex(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 应用启动完成（Flyway 迁移之后）加载初始计数，加载完成前 UserService 仍走数据库查询；
+     * 每次都遇到并发写入时暂不启用，由之后第一次成功的定时对账启用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        for (int attempt = 1; !tryReconcile(); attempt++) {
+            if (attempt >= SEED_ATTEMPTS) {
+                logger.warn("角色计数加载 {} 次都遇到并发写入，暂由数据库查询提供，下次对账成功后启用", SEED_ATTEMPTS);
+                return;
+            }
+            logger.debug("加载期间有并发写入，重新加载角色计数");
+        }
+        logger.info("角色计数已加载: {}", snapshot());
+    }
+
+    /**
+     * 定时与数据库对账，纠正绕过 UserService 的写入造成的偏差
+     */
+    @Scheduled(initialDelayString = "${app.user.role-counts.reconcile-interval}",
+            fixedDelayString = "${app.user.role-counts.reconcile-interval}")
+    public void reconcile() {
+        if (!tryReconcile()) {
+            logger.debug("对账期间有并发写入，跳过本轮对账");
+        }
+    }
+
+    /**
+     * 用数据库结果覆盖计数，返回是否写回；查询期间有并发写入时放弃本轮。第一次写回后计数器才可用
+     */
+    boolean tryReconcile() {
+        long sequenceBefore = updateSequence.get();
+        List<RoleCountDto> actual = primaryTransaction.execute(status -> userRepository.countUsersByRoleUncached());
+
+        Map<String, Long> actualCounts = new HashMap<>();
+        for (RoleCountDto dto : actual) {
+            actualCounts.put(dto.role(), dto.userCount());
+        }
+        Map<String, Long> drift = new LinkedHashMap<>();
+        lock.writeLock().lock();
+        try {
+            if (updateSequence.get() != sequenceBefore) {
+                return false;
+            }
+            for (String role : counts.keySet()) {
+                actualCounts.putIfAbsent(role, 0L);
+            }
+            actualCounts.forEach((role, expected) -> {
+                LongAdder adder = counts.computeIfAbsent(role, r -> new LongAdder());
+                long delta = expected - adder.sum();
+                if (delta != 0) {
+                    adder.add(delta);
+                    drift.put(role, delta);
+                }
+            });
+            if (!drift.isEmpty()) {
+                updateSequence.incrementAndGet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (ready && !drift.isEmpty()) {
+            correctionCount.increment();
+            logger.warn("角色计数与数据库不一致，已纠正: {}", drift);
+        }
+        ready = true;
+        lastDrift = drift;
+        lastReconciledAt = Instant.now();
+        return true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 当前计数的强 ETag，计数发生任何变化后都会改变。应在读取计数之前获取：
+     * 读取期间发生的更新只会让响应比 ETag 更新，下次校验时 ETag 不一致，不会误返回 304
+     */
+    public String currentETag() {
+        return "\"roles-" + epoch + "-" + updateSequence.get() + "\"";
+    }
+
+    /**
+     * 所有用户数大于 0 的角色，按角色名排序
+     */
+    public List<RoleCountDto> countByRole() {
+        return countByRoleGreaterThan(0);
+    }
+
+    /**
+     * 用户数大于 minCount 的角色（与 HAVING COUNT(u) > :minCount 语义一致），只遍历角色，不访问数据库
+     */
+    public List<RoleCountDto> countByRoleGreaterThan(long minCount) {
+        return counts.entrySet().stream()
+                .map(entry -> new RoleCountDto(entry.getKey(), entry.getValue().sum()))
+                .filter(dto -> dto.userCount() > Math.max(minCount, 0))
+                .toList();
+    }
+
+    public void recordCreated(String role) {
+        apply(role, 1);
+    }
+
+    public void recordDeleted(String role) {
+        apply(role, -1);
+    }
+
+    public void recordRoleChanged(String oldRole, String newRole) {
+        if (!Objects.equals(oldRole, newRole)) {
+            apply(oldRole, -1);
+            apply(newRole, 1);
+        }
+    }
+
+    /**
+     * 在当前事务提交后才修改计数，回滚的写入不会计入
+     */
+    private void apply(String role, long delta) {
+        if (role == null) {
+            return;
+        }
+        Runnable update = () -> {
+            lock.readLock().lock();
+            try {
+                updateSequence.incrementAndGet();
+                counts.computeIfAbsent(role, r -> new LongAdder()).add(delta);
+            } finally {
+                lock.readLock().unlock();
+            }
+        };
+        AfterCommit.run(update);
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((role, adder) -> snapshot.put(role, adder.sum()));
+        return snapshot;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", ready);
+        status.put("roles", counts.size());
+        status.put("counts", snapshot());
+        status.put("lastReconciledAt", lastReconciledAt);
+        status.put("lastDrift", lastDrift);
+        status.put("correctionCount", correctionCount.sum());
+        return status;
+    }
+}
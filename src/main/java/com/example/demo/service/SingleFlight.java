@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按 key 合并同时进行的相同读取（single-flight）
+ * <p>
+ * 同一 key 第一个到达的调用者（leader）在自己的线程中执行查询，查询期间到达的调用者只等待并共享它的结果或异常，
+ * 不会各自再借一个数据库连接。查询结束即从表中移除，之后到达的调用者重新查询，因此不缓存结果，也不会返回查询结束前就已存在的旧值。
+ * <p>
+ * 取消：等待者被中断只放弃自己的等待，不影响 leader；leader 因自身被中断（请求超时取消等）而失败时，
+ * 等待者不接受这个失败，而是重新竞争 leader 再查一次。
+ * 写入：forget 把 key 从表中移除，写入提交之后到达的调用者不会加入提交之前开始的查询。
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder sharedFailures = new LongAdder();
+    private final LongAdder leaderCancelled = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    V execute(K key, Supplier<V> loader) {
+        while (true) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, loader);
+            }
+            try {
+                V value = existing.get();
+                saved.increment();
+                return value;
+            } catch (InterruptedException e) {
+                abandoned.increment();
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.SERVICE_BUSY);
+            } catch (CancellationException e) {
+                // leader 被取消，重新竞争 leader
+            } catch (ExecutionException e) {
+                sharedFailures.increment();
+                saved.increment();
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> flight, Supplier<V> loader) {
+        executed.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            if (Thread.currentThread().isInterrupted()) {
+                leaderCancelled.increment();
+                flight.cancel(false);
+            } else {
+                flight.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 之后到达的调用者不再加入正在进行的查询，在写入提交后调用
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    void forgetAll() {
+        inFlight.clear();
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * saved 为省下的查询次数（共享了 leader 结果或异常的调用数），executed 为实际执行的查询次数
+     */
+    Map<String, Object> getStatus() {
+        long savedCount = saved.sum();
+        long executedCount = executed.sum();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("inFlight", inFlight.size());
+        status.put("executed", executedCount);
+        status.put("saved", savedCount);
+        status.put("savedRatio", savedCount + executedCount == 0 ? 0.0
+                : Math.round((double) savedCount / (savedCount + executedCount) * 1000) / 1000.0);
+        status.put("sharedFailures", sharedFailures.sum());
+        status.put("leaderCancelled", leaderCancelled.sum());
+        status.put("abandoned", abandoned.sum());
+        return status;
+    }
+}
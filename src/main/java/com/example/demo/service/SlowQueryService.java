@@ -1,6 +1,10 @@
 package com.example.demo.service;
 
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
 import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -8,6 +12,17 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class SlowQueryService {
@@ -15,9 +30,24 @@ public class SlowQueryService {
     private final DataSource dataSource;
     private final UserRepository userRepository;
 
-    public SlowQueryService(DataSource dataSource, UserRepository userRepository) {
+    // 异步查询专用线程池：线程数与连接池大小一致，队列有界，满了直接拒绝而不是无限堆积线程
+    private final ThreadPoolExecutor queryExecutor;
+    private final Duration asyncTimeout;
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public SlowQueryService(DataSource dataSource, UserRepository userRepository,
+                            @Value("${app.slow-query.async.pool-size}") int poolSize,
+                            @Value("${app.slow-query.async.queue-capacity}") int queueCapacity,
+                            @Value("${app.slow-query.async.timeout}") Duration asyncTimeout) {
         this.dataSource = dataSource;
         this.userRepository = userRepository;
+        this.asyncTimeout = asyncTimeout;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.queryExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "slow-query-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
     /**
@@ -67,4 +97,99 @@ public class SlowQueryService {
             return "查询失败: " + e.getMessage();
         }
     }
+
+    /**
+     * 异步慢查询：在专用线程池上执行，超时后通过 Statement.cancel() 中止 SQL
+     */
+    public CompletableFuture<String> slowQueryAsync(int sleepSeconds) {
+        return submit(cancellation -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT SLEEP(?), COUNT(*) FROM users")) {
+                cancellation.register(stmt);
+                stmt.setInt(1, sleepSeconds);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return "慢查询完成，耗时 " + sleepSeconds + " 秒，用户总数: " + rs.getInt(2);
+                }
+            }
+        });
+    }
+
+    /**
+     * 异步复杂查询：与 complexQuery 一样在持有连接期间执行耗时逻辑，超时后中断等待并取消 SQL
+     */
+    public CompletableFuture<String> complexQueryAsync() {
+        return submit(cancellation -> {
+            try (Connection conn = dataSource.getConnection()) {
+                // 模拟复杂业务逻辑
+                Thread.sleep(3000);
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users")) {
+                    cancellation.register(stmt);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        return "复杂查询完成，用户总数: " + rs.getLong(1);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 提交到专用线程池，并在 asyncTimeout 后取消仍未完成的查询
+     */
+    private CompletableFuture<String> submit(CancellableQuery query) {
+        QueryCancellation cancellation = new QueryCancellation();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            queryExecutor.execute(() -> {
+                if (!cancellation.start()) {
+                    return; // 排队期间已超时
+                }
+                try {
+                    future.complete(query.run(cancellation));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    cancellation.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+
+        CompletableFuture.delayedExecutor(asyncTimeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (future.completeExceptionally(new BusinessException(ErrorCode.QUERY_TIMEOUT))) {
+                timeoutCount.increment();
+                cancellation.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 异步查询线程池状态
+     */
+    public Map<String, Object> getAsyncExecutorStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("poolSize", queryExecutor.getMaximumPoolSize());
+        status.put("activeThreads", queryExecutor.getActiveCount());
+        status.put("queuedTasks", queryExecutor.getQueue().size());
+        status.put("queueRemainingCapacity", queryExecutor.getQueue().remainingCapacity());
+        status.put("completedTasks", queryExecutor.getCompletedTaskCount());
+        status.put("rejectedCount", rejectedCount.sum());
+        status.put("timeoutCount", timeoutCount.sum());
+        status.put("timeout", asyncTimeout.toString());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface CancellableQuery {
+        String run(QueryCancellation cancellation) throws SQLException, InterruptedException;
+    }
 }
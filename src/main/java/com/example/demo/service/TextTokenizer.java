@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 文章检索使用的分词器
+ * <p>
+ * 连续的字母/数字转为小写作为一个词（超过 MAX_TOKEN_LENGTH 的部分截断）；
+ * 中日韩文字没有空格分隔，按相邻两个字切分（bigram），单独出现的一个字作为一个词；其余字符都是分隔符。
+ * 按字符流读取，正文不需要先加载成完整的 String。
+ */
+final class TextTokenizer {
+
+    static final int MAX_TOKEN_LENGTH = 32;
+
+    private TextTokenizer() {
+    }
+
+    static void tokenize(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        try {
+            tokenize(new StringReader(text), consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void tokenize(Reader reader, Consumer<String> consumer) throws IOException {
+        StringBuilder word = new StringBuilder();
+        char previousCjk = 0; // 上一个中日韩字符，0 表示当前不在中日韩文字串中
+        boolean emittedBigram = false;
+        char[] buffer = new char[4096];
+        for (int n; (n = reader.read(buffer)) != -1; ) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (isCjk(c)) {
+                    emitWord(word, consumer);
+                    if (previousCjk != 0) {
+                        consumer.accept(new String(new char[]{previousCjk, c}));
+                        emittedBigram = true;
+                    }
+                    previousCjk = c;
+                    continue;
+                }
+                emitSingleCjk(previousCjk, emittedBigram, consumer);
+                previousCjk = 0;
+                emittedBigram = false;
+                if (Character.isLetterOrDigit(c)) {
+                    if (word.length() < MAX_TOKEN_LENGTH) {
+                        word.append(c);
+                    }
+                } else {
+                    emitWord(word, consumer);
+                }
+            }
+        }
+        emitSingleCjk(previousCjk, emittedBigram, consumer);
+        emitWord(word, consumer);
+    }
+
+    private static void emitWord(StringBuilder word, Consumer<String> consumer) {
+        if (!word.isEmpty()) {
+            consumer.accept(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void emitSingleCjk(char previousCjk, boolean emittedBigram, Consumer<String> consumer) {
+        if (previousCjk != 0 && !emittedBigram) {
+            consumer.accept(String.valueOf(previousCjk));
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
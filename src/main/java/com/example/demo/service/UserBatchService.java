@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.UserBatchCreateResponse;
+import com.example.demo.dto.UserBatchItemResult;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.repository.UserBatchRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 批量创建用户
+ * <p>
+ * 每个分块（chunk）在独立的事务中提交，一个分块失败不会影响其他分块；
+ * 单个条目的校验失败或用户名冲突只会体现在该条目的结果中，不会让整个批次失败。
+ * <p>
+ * 批量写入走 JdbcTemplate，绕过了 Hibernate，因此写入后需要手动清除按角色聚合的查询缓存，并更新角色计数。
+ */
+@Service
+public class UserBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBatchService.class);
+
+    private final UserBatchRepository userBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RoleCountIndex roleCountIndex;
+    private final UserNameIndex userNameIndex;
+    private final UserService userService;
+    private final int chunkSize;
+
+    public UserBatchService(UserBatchRepository userBatchRepository,
+                            TransactionTemplate transactionTemplate,
+                            Validator validator,
+                            EntityManagerFactory entityManagerFactory,
+                            RoleCountIndex roleCountIndex,
+                            UserNameIndex userNameIndex,
+                            UserService userService,
+                            @Value("${app.user.batch.chunk-size:500}") int chunkSize) {
+        this.userBatchRepository = userBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.entityManagerFactory = entityManagerFactory;
+        this.roleCountIndex = roleCountIndex;
+        this.userNameIndex = userNameIndex;
+        this.userService = userService;
+        this.chunkSize = chunkSize;
+    }
+
+    public UserBatchCreateResponse createUsers(List<UserCreateRequest> requests) {
+        UserBatchItemResult[] results = new UserBatchItemResult[requests.size()];
+
+        // 1. 逐条校验，并剔除批次内部重复的用户名（保留第一条）
+        List<Integer> pending = new ArrayList<>();
+        Set<String> seenNames = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UserCreateRequest request = requests.get(i);
+            Set<ConstraintViolation<UserCreateRequest>> violations = request == null ? Set.of() : validator.validate(request);
+            if (request == null || !violations.isEmpty()) {
+                String message = request == null ? "User cannot be null" : violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .collect(Collectors.joining("; "));
+                results[i] = failure(i, ErrorCode.VALIDATION_ERROR, message);
+            } else if (!seenNames.add(request.name())) {
+                results[i] = failure(i, ErrorCode.USER_NAME_DUPLICATED, "Duplicate name in batch: " + request.name());
+            } else {
+                pending.add(i);
+            }
+        }
+
+        // 2. 按分块写入
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            insertChunk(requests, chunk, results);
+        }
+
+        int created = (int) Arrays.stream(results).filter(UserBatchItemResult::success).count();
+        for (UserBatchItemResult result : results) {
+            if (result.success()) {
+                roleCountIndex.recordCreated(result.user().role());
+                userNameIndex.recordCreated(result.user().name());
+            }
+        }
+        if (created > 0) {
+            // 新增的用户不会影响已缓存的实体，只有聚合查询结果会过期
+            entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                    .evictQueryRegion(UserRepository.ROLE_COUNTS_CACHE_REGION);
+            userService.recordUsersCreated();
+        }
+        return new UserBatchCreateResponse(results.length, created, results.length - created, Arrays.asList(results));
+    }
+
+    private void insertChunk(List<UserCreateRequest> requests, List<Integer> chunk, UserBatchItemResult[] results) {
+        // 预先过滤掉数据库中已存在的用户名，避免整个批次因 uk_name 冲突而失败
+        Set<String> existingNames = userBatchRepository.findExistingNames(
+                chunk.stream().map(i -> requests.get(i).name()).toList());
+        List<Integer> toInsert = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            if (existingNames.contains(requests.get(i).name())) {
+                results[i] = failure(i, ErrorCode.USER_NAME_DUPLICATED, ErrorCode.USER_NAME_DUPLICATED.getMessage());
+            } else {
+                toInsert.add(i);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+
+        List<UserCreateRequest> users = toInsert.stream().map(requests::get).toList();
+        try {
+            List<Integer> ids = transactionTemplate.execute(status -> userBatchRepository.insertBatch(users));
+            for (int k = 0; k < toInsert.size(); k++) {
+                results[toInsert.get(k)] = success(toInsert.get(k), ids.get(k), users.get(k));
+            }
+        } catch (DataAccessException e) {
+            // 预检查之后仍可能出现冲突（并发写入、大小写不敏感的排序规则等），此时分块已整体回滚，逐条重试以定位失败项
+            logger.warn("批量插入失败，改为逐条插入 {} 条记录: {}", toInsert.size(), e.getMessage());
+            for (int i : toInsert) {
+                results[i] = insertSingle(i, requests.get(i));
+            }
+        }
+    }
+
+    private UserBatchItemResult insertSingle(int index, UserCreateRequest user) {
+        try {
+            Integer id = transactionTemplate.execute(status -> userBatchRepository.insertOne(user));
+            return success(index, id, user);
+        } catch (DuplicateKeyException e) {
+            return failure(index, ErrorCode.USER_NAME_DUPLICATED, ErrorCode.USER_NAME_DUPLICATED.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("插入用户失败: {}", user.name(), e);
+            return failure(index, ErrorCode.INTERNAL_SERVER_ERROR, ErrorCode.INTERNAL_SERVER_ERROR.getMessage());
+        }
+    }
+
+    private static UserBatchItemResult success(int index, int id, UserCreateRequest user) {
+        // 新插入行的 version 为列默认值 0
+        return new UserBatchItemResult(index, true, 200, "OK", new UserResponse(id, user.name(), user.role(), 0L));
+    }
+
+    private static UserBatchItemResult failure(int index, ErrorCode errorCode, String message) {
+        return new UserBatchItemResult(index, false, errorCode.getCode(), message, null);
+    }
+}
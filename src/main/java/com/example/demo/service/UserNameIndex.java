@@ -0,0 +1,386 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 用户名前缀补全的内存字典树
+ * <p>
+ * 字典树的节点存放在几个并行的基本类型数组中（字符、第一个子节点、下一个兄弟节点、该名字的用户数），
+ * 兄弟节点按字符排序，先序遍历即按字典序输出，查询只访问前缀路径和前 limit 个结果所在的子树。
+ * 前缀匹配不区分大小写，大小写不同的同名用户共用一个节点，返回仍然存在的写法中最先加入的一个。
+ * <p>
+ * 启动时从数据库加载，之后由 UserService / UserBatchService 在写入提交后增量更新。删除的名字只把计数减为 0，
+ * 节点仍然保留；定时重建会回收这些节点，并纠正绕过上述服务的写入造成的偏差。
+ * 重建期间如果有增量更新，本轮结果可能已过时，直接跳过等待下一轮。
+ * 第一次重建成功之前字典树不可用（ready 为 false），UserService 改为查询数据库。
+ */
+@Service
+public class UserNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserNameIndex.class);
+
+    /** 单次补全最多返回的名字数 */
+    public static final int MAX_SUGGESTIONS = 50;
+
+    /** 启动加载遇到并发写入时的最多尝试次数 */
+    private static final int SEED_ATTEMPTS = 5;
+
+    private final UserRepository userRepository;
+    // 重建以主库为准：读写分离时只读事务会被路由到可能有延迟的从库，丢掉刚创建的名字，这里用读写事务读取
+    private final TransactionTemplate primaryTransaction;
+    // 增量更新之间、以及与查询之间都通过该锁互斥；查询之间共享读锁
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 每次增量更新加一，重建时用来判断加载期间是否有并发写入
+    private final AtomicLong updateSequence = new AtomicLong();
+    private final LongAdder suggestCount = new LongAdder();
+    private final LongAdder suggestNanos = new LongAdder();
+
+    private NameTrie trie = new NameTrie(); // 由 lock 保护
+    private volatile boolean ready;
+    private volatile long lastBuildMillis;
+    private volatile Instant lastBuiltAt;
+
+    public UserNameIndex(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 应用启动完成（Flyway 迁移之后）加载全部用户名；每次都遇到并发写入时暂不启用，由之后第一次成功的定时重建启用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        for (int attempt = 1; !tryRebuild(); attempt++) {
+            if (attempt >= SEED_ATTEMPTS) {
+                logger.warn("用户名加载 {} 次都遇到并发写入，暂由数据库查询提供补全，下次重建成功后启用", SEED_ATTEMPTS);
+                return;
+            }
+            logger.debug("加载期间有并发写入，重新加载用户名");
+        }
+        logger.info("用户名字典树已加载: {} 个名字, {} 个节点, 约 {} KB", trie.nameCount, trie.nodeCount, estimateBytes() / 1024);
+    }
+
+    /**
+     * 定时从数据库重建，回收已删除名字留下的节点
+     */
+    @Scheduled(initialDelayString = "${app.user.suggest.rebuild-interval}",
+            fixedDelayString = "${app.user.suggest.rebuild-interval}")
+    public void rebuild() {
+        if (!tryRebuild()) {
+            logger.debug("重建期间有并发写入，跳过本轮重建");
+        }
+    }
+
+    private boolean tryRebuild() {
+        long start = System.nanoTime();
+        long sequenceBefore = updateSequence.get();
+        NameTrie rebuilt = new NameTrie();
+        primaryTransaction.executeWithoutResult(status -> {
+            try (Stream<String> names = userRepository.streamAllNames()) {
+                names.forEach(rebuilt::add);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            if (updateSequence.get() != sequenceBefore) {
+                return false;
+            }
+            trie = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastBuildMillis = (System.nanoTime() - start) / 1_000_000;
+        lastBuiltAt = Instant.now();
+        return true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 按字典序返回以 prefix 开头（不区分大小写）的前 limit 个用户名
+     */
+    public List<String> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return trie.collect(prefix.toLowerCase(Locale.ROOT), Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+        } finally {
+            lock.readLock().unlock();
+            suggestCount.increment();
+            suggestNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public void recordCreated(String name) {
+        apply(() -> trie.add(name));
+    }
+
+    public void recordDeleted(String name) {
+        apply(() -> trie.remove(name));
+    }
+
+    public void recordRenamed(String oldName, String newName) {
+        if (!Objects.equals(oldName, newName)) {
+            apply(() -> {
+                trie.remove(oldName);
+                trie.add(newName);
+            });
+        }
+    }
+
+    /**
+     * 在当前事务提交后才修改字典树，回滚的写入不会生效
+     */
+    private void apply(Runnable change) {
+        Runnable update = () -> {
+            lock.writeLock().lock();
+            try {
+                updateSequence.incrementAndGet();
+                change.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        AfterCommit.run(update);
+    }
+
+    /**
+     * 估算字典树占用的堆内存（字节），按 64 位 JVM、压缩指针、紧凑字符串计算
+     */
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            return trie.estimateBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        long suggestions = suggestCount.sum();
+        Map<String, Object> status = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            status.put("ready", ready);
+            status.put("names", trie.nameCount);
+            status.put("nodes", trie.nodeCount);
+            status.put("nodeCapacity", trie.labels.length);
+            long bytes = trie.estimateBytes();
+            status.put("estimatedBytes", bytes);
+            status.put("estimatedSize", String.format("%.2f MB", bytes / 1024.0 / 1024.0));
+        } finally {
+            lock.readLock().unlock();
+        }
+        status.put("lastBuildMillis", lastBuildMillis);
+        status.put("lastBuiltAt", lastBuiltAt);
+        status.put("suggestCount", suggestions);
+        status.put("avgSuggestNanos", suggestions == 0 ? 0 : suggestNanos.sum() / suggestions);
+        return status;
+    }
+
+    /**
+     * 以“第一个子节点 / 下一个兄弟节点”表示的字典树，节点 0 为根，-1 表示没有
+     */
+    private static final class NameTrie {
+
+        private char[] labels = new char[256];
+        private int[] firstChild = new int[256];
+        private int[] nextSibling = new int[256];
+        private int[] counts = new int[256];      // 以该节点结尾的用户数
+        private String[] names = new String[256]; // 以该节点结尾的名字（counts > 0 时有效）
+        // 出现过多种大小写写法的节点：写法 -> 用户数，按加入顺序排列；只有一种写法的节点不在其中
+        private final Map<Integer, Map<String, Integer>> spellings = new HashMap<>();
+        private int nodeCount = 1;
+        private int nameCount;                    // counts > 0 的节点数
+
+        NameTrie() {
+            firstChild[0] = -1;
+            nextSibling[0] = -1;
+        }
+
+        void add(String name) {
+            if (name == null) {
+                return;
+            }
+            String key = name.toLowerCase(Locale.ROOT);
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                node = childOrCreate(node, key.charAt(i));
+            }
+            if (counts[node]++ == 0) {
+                names[node] = name;
+                nameCount++;
+                return;
+            }
+            Map<String, Integer> variants = spellings.get(node);
+            if (variants == null && !name.equals(names[node])) {
+                // 第二种写法出现，之前的用户都是 names[node] 的写法
+                variants = new LinkedHashMap<>();
+                variants.put(names[node], counts[node] - 1);
+                spellings.put(node, variants);
+            }
+            if (variants != null) {
+                variants.merge(name, 1, Integer::sum);
+            }
+        }
+
+        void remove(String name) {
+            if (name == null) {
+                return;
+            }
+            int node = find(name.toLowerCase(Locale.ROOT));
+            if (node < 0 || counts[node] == 0) {
+                return;
+            }
+            Map<String, Integer> variants = spellings.get(node);
+            if (variants == null) {
+                if (!name.equals(names[node])) {
+                    return; // 没有这种写法，偏差由定时重建纠正
+                }
+            } else {
+                Integer count = variants.get(name);
+                if (count == null) {
+                    return;
+                }
+                if (count == 1) {
+                    variants.remove(name);
+                } else {
+                    variants.put(name, count - 1);
+                }
+                // 删掉的是当前展示的写法时，换成仍然存在的写法
+                names[node] = variants.keySet().iterator().next();
+                if (variants.size() == 1) {
+                    spellings.remove(node);
+                }
+            }
+            if (--counts[node] == 0) {
+                names[node] = null;
+                nameCount--;
+            }
+        }
+
+        private int find(String key) {
+            int node = 0;
+            for (int i = 0; i < key.length() && node >= 0; i++) {
+                char c = key.charAt(i);
+                int child = firstChild[node];
+                while (child >= 0 && labels[child] < c) {
+                    child = nextSibling[child];
+                }
+                node = child >= 0 && labels[child] == c ? child : -1;
+            }
+            return node;
+        }
+
+        /**
+         * 返回 parent 下字符为 c 的子节点，不存在时按字符顺序插入一个
+         */
+        private int childOrCreate(int parent, char c) {
+            int previous = -1;
+            int child = firstChild[parent];
+            while (child >= 0 && labels[child] < c) {
+                previous = child;
+                child = nextSibling[child];
+            }
+            if (child >= 0 && labels[child] == c) {
+                return child;
+            }
+            if (nodeCount == labels.length) {
+                int capacity = nodeCount + (nodeCount >> 1);
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            int created = nodeCount++;
+            labels[created] = c;
+            firstChild[created] = -1;
+            nextSibling[created] = child;
+            if (previous < 0) {
+                firstChild[parent] = created;
+            } else {
+                nextSibling[previous] = created;
+            }
+            return created;
+        }
+
+        /**
+         * 先序遍历前缀节点的子树，兄弟节点有序，得到的名字即按字典序排列
+         */
+        List<String> collect(String prefix, int limit) {
+            List<String> result = new ArrayList<>(Math.min(limit, 16));
+            int start = find(prefix);
+            if (start < 0) {
+                return result;
+            }
+            int[] stack = new int[64];
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0 && result.size() < limit) {
+                int node = stack[--top];
+                if (counts[node] > 0) {
+                    result.add(names[node]);
+                }
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                // 先压兄弟再压子节点，子节点先出栈；起点的兄弟不属于前缀子树
+                if (node != start && nextSibling[node] >= 0) {
+                    stack[top++] = nextSibling[node];
+                }
+                if (firstChild[node] >= 0) {
+                    stack[top++] = firstChild[node];
+                }
+            }
+            return result;
+        }
+
+        long estimateBytes() {
+            int capacity = labels.length;
+            long bytes = 5 * 16L                                   // 五个数组的对象头
+                    + align(2L * capacity) + 3 * align(4L * capacity) + align(4L * capacity); // char[]、三个 int[]、String[] 引用
+            for (int i = 0; i < nodeCount; i++) {
+                if (names[i] != null) {
+                    boolean latin1 = names[i].chars().allMatch(c -> c < 256);
+                    bytes += 24 + 16 + align((long) names[i].length() * (latin1 ? 1 : 2));
+                }
+            }
+            for (Map<String, Integer> variants : spellings.values()) {
+                bytes += 32 + 16 + 56 + variants.size() * (40L + 16 + 24 + 16); // HashMap.Node、Integer、LinkedHashMap 及其条目
+            }
+            return bytes;
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+}
@@ -2,83 +2,349 @@ package com.example.demo.service;
 
 import com.example.demo.common.BusinessException;
 import com.example.demo.common.ErrorCode;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.PostSummaryResponse;
 import com.example.demo.dto.RoleCountDto;
 import com.example.demo.dto.UserCreateRequest;
 import com.example.demo.dto.UserResponse;
+import com.example.demo.dto.UserPostCountRow;
+import com.example.demo.dto.UserPostSummaryRow;
 import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.dto.UserWithPostsResponse;
 import com.example.demo.mapper.UserMapper;
+import com.example.demo.model.Post;
 import com.example.demo.model.User;
+import com.example.demo.repository.PostRepository;
 import com.example.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true) // 默认只读事务，提高查询性能
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
+    /** keyset 分页单页最大条数 */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** 用户及文章列表中每个用户最多返回的文章数 */
+    public static final int MAX_POSTS_PER_USER = 50;
+
     private final UserRepository userRepository;
+    private final PostRepository postRepository;
     private final UserMapper userMapper;
+    private final RoleCountIndex roleCountIndex;
+    private final PostSearchIndex postSearchIndex;
+    private final UserNameIndex userNameIndex;
+    private final ETagRegistry eTagRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxUpdateAttempts;
+    private final Duration updateRetryBackoff;
+
+    // 合并同时到达的相同读取：等待者不开启事务、不借出连接，只共享 leader 的查询结果
+    private final SingleFlight<Integer, UserResponse> userReads = new SingleFlight<>();
+    private final SingleFlight<SearchKey, List<UserResponse>> searchReads = new SingleFlight<>();
 
-    public UserService(UserRepository userRepository, UserMapper userMapper) {
+    public UserService(UserRepository userRepository, PostRepository postRepository, UserMapper userMapper,
+                       RoleCountIndex roleCountIndex, PostSearchIndex postSearchIndex, UserNameIndex userNameIndex,
+                       ETagRegistry eTagRegistry, TransactionTemplate transactionTemplate,
+                       @Value("${app.user.update.max-attempts:3}") int maxUpdateAttempts,
+                       @Value("${app.user.update.retry-backoff:5ms}") Duration updateRetryBackoff) {
         this.userRepository = userRepository;
+        this.postRepository = postRepository;
         this.userMapper = userMapper;
+        this.roleCountIndex = roleCountIndex;
+        this.postSearchIndex = postSearchIndex;
+        this.userNameIndex = userNameIndex;
+        this.eTagRegistry = eTagRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxUpdateAttempts = maxUpdateAttempts;
+        this.updateRetryBackoff = updateRetryBackoff;
     }
 
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#id") // 命中缓存时不会借出数据库连接
+    @Transactional(propagation = Propagation.SUPPORTS) // 事务由合并后的 leader 开启
     public UserResponse getUserById(int id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
-        return userMapper.toResponse(user);
+        return coalesce(userReads, id, () -> {
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+            return userMapper.toResponse(user);
+        });
+    }
+
+    /**
+     * 同一 key 的并发读取只执行一次查询，leader 在只读事务中执行，用户不存在等异常同样共享。
+     * 已处于事务中时直接查询：事务内可能有尚未提交的写入，不能与其他线程共享结果
+     */
+    private <K, V> V coalesce(SingleFlight<K, V> flights, K key, Supplier<V> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        return flights.execute(key, () -> readOnlyTransaction.execute(status -> query.get()));
+    }
+
+    /**
+     * 用户写入提交后调用：之后到达的读取不再加入提交前开始的查询。
+     * 按ID的读取只忘掉该用户，按姓名和角色的查询无法判断是否受影响，全部忘掉
+     */
+    public void recordUserChanged(int id) {
+        AfterCommit.run(() -> {
+            userReads.forget(id);
+            searchReads.forgetAll();
+        });
+    }
+
+    /**
+     * 绕过 UserService 批量创建用户后调用，新用户只影响按姓名和角色的查询
+     */
+    public void recordUsersCreated() {
+        AfterCommit.run(searchReads::forgetAll);
     }
 
     @Transactional // 写操作需要读写事务
+    @CachePut(cacheNames = CacheConfig.USERS_CACHE, key = "#result.id") // 事务提交后写入缓存
     public UserResponse createUser(UserCreateRequest createRequest) {
         User user = userMapper.toEntity(createRequest);
         User savedUser = userRepository.save(user);
+        roleCountIndex.recordCreated(savedUser.getRole());
+        userNameIndex.recordCreated(savedUser.getName());
+        recordUserChanged(savedUser.getId());
         return userMapper.toResponse(savedUser);
     }
 
-    @Transactional // 写操作需要读写事务
-    public UserResponse updateUser(int id, UserUpdateRequest updateRequest) {
-        // 1. 查找用户，如果不存在则抛出异常
+    /**
+     * 乐观锁更新：expectedVersion 不为 null 时（来自 If-Match），只有当前版本与之相同才更新，否则直接返回冲突；
+     * 为 null 时与并发更新冲突后重新读取再应用，最多尝试 maxUpdateAttempts 次。
+     * 每次尝试在独立的事务中执行，读取走二级缓存，命中时整个更新只有一条 UPDATE ... WHERE id = ? AND version = ?。
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 事务由每次尝试自行开启，冲突回滚后才能重试
+    @CachePut(cacheNames = CacheConfig.USERS_CACHE, key = "#id") // 事务提交后刷新缓存
+    public UserResponse updateUser(int id, UserUpdateRequest updateRequest, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyUpdate(id, updateRequest, expectedVersion));
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null || attempt >= maxUpdateAttempts) {
+                    throw new BusinessException(ErrorCode.USER_UPDATE_CONFLICT);
+                }
+                logger.debug("更新用户 {} 时版本冲突，第 {} 次重试", id, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 随机退避 [0, attempt * updateRetryBackoff)，避免同时冲突的请求再次同时重试
+     */
+    private void backoff(int attempt) {
+        long maxNanos = updateRetryBackoff.toNanos() * attempt;
+        if (maxNanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(maxNanos)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.USER_UPDATE_CONFLICT);
+        }
+    }
+
+    private UserResponse applyUpdate(int id, UserUpdateRequest updateRequest, Long expectedVersion) {
+        // 1. 查找用户，如果不存在则抛出异常（二级缓存命中时不访问数据库）
         User existingUser = userRepository.findById(id)
                 .orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+        if (expectedVersion != null && !expectedVersion.equals(existingUser.getVersion())) {
+            throw new BusinessException(ErrorCode.USER_UPDATE_CONFLICT);
+        }
 
-        // 2. 更新用户信息
+        // 2. 更新用户信息，由脏检查生成带版本条件的 UPDATE
+        String oldRole = existingUser.getRole();
+        String oldName = existingUser.getName();
         existingUser.setName(updateRequest.name());
         existingUser.setRole(updateRequest.role());
 
-        // 3. 保存更新后的用户
-        User updatedUser = userRepository.save(existingUser);
+        // 3. 立即 flush：版本冲突在这里抛出，返回的 version 也是更新后的值
+        User updatedUser = userRepository.saveAndFlush(existingUser);
+        roleCountIndex.recordRoleChanged(oldRole, updatedUser.getRole());
+        userNameIndex.recordRenamed(oldName, updatedUser.getName());
+        eTagRegistry.recordUserChanged(id, updatedUser.getVersion());
+        recordUserChanged(id);
 
         // 4. 转换为 Response DTO 并返回
         return userMapper.toResponse(updatedUser);
     }
 
     @Transactional // 写操作需要读写事务
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id") // 事务提交后失效缓存
     public void deleteUserById(int id) {
-        // 1. 检查用户是否存在，不存在则抛出异常
-        if (!userRepository.existsById(id)) {
-            throw new BusinessException(ErrorCode.USER_NOT_FOUND);
-        }
-        // 2. 删除用户
-        userRepository.deleteById(id);
+        // 1. 检查用户是否存在，不存在则抛出异常（需要加载实体以获得角色）
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+        // 2. 删除用户（级联删除其文章）
+        userRepository.delete(user);
+        roleCountIndex.recordDeleted(user.getRole());
+        userNameIndex.recordDeleted(user.getName());
+        eTagRegistry.recordUserDeleted(id);
+        recordUserChanged(id);
+        postSearchIndex.recordDeleted(user.getPosts().stream().map(Post::getId).toList());
     }
 
+    /**
+     * 计数器加载完成后直接读内存，不访问数据库
+     */
     public List<RoleCountDto> countUsersByRole() {
+        if (roleCountIndex.isReady()) {
+            return roleCountIndex.countByRole();
+        }
         return userRepository.countUsersByRole();
     }
 
+    /**
+     * /user/countByRole 当前结果的 ETag，只读内存计数器，不开启事务；计数器尚未加载时返回 null
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String countUsersByRoleETag() {
+        return roleCountIndex.isReady() ? roleCountIndex.currentETag() : null;
+    }
+
     public List<RoleCountDto> countUsersByRoleHavingMinCount(long minCount) {
+        if (roleCountIndex.isReady()) {
+            return roleCountIndex.countByRoleGreaterThan(minCount);
+        }
         return userRepository.countUsersByRoleHavingMinCount(minCount);
     }
 
+    /**
+     * 用户名前缀补全，只读内存中的字典树，不开启事务也不借出数据库连接；字典树尚未加载完成时改为查询数据库，
+     * 与字典树一样不区分大小写，同名只返回一种写法
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<String> suggestUserNames(String prefix, int limit) {
+        if (userNameIndex.isReady()) {
+            return userNameIndex.suggest(prefix, limit);
+        }
+        int max = Math.min(Math.max(limit, 1), UserNameIndex.MAX_SUGGESTIONS);
+        String pattern = prefix.toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        Set<String> seen = new HashSet<>();
+        return userRepository.findNamesByPrefix(pattern, Limit.of(max)).stream()
+                .filter(name -> seen.add(name.toLowerCase(Locale.ROOT)))
+                .toList();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS) // 事务由合并后的 leader 开启
     public List<UserResponse> findUsersByNameAndRole(String name, String role) {
-        List<User> users = userRepository.findByNameAndRole(name, role);
-        return users.stream()
+        return coalesce(searchReads, new SearchKey(name, role), () -> userRepository.findByNameAndRole(name, role).stream()
+                .map(userMapper::toResponse)
+                .toList()); // 多个调用者共享同一个列表，必须不可变
+    }
+
+    /**
+     * keyset 分页查询：多查一条用于判断是否还有下一页
+     */
+    public CursorPage<UserResponse> listUsers(int cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<User> users = userRepository.findNextPage(cursor, Limit.of(pageSize + 1));
+
+        boolean hasMore = users.size() > pageSize;
+        List<UserResponse> items = users.stream()
+                .limit(pageSize)
                 .map(userMapper::toResponse)
                 .collect(Collectors.toList());
+        Integer nextCursor = hasMore ? items.get(items.size() - 1).id() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * 用户及其最新文章的 keyset 分页查询，无论页大小固定两条 SQL：
+     * 一条取本页用户，一条用窗口函数按用户截取最新 postsPerUser 篇文章摘要。
+     * 不访问 User.posts 集合，避免逐个用户懒加载（N+1）以及加载整篇 @Lob 正文。
+     */
+    public CursorPage<UserWithPostsResponse> listUsersWithPosts(int cursor, int size, int postsPerUser) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int postLimit = Math.min(Math.max(postsPerUser, 0), MAX_POSTS_PER_USER);
+        List<User> users = userRepository.findNextPage(cursor, Limit.of(pageSize + 1));
+
+        boolean hasMore = users.size() > pageSize;
+        List<User> page = users.subList(0, Math.min(users.size(), pageSize));
+
+        Map<Integer, List<PostSummaryResponse>> postsByUser = new HashMap<>();
+        Map<Integer, Long> postCounts = new HashMap<>();
+        if (!page.isEmpty()) {
+            List<Integer> userIds = page.stream().map(User::getId).toList();
+            if (postLimit > 0) {
+                for (UserPostSummaryRow row : postRepository.findLatestPostSummaries(userIds, postLimit)) {
+                    postsByUser.computeIfAbsent(row.userId(), id -> new ArrayList<>())
+                            .add(new PostSummaryResponse(row.postId(), row.title()));
+                    postCounts.put(row.userId(), row.userPostCount());
+                }
+            } else {
+                // 不取文章摘要时窗口查询一行都不返回，文章总数改为单独分组统计
+                for (UserPostCountRow row : postRepository.countPostsByUserIds(userIds)) {
+                    postCounts.put(row.userId(), row.postCount());
+                }
+            }
+        }
+
+        List<UserWithPostsResponse> items = page.stream()
+                .map(user -> new UserWithPostsResponse(user.getId(), user.getName(), user.getRole(),
+                        postCounts.getOrDefault(user.getId(), 0L),
+                        postsByUser.getOrDefault(user.getId(), List.of())))
+                .collect(Collectors.toList());
+        Integer nextCursor = hasMore ? items.get(items.size() - 1).id() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * 流式遍历 id > cursor 的所有用户，逐条交给 consumer 处理。
+     * 整个遍历都在同一个只读事务内完成，内存占用与表大小无关。
+     */
+    public void forEachUserAfter(int cursor, Consumer<UserResponse> consumer) {
+        try (Stream<UserResponse> users = userRepository.streamAfter(cursor)) {
+            users.forEach(consumer);
+        }
+    }
+
+    /**
+     * 合并读取的统计，saved 为省下的数据库查询次数
+     */
+    public Map<String, Object> getSingleFlightStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("userById", userReads.getStatus());
+        status.put("searchByNameAndRole", searchReads.getStatus());
+        return status;
+    }
+
+    private record SearchKey(String name, String role) {
     }
 }
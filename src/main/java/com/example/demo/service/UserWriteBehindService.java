@@ -0,0 +1,480 @@
+package com.example.demo.service;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.config.WriteBehindProperties;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.model.User;
+import com.example.demo.monitor.LatencyHistograms.LatencyStats;
+import com.example.demo.repository.UserBatchRepository;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 用户更新的写后缓冲（app.user.write-behind.enabled=true 时启用）
+ * <p>
+ * 不带 If-Match 的 PUT /user/{id} 只把更新写入预写日志（fsync 后）并放进待刷写表即返回 202。
+ * 待刷写表按用户ID合并，一个刷写间隔内对同一用户的多次更新只保留最后一次；
+ * 刷写线程每个间隔把整张表取走，在一个事务中先 SELECT ... FOR UPDATE 取得旧值，再以一个 JDBC batch 执行全部 UPDATE。
+ * <p>
+ * 待刷写表的用户数有上限：满时立即触发刷写，新的更新最多等待 enqueue-timeout，之后返回 503。
+ * 关闭时（Web 服务器停止接收请求之后）把剩余的更新全部刷写；数据库不可用导致刷写失败时，
+ * 更新留在预写日志中，下次启动时重放。
+ * <p>
+ * JDBC 更新绕过了 Hibernate，提交后手动失效 users 缓存、User 二级缓存和按角色聚合的查询缓存，
+ * 并像 UserService 一样更新角色计数、用户名字典树和 ETag 登记表。
+ * 刷写之前 GET /user/{id} 读到的仍是旧值；带 If-Match 的更新和删除会先等待该用户的待刷写更新落库。
+ */
+public class UserWriteBehindService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserWriteBehindService.class);
+
+    /** 在 Web 服务器之后停止（停止顺序按 phase 从大到小），关闭时不会再有新的更新进来 */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final UserService userService;
+    private final UserBatchRepository userBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RoleCountIndex roleCountIndex;
+    private final UserNameIndex userNameIndex;
+    private final ETagRegistry eTagRegistry;
+    private final WriteBehindProperties properties;
+    private final WriteBehindJournal journal;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private Map<Integer, UserUpdateRequest> pending = new LinkedHashMap<>();
+    private Map<Integer, UserUpdateRequest> flushing = Map.of();
+    private boolean accepting;
+
+    private final ReentrantLock flushLock = new ReentrantLock(); // 同一时间只有一次刷写
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder missingRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final Histogram flushLatency = new ConcurrentHistogram(3);
+    private final Histogram batchSizes = new ConcurrentHistogram(3);
+    private volatile Instant lastFlushAt;
+    private volatile String lastError;
+
+    public UserWriteBehindService(UserService userService, UserBatchRepository userBatchRepository,
+                                  TransactionTemplate transactionTemplate, CacheManager cacheManager,
+                                  EntityManagerFactory entityManagerFactory, RoleCountIndex roleCountIndex,
+                                  UserNameIndex userNameIndex, ETagRegistry eTagRegistry,
+                                  ObjectMapper objectMapper, WriteBehindProperties properties) throws IOException {
+        this.userService = userService;
+        this.userBatchRepository = userBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.roleCountIndex = roleCountIndex;
+        this.userNameIndex = userNameIndex;
+        this.eTagRegistry = eTagRegistry;
+        this.properties = properties;
+        this.journal = new WriteBehindJournal(properties.journalDir(), objectMapper);
+    }
+
+    /**
+     * 接收一次更新：用户不存在时返回 404（通常命中 users 缓存），否则写入预写日志并放入待刷写表。
+     * 返回值为更新后的姓名和角色，版本号要到刷写后才确定，因此为 null
+     */
+    public UserResponse submit(int id, UserUpdateRequest update) {
+        userService.getUserById(id);
+
+        WriteBehindJournal.Position position;
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + properties.enqueueTimeout().toNanos();
+            while (accepting && !pending.containsKey(id) && pending.size() >= properties.maxPending()) {
+                requestFlush();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new BusinessException(ErrorCode.SERVICE_BUSY);
+                }
+                notFull.awaitNanos(remaining);
+            }
+            if (!accepting) {
+                rejected.increment();
+                throw new BusinessException(ErrorCode.SERVICE_BUSY);
+            }
+            position = journal.append(id, update);
+            if (pending.put(id, update) != null) {
+                coalesced.increment();
+            }
+            submitted.increment();
+            if (pending.size() >= properties.maxPending()) {
+                requestFlush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入预写日志失败", e);
+        } finally {
+            lock.unlock();
+        }
+
+        // fsync 在锁外进行，同一时刻到达的请求共用一次 fsync
+        try {
+            journal.sync(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入预写日志失败", e);
+        }
+        return new UserResponse(id, update.name(), update.role(), null);
+    }
+
+    /**
+     * 等待该用户已确认的更新落库，在同步更新或删除该用户之前调用，避免随后的刷写覆盖同步写入的结果
+     */
+    public void awaitFlushed(int id) {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + properties.enqueueTimeout().toNanos();
+            while (pending.containsKey(id) || flushing.containsKey(id)) {
+                requestFlush();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new BusinessException(ErrorCode.SERVICE_BUSY);
+                }
+                flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService executor = flusher;
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * 取走待刷写表并写入数据库，返回本次取走的更新数
+     */
+    int flush() {
+        flushRequested.set(false);
+        flushLock.lock();
+        try {
+            Map<Integer, UserUpdateRequest> batch;
+            Path sealedSegment;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                sealedSegment = journal.rotate(); // 封存的段恰好包含 batch 中的全部更新
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = batch;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            boolean written = false;
+            try {
+                write(batch);
+                written = true;
+            } catch (RuntimeException e) {
+                failedFlushes.increment();
+                lastError = e.getMessage();
+                logger.warn("写后缓冲刷写 {} 条更新失败，放回待刷写表等待下次重试: {}", batch.size(), e.getMessage());
+                requeue(batch);
+            }
+            if (sealedSegment != null) {
+                journal.delete(sealedSegment); // 写入成功，或已经重新写入当前段
+            }
+            if (written) {
+                flushes.increment();
+                flushLatency.recordValue(Math.max(1, (System.nanoTime() - start) / 1_000));
+                batchSizes.recordValue(batch.size());
+                lastFlushAt = Instant.now();
+            }
+            return batch.size();
+        } catch (IOException e) {
+            logger.error("写后缓冲预写日志操作失败", e);
+            return 0;
+        } finally {
+            lock.lock();
+            try {
+                flushing = Map.of();
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 一个事务、一个 JDBC batch 写入整批更新；违反唯一约束（改名冲突）时整批回滚，改为逐条写入并丢弃失败的条目
+     */
+    private void write(Map<Integer, UserUpdateRequest> batch) {
+        try {
+            applied(batch, transactionTemplate.execute(status -> apply(batch)));
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("写后缓冲批量更新违反约束，改为逐条写入 {} 条: {}", batch.size(), e.getMessage());
+            batch.forEach((id, update) -> {
+                Map<Integer, UserUpdateRequest> single = Map.of(id, update);
+                try {
+                    applied(single, transactionTemplate.execute(status -> apply(single)));
+                } catch (DataIntegrityViolationException rowFailure) {
+                    failedRows.increment();
+                    logger.warn("丢弃写后缓冲中的用户 {} 更新（name={}）: {}", id, update.name(), rowFailure.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 在事务内执行：锁定并读取旧值，批量更新，登记提交后生效的计数器、字典树和 ETag 变更；返回旧值
+     */
+    private Map<Integer, UserResponse> apply(Map<Integer, UserUpdateRequest> batch) {
+        Map<Integer, UserResponse> current = userBatchRepository.lockByIds(batch.keySet());
+        Map<Integer, UserUpdateRequest> existing = new LinkedHashMap<>();
+        batch.forEach((id, update) -> {
+            if (current.containsKey(id)) {
+                existing.put(id, update);
+            }
+        });
+        List<Integer> updated = userBatchRepository.updateBatch(existing);
+        Map<Integer, UserResponse> oldValues = new LinkedHashMap<>();
+        for (Integer id : updated) {
+            UserResponse old = current.get(id);
+            UserUpdateRequest update = existing.get(id);
+            roleCountIndex.recordRoleChanged(old.role(), update.role());
+            userNameIndex.recordRenamed(old.name(), update.name());
+            eTagRegistry.recordUserChanged(id, old.version() + 1); // UPDATE 中 version = version + 1
+            userService.recordUserChanged(id);
+            oldValues.put(id, old);
+        }
+        return oldValues;
+    }
+
+    /**
+     * 提交之后失效缓存：users 缓存和 User 二级缓存按ID失效，角色变化时清除按角色聚合的查询缓存
+     */
+    private void applied(Map<Integer, UserUpdateRequest> batch, Map<Integer, UserResponse> oldValues) {
+        Cache users = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        boolean roleChanged = false;
+        for (Map.Entry<Integer, UserResponse> entry : oldValues.entrySet()) {
+            if (users != null) {
+                users.evict(entry.getKey());
+            }
+            entityManagerFactory.getCache().evict(User.class, entry.getKey());
+            roleChanged |= !entry.getValue().role().equals(batch.get(entry.getKey()).role());
+        }
+        if (roleChanged) {
+            entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                    .evictQueryRegion(UserRepository.ROLE_COUNTS_CACHE_REGION);
+        }
+        writtenRows.add(oldValues.size());
+        missingRows.add(batch.size() - oldValues.size());
+    }
+
+    /**
+     * 刷写失败时把未被更新的条目放回待刷写表并重新写入当前段，之后即可删除封存的旧段
+     */
+    private void requeue(Map<Integer, UserUpdateRequest> batch) throws IOException {
+        WriteBehindJournal.Position position = null;
+        lock.lock();
+        try {
+            Map<Integer, UserUpdateRequest> merged = new LinkedHashMap<>();
+            for (Map.Entry<Integer, UserUpdateRequest> entry : batch.entrySet()) {
+                if (!pending.containsKey(entry.getKey())) {
+                    position = journal.append(entry.getKey(), entry.getValue());
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+            merged.putAll(pending);
+            pending = merged;
+        } finally {
+            lock.unlock();
+        }
+        if (position != null) {
+            journal.sync(position);
+        }
+    }
+
+    /**
+     * 启动时重放上次未落库的更新：残留段按顺序合并后重新写入新段，再删除旧段
+     */
+    private void recover() throws IOException {
+        List<Path> segments = journal.segments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        Map<Integer, UserUpdateRequest> updates = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            updates.putAll(journal.read(segment));
+        }
+        lock.lock();
+        try {
+            WriteBehindJournal.Position position = null;
+            for (Map.Entry<Integer, UserUpdateRequest> entry : updates.entrySet()) {
+                position = journal.append(entry.getKey(), entry.getValue());
+                pending.put(entry.getKey(), entry.getValue());
+            }
+            if (position != null) {
+                journal.sync(position);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path segment : segments) {
+            journal.delete(segment);
+        }
+        recovered.add(updates.size());
+        logger.info("写后缓冲从 {} 个预写日志段中恢复了 {} 条未落库的更新", segments.size(), updates.size());
+    }
+
+    @Override
+    public void start() {
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("重放写后缓冲预写日志失败", e);
+        }
+        long intervalNanos = properties.flushInterval().toNanos();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, 0, intervalNanos, TimeUnit.NANOSECONDS);
+        lock.lock();
+        try {
+            accepting = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止接收更新，等待正在进行的刷写结束后把剩余的更新全部刷写
+     */
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            accepting = false;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        ScheduledExecutorService executor = flusher;
+        flusher = null;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int before = pendingCount();
+        flush();
+        int remaining = pendingCount();
+        if (remaining > 0) {
+            logger.warn("关闭时仍有 {} 条更新未能落库，已保留在预写日志中，下次启动时重放", remaining);
+        } else if (before > 0) {
+            logger.info("关闭前已刷写剩余的 {} 条更新", before);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 合并率 = 1 - 写入行数 / 确认的更新数，flushLatency 为一次刷写（一个事务）的耗时
+     */
+    public Map<String, Object> getStatus() {
+        long submittedCount = submitted.sum();
+        long written = writtenRows.sum() + missingRows.sum() + failedRows.sum();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", true);
+        status.put("flushInterval", properties.flushInterval().toString());
+        status.put("maxPending", properties.maxPending());
+        status.put("pending", pendingCount());
+        status.put("submitted", submittedCount);
+        status.put("coalesced", coalesced.sum());
+        status.put("rejected", rejected.sum());
+        status.put("recovered", recovered.sum());
+        status.put("flushes", flushes.sum());
+        status.put("writtenRows", writtenRows.sum());
+        status.put("missingRows", missingRows.sum());
+        status.put("failedRows", failedRows.sum());
+        status.put("failedFlushes", failedFlushes.sum());
+        status.put("coalescingRatio", submittedCount == 0 ? 0.0
+                : Math.round((1 - (double) Math.min(written, submittedCount) / submittedCount) * 1000) / 1000.0);
+        status.put("flushLatency", LatencyStats.of(flushLatency.copy()));
+        status.put("batchSize", Map.of(
+                "mean", Math.round(batchSizes.getMean() * 10) / 10.0,
+                "max", batchSizes.getMaxValue()));
+        status.put("journalBytes", journal.currentSize());
+        status.put("lastFlushAt", lastFlushAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+}
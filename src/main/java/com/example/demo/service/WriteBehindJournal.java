@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.UserUpdateRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 写后缓冲的预写日志
+ * <p>
+ * 每条更新以一行 JSON 追加到当前段文件，fsync 之后才向客户端确认。每次刷写前切换到新的段文件，
+ * 旧段中的更新全部落库后删除该段；进程崩溃后残留的段文件在下次启动时按顺序重放。
+ * 并发追加的 fsync 合并执行：一次 force 覆盖它之前写入的所有记录，高并发时 fsync 次数远少于更新次数。
+ * <p>
+ * append / rotate 由调用方加锁串行执行，sync 不需要持有调用方的锁。
+ */
+class WriteBehindJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private long nextSegmentNumber;
+    private Segment current;
+
+    WriteBehindJournal(Path directory, ObjectMapper objectMapper) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.objectMapper = objectMapper;
+        List<Path> existing = segments();
+        this.nextSegmentNumber = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+    }
+
+    /**
+     * 按写入顺序排列的段文件
+     */
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+    }
+
+    /**
+     * 读取段文件中的更新，同一用户后写的覆盖先写的；崩溃时写了一半的末行被跳过
+     */
+    Map<Integer, UserUpdateRequest> read(Path segment) throws IOException {
+        Map<Integer, UserUpdateRequest> updates = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Entry entry = objectMapper.readValue(line, Entry.class);
+                    updates.put(entry.id(), new UserUpdateRequest(entry.name(), entry.role()));
+                } catch (IOException e) {
+                    logger.warn("跳过无法解析的预写日志记录 {}: {}", segment.getFileName(), line);
+                }
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * 追加一条更新（尚未 fsync），返回调用 sync 时需要的位置
+     */
+    Position append(int id, UserUpdateRequest update) throws IOException {
+        if (current == null) {
+            current = new Segment(directory.resolve(SEGMENT_PREFIX + nextSegmentNumber++ + SEGMENT_SUFFIX));
+        }
+        byte[] json = objectMapper.writeValueAsBytes(new Entry(id, update.name(), update.role()));
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            current.channel.write(buffer);
+        }
+        return new Position(current, current.channel.position());
+    }
+
+    /**
+     * 等待 position 之前的记录写入磁盘
+     */
+    void sync(Position position) throws IOException {
+        position.segment.forceUpTo(position.offset);
+    }
+
+    /**
+     * 封存当前段并在下一次 append 时开启新段，返回被封存的段；当前段为空时返回 null
+     */
+    Path rotate() throws IOException {
+        Segment sealed = current;
+        current = null;
+        if (sealed == null) {
+            return null;
+        }
+        sealed.close();
+        return sealed.path;
+    }
+
+    void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    long currentSize() {
+        Segment segment = current;
+        return segment != null ? segment.size() : 0;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    record Position(Segment segment, long offset) {
+    }
+
+    private record Entry(int id, String name, String role) {
+    }
+
+    /**
+     * 一个段文件；forceUpTo 与 close 互斥，关闭前已经 force 过全部内容。
+     * 使用 ReentrantLock 而不是 synchronized，虚拟线程等待 fsync 时不会钉住载体线程
+     */
+    static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final ReentrantLock forceLock = new ReentrantLock();
+        private long forcedOffset;
+        private boolean closed;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        void forceUpTo(long offset) throws IOException {
+            forceLock.lock();
+            try {
+                if (closed || forcedOffset >= offset) {
+                    return;
+                }
+                long end = channel.size(); // 这次 force 覆盖到此为止已写入的全部记录
+                channel.force(false);
+                forcedOffset = end;
+            } finally {
+                forceLock.unlock();
+            }
+        }
+
+        void close() throws IOException {
+            forceLock.lock();
+            try {
+                if (!closed) {
+                    channel.force(false);
+                    channel.close();
+                    closed = true;
+                }
+            } finally {
+                forceLock.unlock();
+            }
+        }
+
+        long size() {
+            try {
+                return channel.size();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- 仅在 h2 profile 下执行：补充 H2 缺少的 MySQL 函数，使 /api/slow/query/{seconds} 等接口可以在嵌入式数据库上运行
+CREATE ALIAS IF NOT EXISTS SLEEP AS '
+int sleep(int seconds) throws InterruptedException {
+    Thread.sleep(seconds * 1000L);
+    return 0;
+}
+';
@@ -0,0 +1,2 @@
+-- 为 users 表添加乐观锁版本号，更新时以 WHERE id = ? AND version = ? 检测并发修改
+ALTER TABLE `users` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
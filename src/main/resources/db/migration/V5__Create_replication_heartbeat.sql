@@ -0,0 +1,8 @@
+-- 主从复制延迟检测：主库定时写入心跳（毫秒时间戳），从库读到的心跳落后多少即复制延迟多少
+CREATE TABLE `replication_heartbeat` (
+    `id` INT NOT NULL,
+    `beat_millis` BIGINT NOT NULL COMMENT '主库写入心跳时的毫秒时间戳',
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT INTO `replication_heartbeat` (`id`, `beat_millis`) VALUES (1, 0);
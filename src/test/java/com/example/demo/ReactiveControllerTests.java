@@ -0,0 +1,172 @@
+package com.example.demo;
+
+import com.example.demo.model.Post;
+import com.example.demo.model.User;
+import com.example.demo.repository.ReactiveReadRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /rx/* 接口：h2 profile 下 R2DBC 与 JPA 访问同一个内存库，用 JPA 写入数据，经异步分派检查响应式查询的结果。
+ * <p>
+ * R2DBC 连接池只有一个连接且等待时间很短，持有它的订阅不再请求下一行时，其他查询获取连接超时，应返回 503。
+ */
+@SpringBootTest(properties = {
+		// 覆盖命令行中可能指定的数据源，保证 JDBC 和 R2DBC 指向同一个内存库
+		"spring.datasource.url=jdbc:h2:mem:reactive_demo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"app.r2dbc.url=r2dbc:h2:mem:///reactive_demo?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"app.r2dbc.max-size=1",
+		"app.r2dbc.max-acquire-time=200ms"
+})
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+class ReactiveControllerTests {
+
+	private static final String ROLE = "reactive";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReactiveReadRepository reactiveReadRepository;
+
+	private final List<Integer> createdUserIds = new ArrayList<>();
+
+	private User author;
+
+	@BeforeEach
+	void createUserWithPosts() {
+		User user = new User(null, "rx_" + System.nanoTime(), ROLE);
+		for (int i = 0; i < 3; i++) {
+			Post post = new Post();
+			post.setTitle("rx post " + i);
+			post.setContent("content " + i);
+			post.setUser(user);
+			user.getPosts().add(post);
+		}
+		author = userRepository.save(user);
+		createdUserIds.add(author.getId());
+	}
+
+	@AfterEach
+	void deleteUsers() {
+		userRepository.deleteAllById(createdUserIds);
+		createdUserIds.clear();
+	}
+
+	@Test
+	void getUserReadsTheRowById() throws Exception {
+		mockMvc.perform(async(get("/rx/user/{id}", author.getId())))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.code").value(200))
+				.andExpect(jsonPath("$.data.id").value(author.getId()))
+				.andExpect(jsonPath("$.data.user_name").value(author.getName()))
+				.andExpect(jsonPath("$.data.role").value(ROLE))
+				.andExpect(jsonPath("$.data.version").value(author.getVersion()));
+	}
+
+	@Test
+	void missingUserIsNotFound() throws Exception {
+		mockMvc.perform(async(get("/rx/user/{id}", Integer.MAX_VALUE)))
+				.andExpect(status().isNotFound())
+				.andExpect(jsonPath("$.code").value(1001));
+	}
+
+	@Test
+	void searchMatchesNameAndRole() throws Exception {
+		mockMvc.perform(async(get("/rx/user/search").param("name", author.getName()).param("role", ROLE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.length()").value(1))
+				.andExpect(jsonPath("$.data[0].id").value(author.getId()));
+
+		mockMvc.perform(async(get("/rx/user/search").param("name", author.getName()).param("role", "other")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.length()").value(0));
+	}
+
+	@Test
+	void postsWithAuthorsAreStreamedAsNdjsonInIdOrder() throws Exception {
+		MvcResult result = mockMvc.perform(async(get("/rx/posts/authors").accept(MediaType.APPLICATION_NDJSON)))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+				.andReturn();
+
+		List<String> lines = result.getResponse().getContentAsString().lines()
+				.filter(line -> line.contains(author.getName()))
+				.toList();
+		assertEquals(List.of(
+				"{\"postTitle\":\"rx post 0\",\"authorName\":\"" + author.getName() + "\"}",
+				"{\"postTitle\":\"rx post 1\",\"authorName\":\"" + author.getName() + "\"}",
+				"{\"postTitle\":\"rx post 2\",\"authorName\":\"" + author.getName() + "\"}"), lines);
+	}
+
+	@Test
+	void acquireTimeoutIsServiceBusy() throws Exception {
+		// 只请求一行后停下：查询没有结束，唯一的连接一直被占用
+		CountDownLatch firstRow = new CountDownLatch(1);
+		BaseSubscriber<Object> holder = new BaseSubscriber<>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(Object value) {
+				firstRow.countDown();
+			}
+		};
+		reactiveReadRepository.streamPostsWithAuthorNames().subscribe(holder);
+		try {
+			assertTrue(firstRow.await(5, TimeUnit.SECONDS));
+
+			mockMvc.perform(async(get("/rx/user/{id}", author.getId())))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(jsonPath("$.code").value(2002));
+		} finally {
+			holder.dispose();
+		}
+
+		// 取消订阅后连接归还，之后的查询正常
+		mockMvc.perform(async(get("/rx/user/{id}", author.getId())))
+				.andExpect(status().isOk());
+	}
+
+	/**
+	 * 返回 Mono/Flux 的请求先进入异步模式，等结果就绪后再分派一次得到最终响应
+	 */
+	private RequestBuilder async(RequestBuilder builder) throws Exception {
+		MvcResult started = mockMvc.perform(builder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return asyncDispatch(started);
+	}
+}
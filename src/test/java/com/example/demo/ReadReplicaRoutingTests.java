@@ -0,0 +1,121 @@
+package com.example.demo;
+
+import com.example.demo.datasource.ReplicaLagMonitor;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 读写分离路由：两个内存 H2 分别充当主库和从库，两者之间没有复制，
+ * 通过直接改写从库的心跳模拟复制追上或落后，从查询结果判断只读事务实际读的是哪个库
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.flyway.locations=classpath:db/migration,classpath:db/h2",
+		"app.datasource.replica.enabled=true",
+		"app.datasource.replica.url=jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.username=sa",
+		"app.datasource.replica.password=",
+		"app.datasource.replica.migrate=true",
+		"app.datasource.replica.lag-check-interval=1h" // 只由测试手动触发检测
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTests {
+
+	private static final String ROLE = "replica_routing";
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private ReplicaLagMonitor lagMonitor;
+
+	@Autowired
+	@Qualifier("primaryDataSource")
+	private DataSource primaryDataSource;
+
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private DataSource replicaDataSource;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private JdbcTemplate primary;
+
+	private JdbcTemplate replica;
+
+	@BeforeEach
+	void setUp() {
+		primary = new JdbcTemplate(primaryDataSource);
+		replica = new JdbcTemplate(replicaDataSource);
+	}
+
+	@Test
+	void readOnlyTransactionsUseReplicaUntilItFallsBehind() {
+		String name = "routing_" + System.nanoTime();
+		userService.createUser(new UserCreateRequest(name, ROLE));
+
+		// 写入只到主库
+		assertEquals(1, countUsers(primary, name));
+		assertEquals(0, countUsers(replica, name));
+
+		// 从库心跳追上主库：只读查询读从库，看不到还没“复制”过去的用户
+		replicaCaughtUp();
+		assertTrue(lagMonitor.isReplicaUsable());
+		assertTrue(userService.findUsersByNameAndRole(name, ROLE).isEmpty());
+
+		// 从库心跳落后超过 max-lag：只读查询回退主库
+		replicaFallsBehind();
+		assertFalse(lagMonitor.isReplicaUsable());
+		assertEquals(1, userService.findUsersByNameAndRole(name, ROLE).size());
+	}
+
+	@Test
+	void poolsEndpointReportsEachPool() throws Exception {
+		replicaCaughtUp();
+
+		mockMvc.perform(get("/api/monitor/pools"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.readReplica").value(true))
+				.andExpect(jsonPath("$.routing.replicaUsable").value(true))
+				.andExpect(jsonPath("$.pools.primary.poolName").value("DemoHikariPool"))
+				.andExpect(jsonPath("$.pools.replica.poolName").value("DemoReplicaPool"));
+	}
+
+	private int countUsers(JdbcTemplate jdbcTemplate, String name) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE name = ?", Integer.class, name);
+	}
+
+	/**
+	 * 把主库最近一次写入的心跳复制到从库，再检测一次
+	 */
+	private void replicaCaughtUp() {
+		Long beat = primary.queryForObject("SELECT beat_millis FROM replication_heartbeat WHERE id = 1", Long.class);
+		replica.update("UPDATE replication_heartbeat SET beat_millis = ? WHERE id = 1", beat);
+		lagMonitor.check();
+	}
+
+	private void replicaFallsBehind() {
+		replica.update("UPDATE replication_heartbeat SET beat_millis = 0 WHERE id = 1");
+		lagMonitor.check();
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.demo;
+
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.ETagRegistry;
+import com.example.demo.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /user/{id} 的条件请求：ETag 登记表命中时返回 304，更新提交后旧 ETag 不再命中
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserConditionalGetTests {
+
+	private static final String ROLE = "conditional_get";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ETagRegistry eTagRegistry;
+
+	private UserResponse user;
+
+	@BeforeEach
+	void createUser() {
+		user = userService.createUser(new UserCreateRequest("cond_" + System.nanoTime(), ROLE));
+	}
+
+	@AfterEach
+	void deleteUser() {
+		// 数据库与其他测试类共享，不留下影响按角色统计断言的用户
+		userRepository.deleteById(user.id());
+	}
+
+	@Test
+	void notModifiedUntilTheUserIsUpdated() throws Exception {
+		String etag = "\"" + user.version() + "\"";
+		mockMvc.perform(get("/user/{id}", user.id()))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, etag));
+
+		mockMvc.perform(get("/user/{id}", user.id()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		String updatedETag = "\"" + (user.version() + 1) + "\"";
+		mockMvc.perform(put("/user/{id}", user.id())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"" + user.name() + "_r\",\"role\":\"" + ROLE + "\"}"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, updatedETag));
+
+		mockMvc.perform(get("/user/{id}", user.id()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, updatedETag))
+				.andExpect(jsonPath("$.data.user_name").value(user.name() + "_r"));
+
+		mockMvc.perform(get("/user/{id}", user.id()).header(HttpHeaders.IF_NONE_MATCH, updatedETag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void responseReadBeforeAnUpdateCannotRegisterItsStaleETag() throws Exception {
+		String staleETag = "\"" + user.version() + "\"";
+		userService.updateUser(user.id(), new UserUpdateRequest(user.name() + "_r", ROLE), null);
+
+		// 更新提交前开始的 GET 在提交之后才登记它读到的旧版本
+		eTagRegistry.rememberUser(user);
+		assertNull(eTagRegistry.knownUserETag(user.id()));
+
+		mockMvc.perform(get("/user/{id}", user.id()).header(HttpHeaders.IF_NONE_MATCH, staleETag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + (user.version() + 1) + "\""));
+
+		// 新版本登记之后，旧版本同样不能覆盖它
+		eTagRegistry.rememberUser(user);
+		assertEquals("\"" + (user.version() + 1) + "\"", eTagRegistry.knownUserETag(user.id()));
+	}
+}
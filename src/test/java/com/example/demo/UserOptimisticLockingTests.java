@@ -0,0 +1,130 @@
+package com.example.demo;
+
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * PUT /user/{id} 的乐观锁：If-Match 与当前版本比较，不带 If-Match 时冲突后重试，响应头 ETag 为更新后的版本
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserOptimisticLockingTests {
+
+	private static final String ROLE = "optimistic_locking";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private int id;
+
+	private long version;
+
+	@BeforeEach
+	void createUser() {
+		var user = userService.createUser(new UserCreateRequest("locking_" + System.nanoTime(), ROLE));
+		id = user.id();
+		version = user.version();
+	}
+
+	@AfterEach
+	void deleteUser() {
+		// 数据库与其他测试类共享，不留下影响按角色统计断言的用户
+		userRepository.deleteById(id);
+	}
+
+	@Test
+	void matchingIfMatchUpdatesAndReturnsTheNewETag() throws Exception {
+		update("\"" + version + "\"")
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + (version + 1) + "\""))
+				.andExpect(jsonPath("$.data.version").value(version + 1));
+
+		// 不带引号的版本号同样可以匹配
+		update(String.valueOf(version + 1))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + (version + 2) + "\""));
+	}
+
+	@Test
+	void staleIfMatchIsRejected() throws Exception {
+		update("\"" + version + "\"").andExpect(status().isOk());
+
+		update("\"" + version + "\"")
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code").value(1003));
+		assertEquals(version + 1, currentVersion());
+	}
+
+	@Test
+	void weakOrMalformedIfMatchNeverMatches() throws Exception {
+		update("W/\"" + version + "\"").andExpect(status().isConflict());
+		update("\"not-a-version\"").andExpect(status().isConflict());
+		assertEquals(version, currentVersion());
+	}
+
+	@Test
+	void updateWithoutIfMatchRetriesAfterAConflict() throws Exception {
+		// 先把用户读入二级缓存，再绕过 Hibernate 修改版本号：第一次尝试读到缓存中的旧版本，UPDATE ... AND version = ? 不匹配
+		userRepository.findById(id);
+		assertTrue(entityManagerFactory.getCache().contains(User.class, id));
+		jdbcTemplate.update("UPDATE users SET version = version + 1 WHERE id = ?", id);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long conflictsBefore = statistics.getOptimisticFailureCount();
+
+		update(null)
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + (version + 2) + "\""));
+
+		assertEquals(conflictsBefore + 1, statistics.getOptimisticFailureCount());
+		assertEquals(version + 2, currentVersion());
+	}
+
+	private ResultActions update(String ifMatch) throws Exception {
+		var request = put("/user/{id}", id)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"locking_" + System.nanoTime() + "\",\"role\":\"" + ROLE + "\"}");
+		if (ifMatch != null) {
+			request.header(HttpHeaders.IF_MATCH, ifMatch);
+		}
+		return mockMvc.perform(request);
+	}
+
+	private long currentVersion() {
+		return jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, id);
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.demo;
+
+import com.example.demo.model.Post;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 用 Hibernate 统计信息断言“用户及文章”读取路径执行的 SQL 条数，防止 N+1 查询悄悄回归
+ */
+@SpringBootTest(properties = "app.user.role-counts.reconcile-interval=1h") // 避免定时对账的查询计入统计
+@AutoConfigureMockMvc
+class UserPostsQueryCountTests {
+
+	private static final int USERS = 12;
+
+	private static final int POSTS_PER_USER = 4;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	private final List<Integer> createdUserIds = new ArrayList<>();
+
+	private int firstUserId;
+
+	@BeforeEach
+	void createUsersWithPosts() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		firstUserId = Integer.MAX_VALUE;
+		for (int i = 0; i < USERS; i++) {
+			User user = new User(null, "n_plus_one_" + System.nanoTime(), "query_count");
+			for (int j = 0; j < POSTS_PER_USER; j++) {
+				Post post = new Post();
+				post.setTitle("post " + j);
+				post.setContent("content " + j);
+				post.setUser(user);
+				user.getPosts().add(post);
+			}
+			int id = userRepository.save(user).getId();
+			createdUserIds.add(id);
+			firstUserId = Math.min(firstUserId, id);
+		}
+	}
+
+	@AfterEach
+	void deleteUsers() {
+		// 数据库与其他测试类共享，删除本类创建的用户（级联删除文章），不影响按角色统计的断言
+		userRepository.deleteAllById(createdUserIds);
+		createdUserIds.clear();
+	}
+
+	@Test
+	void listUsersWithPostsUsesTwoStatementsRegardlessOfPageSize() throws Exception {
+		statistics.clear();
+
+		mockMvc.perform(get("/user/withPosts")
+						.param("cursor", String.valueOf(firstUserId - 1))
+						.param("size", String.valueOf(USERS))
+						.param("postsPerUser", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items.length()").value(USERS))
+				.andExpect(jsonPath("$.data.items[0].postCount").value(POSTS_PER_USER))
+				.andExpect(jsonPath("$.data.items[0].posts.length()").value(2));
+
+		// 一条查本页用户，一条按用户截取文章摘要
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getCollectionFetchCount());
+	}
+
+	@Test
+	void listUsersWithoutPostsStillCountsThem() throws Exception {
+		statistics.clear();
+
+		mockMvc.perform(get("/user/withPosts")
+						.param("cursor", String.valueOf(firstUserId - 1))
+						.param("size", String.valueOf(USERS))
+						.param("postsPerUser", "0"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items.length()").value(USERS))
+				.andExpect(jsonPath("$.data.items[0].postCount").value(POSTS_PER_USER))
+				.andExpect(jsonPath("$.data.items[0].posts.length()").value(0));
+
+		// 一条查本页用户，一条按用户分组统计文章数
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void lazyPostsCollectionsAreBatchFetched() {
+		statistics.clear();
+
+		int postCount = transactionTemplate.execute(status -> {
+			List<User> users = userRepository.findNextPage(firstUserId - 1, Limit.of(USERS));
+			return users.stream().mapToInt(user -> user.getPosts().size()).sum();
+		});
+
+		assertEquals(USERS * POSTS_PER_USER, postCount);
+		// default_batch_fetch_size 大于本页用户数：一条查用户，一条 IN 查询初始化所有 posts 集合
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+}
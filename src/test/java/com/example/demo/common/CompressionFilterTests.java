@@ -0,0 +1,215 @@
+package com.example.demo.common;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 响应压缩：阈值、Vary、弱 ETag、分块写出和非阻塞写的委托，直接用 Mock 请求/响应驱动过滤器
+ */
+class CompressionFilterTests {
+
+	private static final int MIN_RESPONSE_SIZE = 2048;
+
+	private final CompressionFilter filter = new CompressionFilter(true, MIN_RESPONSE_SIZE, 6,
+			List.of("application/json", "text/*"));
+
+	@Test
+	void responsesBelowTheThresholdAreSentAsIsWithContentLength() throws Exception {
+		byte[] body = json(100);
+		MockHttpServletResponse response = execute(gzipRequest(), "application/json", body);
+
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(body.length, response.getContentLength());
+		assertEquals("\"1\"", response.getHeader(HttpHeaders.ETAG));
+		assertArrayEquals(body, response.getContentAsByteArray());
+	}
+
+	@Test
+	void largeResponsesAreGzippedWithVaryAndWeakETag() throws Exception {
+		byte[] body = json(10_000);
+		MockHttpServletResponse response = execute(gzipRequest(), "application/json", body);
+
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+		assertEquals("W/\"1\"", response.getHeader(HttpHeaders.ETAG));
+		assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+		assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+		assertEquals(1L, filter.getStatus().get("compressedResponses"));
+	}
+
+	@Test
+	void responsesAreNotCompressedWithoutGzipOrForOtherTypes() throws Exception {
+		byte[] body = json(10_000);
+
+		MockHttpServletResponse refused = execute(request("gzip;q=0, identity"), "application/json", body);
+		assertNull(refused.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(body, refused.getContentAsByteArray());
+
+		MockHttpServletResponse image = execute(gzipRequest(), "image/png", body);
+		assertNull(image.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("\"1\"", image.getHeader(HttpHeaders.ETAG));
+		assertArrayEquals(body, image.getContentAsByteArray());
+	}
+
+	@Test
+	void streamedResponsesAreDecidedByTheBytesActuallyWritten() throws Exception {
+		byte[] body = json(20_000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(gzipRequest(), response, (req, res) -> {
+			// 没有 Content-Length 的分块写出，与 StreamingResponseBody 相同
+			res.setContentType("text/plain");
+			ServletOutputStream out = res.getOutputStream();
+			for (int off = 0; off < body.length; off += 500) {
+				out.write(body, off, Math.min(500, body.length - off));
+				out.flush(); // 超过阈值之前的 flush 被推迟，之后立即写出已压缩的数据
+			}
+		});
+
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+		assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+	}
+
+	@Test
+	void smallStreamedResponsesGetAContentLength() throws Exception {
+		byte[] body = json(1000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(gzipRequest(), response, (req, res) -> {
+			res.setContentType("text/plain");
+			ServletOutputStream out = res.getOutputStream();
+			out.write(body, 0, 500);
+			out.flush();
+			out.write(body, 500, 500);
+		});
+
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(body.length, response.getContentLength());
+		assertArrayEquals(body, response.getContentAsByteArray());
+	}
+
+	@Test
+	void acceptEncodingNegotiation() {
+		assertTrue(CompressionFilter.acceptsGzip("gzip, deflate, br"));
+		assertTrue(CompressionFilter.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+		assertTrue(CompressionFilter.acceptsGzip("*"));
+		assertFalse(CompressionFilter.acceptsGzip("gzip;q=0, *"));
+		assertFalse(CompressionFilter.acceptsGzip("identity"));
+		assertFalse(CompressionFilter.acceptsGzip(null));
+	}
+
+	@Test
+	void nonBlockingWritesDelegateToTheWrappedOutputStream() throws Exception {
+		NonBlockingResponse response = new NonBlockingResponse(new MockHttpServletResponse());
+		WriteListener listener = new WriteListener() {
+			@Override
+			public void onWritePossible() {
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+		};
+		filter.doFilter(gzipRequest(), response, (req, res) -> {
+			ServletOutputStream out = res.getOutputStream();
+			out.setWriteListener(listener);
+			assertSame(listener, response.listener);
+			assertTrue(out.isReady());
+			response.ready = false;
+			assertFalse(out.isReady());
+		});
+	}
+
+	private MockHttpServletResponse execute(MockHttpServletRequest request, String contentType, byte[] body) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chain = (req, res) -> {
+			HttpServletResponse httpResponse = (HttpServletResponse) res;
+			httpResponse.setContentType(contentType);
+			httpResponse.setHeader(HttpHeaders.ETAG, "\"1\"");
+			httpResponse.setContentLength(body.length);
+			httpResponse.getOutputStream().write(body);
+		};
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private static MockHttpServletRequest gzipRequest() {
+		return request("gzip, deflate");
+	}
+
+	private static MockHttpServletRequest request(String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user");
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		return request;
+	}
+
+	private static byte[] json(int length) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; json.length() < length - 1; i++) {
+			json.append("{\"id\":").append(i).append("},");
+		}
+		json.setLength(length - 1);
+		return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * 输出流的就绪状态可控、记录注册的 WriteListener
+	 */
+	private static final class NonBlockingResponse extends HttpServletResponseWrapper {
+
+		private final ServletOutputStream outputStream;
+		private volatile boolean ready = true;
+		private WriteListener listener;
+
+		NonBlockingResponse(MockHttpServletResponse response) throws IOException {
+			super(response);
+			ServletOutputStream delegate = response.getOutputStream();
+			this.outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					delegate.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return ready;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					listener = writeListener;
+				}
+			};
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return outputStream;
+		}
+	}
+}
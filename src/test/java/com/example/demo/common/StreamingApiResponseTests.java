@@ -0,0 +1,56 @@
+package com.example.demo.common;
+
+import com.example.demo.dto.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 流式输出的列表响应与 ApiResponse.success(List) 序列化结果逐字节一致
+ */
+class StreamingApiResponseTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void envelopeMatchesTheMaterializedResponse() throws IOException {
+		List<UserResponse> users = List.of(
+				new UserResponse(1, "alice", "admin", 0L),
+				new UserResponse(2, "bob \"the builder\"", "dev", 3L));
+
+		assertEquals(objectMapper.writeValueAsString(ApiResponse.success(users)), stream(users::forEach));
+	}
+
+	@Test
+	void emptyListIsWrittenAsAnEmptyArray() throws IOException {
+		assertEquals(objectMapper.writeValueAsString(ApiResponse.success(List.of())), stream(action -> {
+		}));
+	}
+
+	@Test
+	void failureAfterTheFirstItemLeavesTheJsonUnterminated() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamingApiResponse.ItemSource<UserResponse> source = action -> {
+			action.accept(new UserResponse(1, "alice", "admin", 0L));
+			throw new IllegalStateException("connection lost");
+		};
+
+		assertThrows(IllegalStateException.class,
+				() -> StreamingApiResponse.success(objectMapper, UserResponse.class, source).writeTo(out));
+		assertFalse(out.toString(StandardCharsets.UTF_8).endsWith("]}"));
+	}
+
+	private String stream(StreamingApiResponse.ItemSource<UserResponse> source) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamingApiResponse.success(objectMapper, UserResponse.class, source).writeTo(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * users 缓存按版本号合并：未命中时读到的旧版本晚于更新写入缓存，不会覆盖新版本
+ */
+class UserCacheManagerTests {
+
+	private final UserCacheManager cacheManager = new UserCacheManager();
+
+	@Test
+	void olderVersionDoesNotOverwriteNewer() {
+		Cache users = cacheManager.getCache(CacheConfig.USERS_CACHE);
+
+		users.put(1, new UserResponse(1, "alice_renamed", "dev", 1L)); // updateUser 提交后写入
+		users.put(1, new UserResponse(1, "alice", "dev", 0L)); // 更新前开始的读取晚到
+
+		assertEquals(new UserResponse(1, "alice_renamed", "dev", 1L), users.get(1, UserResponse.class));
+	}
+
+	@Test
+	void newerAndEqualVersionsReplaceTheEntry() {
+		Cache users = cacheManager.getCache(CacheConfig.USERS_CACHE);
+
+		users.put(1, new UserResponse(1, "alice", "dev", 0L));
+		users.put(1, new UserResponse(1, "alice_renamed", "dev", 1L));
+		assertEquals("alice_renamed", users.get(1, UserResponse.class).name());
+
+		users.put(1, new UserResponse(1, "alice_again", "dev", 1L));
+		assertEquals("alice_again", users.get(1, UserResponse.class).name());
+
+		users.evict(1);
+		assertNull(users.get(1));
+	}
+
+	@Test
+	void otherCachesUseOrdinaryPut() {
+		Cache other = cacheManager.getCache("other");
+
+		other.put(1, new UserResponse(1, "alice_renamed", "dev", 1L));
+		other.put(1, new UserResponse(1, "alice", "dev", 0L));
+
+		assertEquals("alice", other.get(1, UserResponse.class).name());
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 连接泄漏回收：不启动 Spring，与生产环境一样 LeakTrackingDataSource 包在一个许可的舱壁外层，舱壁内是 Hikari 连接池。
+ * 回收时 abort 的是池中的连接，由 Hikari 丢弃并补充；直接 abort H2 的物理连接会把内存库一起关闭。
+ */
+class LeakTrackingDataSourceTests {
+
+	private static final Duration CHECK_INTERVAL = Duration.ofMillis(10);
+
+	private final List<LeakTrackingDataSource> dataSources = new ArrayList<>();
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	private BulkheadDataSource bulkhead;
+
+	@AfterEach
+	void destroy() {
+		dataSources.forEach(LeakTrackingDataSource::destroy);
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@Test
+	void leakedConnectionIsReclaimedAndItsPermitReturned() throws Exception {
+		LeakTrackingDataSource dataSource = leakTracking(Duration.ofMillis(50));
+		Connection leaked = dataSource.getConnection();
+		assertEquals(0, bulkhead.getAvailablePermits());
+
+		awaitReclaimed(dataSource, 1);
+
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertTrue(leaked.isClosed());
+		SQLException e = assertThrows(SQLException.class, leaked::createStatement);
+		assertTrue(e.getMessage().contains("reclaimed"));
+		// 泄漏方之后再 close 什么都不做，许可不会被归还两次
+		assertDoesNotThrow(leaked::close);
+		assertEquals(1, bulkhead.getAvailablePermits());
+
+		// 回收后连接池中的位置可以再次借出：池中只有一个连接，abort 过的连接不能再被借出。
+		// 先停止检查，这次借用不会因为测试线程被调度延迟超过 reclaimAfter 而被回收
+		dataSource.destroy();
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			assertTrue(statement.execute("SELECT 1"));
+		}
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertEquals(0, dataSource.getStatus().get("borrowed"));
+	}
+
+	@Test
+	void connectionClosedInTimeIsNotReclaimed() throws Exception {
+		LeakTrackingDataSource dataSource = leakTracking(Duration.ofMillis(50));
+		try (Connection connection = dataSource.getConnection()) {
+			assertFalse(connection.isClosed());
+		}
+		Thread.sleep(100);
+
+		assertEquals(0L, dataSource.getStatus().get("reclaimedCount"));
+		assertEquals(1, bulkhead.getAvailablePermits());
+	}
+
+	@Test
+	void destroyStopsTheCheck() throws Exception {
+		LeakTrackingDataSource dataSource = leakTracking(Duration.ofMillis(20));
+		dataSource.destroy();
+
+		Connection connection = dataSource.getConnection();
+		Thread.sleep(200); // 远超 reclaimAfter 和检查间隔
+
+		assertEquals(0L, dataSource.getStatus().get("reclaimedCount"));
+		assertFalse(connection.isClosed());
+		connection.close();
+		assertEquals(1, bulkhead.getAvailablePermits());
+	}
+
+	private LeakTrackingDataSource leakTracking(Duration reclaimAfter) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setJdbcUrl("jdbc:h2:mem:leak_tracking;DB_CLOSE_DELAY=-1");
+		pool.setUsername("sa");
+		pool.setPassword("");
+		pool.setMaximumPoolSize(1);
+		pools.add(pool);
+		bulkhead = new BulkheadDataSource(pool, 1, 100);
+		LeakTrackingDataSource dataSource = new LeakTrackingDataSource(bulkhead, reclaimAfter.dividedBy(2), true, reclaimAfter,
+				CHECK_INTERVAL, 10);
+		dataSources.add(dataSource);
+		return dataSource;
+	}
+
+	private static void awaitReclaimed(LeakTrackingDataSource dataSource, long count) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!Long.valueOf(count).equals(dataSource.getStatus().get("reclaimedCount"))) {
+			assertTrue(System.nanoTime() < deadline, "连接没有被回收");
+			Thread.sleep(CHECK_INTERVAL.toMillis());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.demo.monitor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 事务统计：经代理调用的 REQUIRED 加入外层事务、REQUIRES_NEW 同时持有两个连接，以及泄漏的连接不影响同一线程之后的调用
+ */
+@SpringBootTest
+@Import(TransactionProfilerTests.Config.class)
+class TransactionProfilerTests {
+
+	private static final String OUTER_REQUIRED = "TransactionProfilerTests$Outer.callRequired";
+	private static final String OUTER_REQUIRES_NEW = "TransactionProfilerTests$Outer.callRequiresNew";
+	private static final String INNER_REQUIRED = "TransactionProfilerTests$Inner.required";
+	private static final String INNER_REQUIRES_NEW = "TransactionProfilerTests$Inner.requiresNew";
+
+	@Autowired
+	private TransactionProfiler transactionProfiler;
+
+	@Autowired
+	private Outer outer;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeEach
+	void reset() {
+		transactionProfiler.reset();
+		endRequest(); // 每个测试相当于一个新请求
+	}
+
+	@Test
+	void requiredJoinsTheOuterTransaction() {
+		outer.callRequired();
+
+		assertEquals(1, method(OUTER_REQUIRED).get("maxConnectionsHeld"));
+		assertEquals(1L, method(OUTER_REQUIRED).get("commits"));
+		assertEquals(2, method(OUTER_REQUIRED).get("maxStatements")); // 内层的 SQL 计入外层事务
+		assertNull(methods().get(INNER_REQUIRED)); // 没有开启物理事务，不单独计数
+		assertFalse(deadlockRisks().containsKey(OUTER_REQUIRED));
+	}
+
+	@Test
+	void requiresNewHoldsTwoConnections() {
+		outer.callRequiresNew();
+
+		assertEquals(2, method(OUTER_REQUIRES_NEW).get("maxConnectionsHeld"));
+		assertEquals(2, method(INNER_REQUIRES_NEW).get("maxConnectionsHeld")); // 运行时外层的连接仍被持有
+		assertEquals(1L, method(INNER_REQUIRES_NEW).get("suspendedOuter"));
+		assertEquals(0L, method(OUTER_REQUIRES_NEW).get("suspendedOuter"));
+		assertTrue(deadlockRisks().containsKey(OUTER_REQUIRES_NEW));
+	}
+
+	@Test
+	void connectionLeakedByAnEarlierRequestIsNotCountedAfterItEnds() throws Exception {
+		Connection leaked = dataSource.getConnection(); // 故意不关闭
+		try {
+			endRequest();
+
+			// 线程池复用同一线程处理下一个请求
+			outer.callRequired();
+			assertEquals(1, method(OUTER_REQUIRED).get("maxConnectionsHeld"));
+			assertFalse(deadlockRisks().containsKey(OUTER_REQUIRED));
+		} finally {
+			leaked.close();
+		}
+	}
+
+	@Test
+	void connectionReclaimedOnAnotherThreadIsRemovedFromItsOwner() throws Exception {
+		Connection leaked = dataSource.getConnection();
+		// 泄漏回收器在自己的线程上关闭连接，移除的是借出线程上的这一条
+		CompletableFuture.runAsync(() -> {
+			try {
+				leaked.close();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}).get(5, TimeUnit.SECONDS);
+
+		outer.callRequired();
+		assertEquals(1, method(OUTER_REQUIRED).get("maxConnectionsHeld"));
+		assertFalse(deadlockRisks().containsKey(OUTER_REQUIRED));
+	}
+
+	private void endRequest() {
+		transactionProfiler.afterCompletion(new MockHttpServletRequest(), new MockHttpServletResponse(), null, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> methods() {
+		return (Map<String, Object>) transactionProfiler.getStatus().get("methods");
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> method(String name) {
+		Map<String, Object> method = (Map<String, Object>) methods().get(name);
+		assertTrue(method != null, name + " 没有统计");
+		return method;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> deadlockRisks() {
+		return (Map<String, Object>) transactionProfiler.getStatus().get("poolDeadlockRisks");
+	}
+
+	@TestConfiguration
+	static class Config {
+
+		@Bean
+		Inner inner(JdbcTemplate jdbcTemplate) {
+			return new Inner(jdbcTemplate);
+		}
+
+		@Bean
+		Outer outer(JdbcTemplate jdbcTemplate, Inner inner) {
+			return new Outer(jdbcTemplate, inner);
+		}
+	}
+
+	/**
+	 * 外层事务，通过 Spring 代理调用 Inner，传播行为才会生效
+	 */
+	static class Outer {
+
+		private final JdbcTemplate jdbcTemplate;
+		private final Inner inner;
+
+		Outer(JdbcTemplate jdbcTemplate, Inner inner) {
+			this.jdbcTemplate = jdbcTemplate;
+			this.inner = inner;
+		}
+
+		@Transactional
+		public void callRequired() {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+			inner.required();
+		}
+
+		@Transactional
+		public void callRequiresNew() {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+			inner.requiresNew();
+		}
+	}
+
+	static class Inner {
+
+		private final JdbcTemplate jdbcTemplate;
+
+		Inner(JdbcTemplate jdbcTemplate) {
+			this.jdbcTemplate = jdbcTemplate;
+		}
+
+		@Transactional(propagation = Propagation.REQUIRED)
+		public void required() {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Long.class);
+		}
+
+		@Transactional(propagation = Propagation.REQUIRES_NEW)
+		public void requiresNew() {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Long.class);
+		}
+	}
+}
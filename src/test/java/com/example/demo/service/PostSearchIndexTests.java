@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文章倒排索引：不启动 Spring，直接通过 recordCreated / recordDeleted 写入（没有事务时立即生效）
+ */
+class PostSearchIndexTests {
+
+	private PostSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new PostSearchIndex(null); // 只有 build / refresh 会访问数据库
+	}
+
+	@Test
+	void titleMatchesOutrankContentMatches() {
+		index.recordCreated(1, "other", "a post about spring");
+		index.recordCreated(2, "spring", "a post about something");
+
+		assertEquals(List.of(2, 1), ids(index.search("spring", null, null, 10)));
+	}
+
+	@Test
+	void shorterDocumentsOutrankLongerOnesWithTheSameFrequency() {
+		index.recordCreated(1, "x", "cache with many other words that dilute the match considerably");
+		index.recordCreated(2, "x", "cache");
+
+		assertEquals(List.of(2, 1), ids(index.search("cache", null, null, 10)));
+	}
+
+	@Test
+	void rareTermsWeighMoreAndTermsAreOred() {
+		index.recordCreated(1, "x", "common");
+		index.recordCreated(2, "x", "common");
+		index.recordCreated(3, "x", "common");
+		index.recordCreated(4, "x", "rare");
+
+		PostSearchIndex.SearchResult result = index.search("common rare", null, null, 10);
+
+		assertEquals(4, result.totalHits());
+		assertEquals(4, result.hits().get(0).id());
+		assertTrue(result.hits().get(0).score() > result.hits().get(1).score());
+	}
+
+	@Test
+	void keysetPagesConcatenateToTheFullRanking() {
+		for (int id = 1; id <= 11; id++) {
+			// 词频 1-3 循环，制造相同分数，验证同分时按 id 升序继续
+			index.recordCreated(id, "x", "term ".repeat(id % 3 + 1) + "filler");
+		}
+		List<PostSearchIndex.ScoredPost> full = index.search("term", null, null, 100).hits();
+
+		List<PostSearchIndex.ScoredPost> paged = new ArrayList<>();
+		Float afterScore = null;
+		Integer afterId = null;
+		while (true) {
+			PostSearchIndex.SearchResult page = index.search("term", afterScore, afterId, 3);
+			paged.addAll(page.hits());
+			assertEquals(11, page.totalHits());
+			if (!page.hasMore()) {
+				break;
+			}
+			PostSearchIndex.ScoredPost last = page.hits().get(page.hits().size() - 1);
+			afterScore = last.score();
+			afterId = last.id();
+		}
+
+		assertEquals(11, full.size());
+		assertEquals(full, paged);
+	}
+
+	@Test
+	void deletedPostsAreSkippedAndCompactedAfterAQuarter() {
+		for (int id = 1; id <= 8; id++) {
+			index.recordCreated(id, "alpha", null);
+		}
+
+		index.recordDeleted(List.of(1));
+		PostSearchIndex.SearchResult result = index.search("alpha", null, null, 10);
+		assertEquals(7, result.totalHits());
+		assertFalse(ids(result).contains(1));
+		Map<String, Object> status = index.getStatus();
+		assertEquals(1, status.get("deletedDocuments")); // 1 <= 7 / 4，尚未压缩
+		assertEquals(8L, status.get("postings"));
+
+		index.recordDeleted(List.of(2, 3));
+		status = index.getStatus();
+		assertEquals(0, status.get("deletedDocuments"));
+		assertEquals(5L, status.get("postings"));
+		assertEquals(List.of(4, 5, 6, 7, 8), ids(index.search("alpha", null, null, 10)));
+
+		// 重复删除不影响计数
+		index.recordDeleted(List.of(1, 2));
+		assertEquals(5, index.getStatus().get("documents"));
+	}
+
+	@Test
+	void cjkTextIsIndexedAsBigrams() {
+		index.recordCreated(1, "Hikari连接池调优", null);
+		index.recordCreated(2, "数据库索引", null);
+
+		assertEquals(List.of(1), ids(index.search("连接池", null, null, 10)));
+		assertEquals(List.of(1), ids(index.search("hikari", null, null, 10)));
+		assertEquals(List.of(2), ids(index.search("索引", null, null, 10)));
+		// 字序颠倒或只有单字不构成相同的 bigram
+		assertTrue(index.search("接连", null, null, 10).hits().isEmpty());
+		assertTrue(index.search("池", null, null, 10).hits().isEmpty());
+	}
+
+	private static List<Integer> ids(PostSearchIndex.SearchResult result) {
+		return result.hits().stream().map(PostSearchIndex.ScoredPost::id).toList();
+	}
+}
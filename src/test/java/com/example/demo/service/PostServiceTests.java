@@ -0,0 +1,170 @@
+package com.example.demo.service;
+
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.PostBatchCreateResponse;
+import com.example.demo.dto.PostBatchUserResult;
+import com.example.demo.dto.PostCreateRequest;
+import com.example.demo.dto.PostExportFormat;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文章批量写入的按用户部分失败，以及 CSV / NDJSON 导出的转义、空正文和游标
+ * <p>
+ * 导出从本测试写入的第一篇文章之前开始，数据库中其他测试留下的文章 ID 都更小，不会出现在导出结果中。
+ */
+@SpringBootTest
+class PostServiceTests {
+
+	private static final String ROLE = "post_export";
+
+	/** 引号正好落在导出时 8192 字符读缓冲区的边界两侧 */
+	private static final String LONG_CONTENT = "a".repeat(8191) + "\"\"b";
+
+	@Autowired
+	private PostService postService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final List<Integer> createdUserIds = new ArrayList<>();
+
+	private User author;
+
+	private User other;
+
+	@BeforeEach
+	void createUsers() {
+		author = createUser("export_" + System.nanoTime());
+		other = createUser("export_other_" + System.nanoTime());
+	}
+
+	@AfterEach
+	void deleteUsers() {
+		// 级联删除文章
+		userRepository.deleteAllById(createdUserIds);
+		createdUserIds.clear();
+	}
+
+	@Test
+	void oneUsersFailureDoesNotAffectOthers() {
+		PostBatchCreateResponse response = postService.createPosts(List.of(
+				new PostCreateRequest(author.getId(), "first", "content"),
+				new PostCreateRequest(Integer.MAX_VALUE, "orphan", "no such user"),
+				new PostCreateRequest(other.getId(), "fits", "content"),
+				new PostCreateRequest(other.getId(), "t".repeat(256), "title longer than the column"),
+				new PostCreateRequest(author.getId(), "second", null)));
+
+		assertEquals(5, response.total());
+		assertEquals(2, response.created());
+		assertEquals(3, response.failed());
+
+		List<PostBatchUserResult> users = response.users();
+		assertEquals(List.of(author.getId(), Integer.MAX_VALUE, other.getId()), users.stream().map(PostBatchUserResult::userId).toList());
+		assertEquals(new PostBatchUserResult(author.getId(), true, 200, "OK", 2, 2), users.get(0));
+		assertFalse(users.get(1).success());
+		assertEquals(ErrorCode.USER_NOT_FOUND.getCode(), users.get(1).code());
+		// 同一用户的文章在一个事务中：超长标题让该用户的两篇文章都回滚
+		assertFalse(users.get(2).success());
+		assertEquals(ErrorCode.INTERNAL_SERVER_ERROR.getCode(), users.get(2).code());
+		assertEquals(0, users.get(2).created());
+
+		assertEquals(List.of("first", "second"), titles(author));
+		assertEquals(List.of(), titles(other));
+	}
+
+	@Test
+	void csvExportEscapesQuotesCommasAndLineBreaks() throws Exception {
+		List<Integer> ids = createExportPosts();
+
+		String csv = export(ids.get(0) - 1, PostExportFormat.CSV);
+
+		String name = author.getName();
+		assertEquals("id,title,user_id,author_name,content\r\n"
+				+ ids.get(0) + ",\"He said \"\"hi\"\", then left\"," + author.getId() + ",\"" + name + "\",\"line1\r\nline2, \"\"quoted\"\"\"\r\n"
+				+ ids.get(1) + ",\"no content\"," + author.getId() + ",\"" + name + "\",\r\n" // 空正文是空字段，不是 ""
+				+ ids.get(2) + ",\"long\"," + author.getId() + ",\"" + name + "\",\"" + "a".repeat(8191) + "\"\"\"\"b\"\r\n", csv);
+	}
+
+	@Test
+	void csvExportStartsAfterTheCursor() throws Exception {
+		List<Integer> ids = createExportPosts();
+
+		String csv = export(ids.get(1), PostExportFormat.CSV);
+
+		assertTrue(csv.startsWith("id,title,user_id,author_name,content\r\n" + ids.get(2) + ",\"long\","), csv.substring(0, 80));
+		assertFalse(csv.contains("no content"));
+	}
+
+	@Test
+	void ndjsonExportWritesOneObjectPerLine() throws Exception {
+		List<Integer> ids = createExportPosts();
+
+		List<String> lines = export(ids.get(0) - 1, PostExportFormat.NDJSON).lines().toList();
+
+		assertEquals(3, lines.size());
+		JsonNode first = objectMapper.readTree(lines.get(0));
+		assertEquals(ids.get(0).intValue(), first.get("id").asInt());
+		assertEquals("He said \"hi\", then left", first.get("title").asText());
+		assertEquals(author.getId().intValue(), first.get("userId").asInt());
+		assertEquals(author.getName(), first.get("authorName").asText());
+		assertEquals("line1\r\nline2, \"quoted\"", first.get("content").asText());
+		assertTrue(objectMapper.readTree(lines.get(1)).get("content").isNull());
+		assertEquals(LONG_CONTENT, objectMapper.readTree(lines.get(2)).get("content").asText());
+
+		List<String> afterCursor = export(ids.get(1), PostExportFormat.NDJSON).lines().toList();
+		assertEquals(1, afterCursor.size());
+		assertEquals(ids.get(2).intValue(), objectMapper.readTree(afterCursor.get(0)).get("id").asInt());
+	}
+
+	private User createUser(String name) {
+		User user = userRepository.save(new User(null, name, ROLE));
+		createdUserIds.add(user.getId());
+		return user;
+	}
+
+	/**
+	 * 为 author 写入三篇文章：标题和正文含引号、逗号和 CRLF，正文为空，以及跨越读缓冲区的长正文
+	 */
+	private List<Integer> createExportPosts() {
+		PostBatchCreateResponse response = postService.createPosts(List.of(
+				new PostCreateRequest(author.getId(), "He said \"hi\", then left", "line1\r\nline2, \"quoted\""),
+				new PostCreateRequest(author.getId(), "no content", null),
+				new PostCreateRequest(author.getId(), "long", LONG_CONTENT)));
+		assertEquals(3, response.created());
+		return jdbcTemplate.queryForList("SELECT id FROM posts WHERE user_id = ? ORDER BY id", Integer.class, author.getId());
+	}
+
+	private List<String> titles(User user) {
+		return jdbcTemplate.queryForList("SELECT title FROM posts WHERE user_id = ? ORDER BY id", String.class, user.getId());
+	}
+
+	private String export(int cursor, PostExportFormat format) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		postService.exportPosts(cursor, format, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * single-flight：每个调用者一个线程，leader 的查询用 CountDownLatch 控制何时结束，等待者进入等待后才放行
+ */
+class SingleFlightTests {
+
+	private static final String KEY = "user:1";
+
+	private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+	private final List<Thread> threads = new ArrayList<>();
+
+	@AfterEach
+	void stopThreads() throws InterruptedException {
+		for (Thread thread : threads) {
+			thread.interrupt();
+			thread.join(5_000);
+		}
+	}
+
+	@Test
+	void concurrentCallersShareOneQuery() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger queries = new AtomicInteger();
+
+		CompletableFuture<String> leader = call(() -> {
+			queries.incrementAndGet();
+			return blockUntil(started, release, "alice");
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		List<CompletableFuture<String>> waiters = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			waiters.add(call(() -> {
+				queries.incrementAndGet();
+				return "unexpected";
+			}));
+		}
+		awaitWaiting();
+
+		release.countDown();
+		assertEquals("alice", leader.get(5, TimeUnit.SECONDS));
+		for (CompletableFuture<String> waiter : waiters) {
+			assertEquals("alice", waiter.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, queries.get());
+		assertEquals(1L, flights.getStatus().get("executed"));
+		assertEquals(3L, flights.getStatus().get("saved"));
+		assertEquals(0, flights.getStatus().get("inFlight"));
+	}
+
+	@Test
+	void waitersShareTheLeadersFailure() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("connection refused");
+
+		CompletableFuture<String> leader = call(() -> {
+			blockUntil(started, release, null);
+			throw failure;
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> waiter = call(() -> "unexpected");
+		awaitWaiting();
+
+		release.countDown();
+		assertSame(failure, cause(leader));
+		assertSame(failure, cause(waiter));
+		assertEquals(1L, flights.getStatus().get("sharedFailures"));
+
+		// 失败的查询已经结束，之后到达的调用者重新查询
+		assertEquals("alice", flights.execute(KEY, () -> "alice"));
+	}
+
+	@Test
+	void waitersElectANewLeaderWhenTheLeaderIsInterrupted() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> leader = call(() -> blockUntil(started, release, "stale"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Thread leaderThread = threads.get(0);
+		AtomicInteger queries = new AtomicInteger();
+		CompletableFuture<String> waiter = call(() -> {
+			queries.incrementAndGet();
+			return "alice";
+		});
+		awaitWaiting();
+
+		// 请求超时取消 leader：等待者不接受它的失败，自己成为 leader 再查一次
+		leaderThread.interrupt();
+		assertInstanceOf(BusinessException.class, cause(leader));
+		assertEquals("alice", waiter.get(5, TimeUnit.SECONDS));
+		assertEquals(1, queries.get());
+		assertEquals(1L, flights.getStatus().get("leaderCancelled"));
+		assertEquals(2L, flights.getStatus().get("executed"));
+		assertEquals(0L, flights.getStatus().get("sharedFailures"));
+	}
+
+	@Test
+	void interruptedWaiterGivesUpWithoutAffectingTheLeader() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> leader = call(() -> blockUntil(started, release, "alice"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> waiter = call(() -> "unexpected");
+		awaitWaiting();
+
+		threads.get(1).interrupt();
+		BusinessException abandoned = assertInstanceOf(BusinessException.class, cause(waiter));
+		assertEquals(ErrorCode.SERVICE_BUSY, abandoned.getErrorCode());
+
+		release.countDown();
+		assertEquals("alice", leader.get(5, TimeUnit.SECONDS));
+		assertEquals(1L, flights.getStatus().get("abandoned"));
+	}
+
+	@Test
+	void callersAfterForgetDoNotJoinAnOlderQuery() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		// 写入提交前开始的查询读到旧值
+		CompletableFuture<String> before = call(() -> blockUntil(started, release, "alice"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		flights.forget(KEY); // 写入提交
+		assertEquals("alice_renamed", flights.execute(KEY, () -> "alice_renamed"));
+
+		release.countDown();
+		assertEquals("alice", before.get(5, TimeUnit.SECONDS));
+		assertEquals(2L, flights.getStatus().get("executed"));
+		assertEquals(0L, flights.getStatus().get("saved"));
+	}
+
+	/**
+	 * 在新线程中调用 execute，线程按启动顺序记录在 threads 中
+	 */
+	private CompletableFuture<String> call(Supplier<String> loader) {
+		CompletableFuture<String> result = new CompletableFuture<>();
+		Thread thread = new Thread(() -> {
+			try {
+				result.complete(flights.execute(KEY, loader));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		}, "single-flight-" + threads.size());
+		threads.add(thread);
+		thread.start();
+		return result;
+	}
+
+	/**
+	 * 等待除 leader 之外的线程都阻塞在 leader 的结果上
+	 */
+	private void awaitWaiting() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		for (Thread thread : threads.subList(1, threads.size())) {
+			while (thread.getState() != Thread.State.WAITING) {
+				assertTrue(System.nanoTime() < deadline, thread.getName() + " 没有进入等待");
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	/**
+	 * 模拟一次查询：通知已开始，等待放行；被中断时像查询超时一样抛出异常并保留中断标志
+	 */
+	private static String blockUntil(CountDownLatch started, CountDownLatch release, String value) {
+		started.countDown();
+		try {
+			release.await();
+			return value;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BusinessException(ErrorCode.SERVICE_BUSY);
+		}
+	}
+
+	private static Throwable cause(CompletableFuture<String> result) {
+		ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+		return e.getCause();
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import com.example.demo.common.ErrorCode;
+import com.example.demo.dto.UserBatchCreateResponse;
+import com.example.demo.dto.UserBatchItemResult;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量创建用户：校验和用户名预检查只影响对应条目，分块插入失败后逐条重试只让出错的那一条失败
+ * <p>
+ * 分块大小设为 3，便于构造“一个分块失败、另一个分块正常提交”的批次。
+ */
+@SpringBootTest(properties = "app.user.batch.chunk-size=3")
+class UserBatchServiceTests {
+
+	private static final String ROLE = "batch_insert";
+
+	/** 通过校验（role 只要求非空）但超过 users.role 列的 VARCHAR(20)，插入时才失败 */
+	private static final String ROLE_TOO_LONG = "r".repeat(21);
+
+	@Autowired
+	private UserBatchService userBatchService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private RoleCountIndex roleCountIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Integer> createdUserIds = new ArrayList<>();
+
+	@AfterEach
+	void deleteUsers() {
+		// 经 UserService 删除，角色计数和用户名索引随之更新
+		createdUserIds.forEach(userService::deleteUserById);
+		createdUserIds.clear();
+	}
+
+	@Test
+	void invalidAndDuplicateNamesFailOnlyTheirOwnItems() {
+		String existing = name("existing");
+		createdUserIds.add(userService.createUser(new UserCreateRequest(existing, ROLE)).id());
+		String fresh = name("fresh");
+
+		UserBatchCreateResponse response = create(List.of(
+				new UserCreateRequest(existing, ROLE), // 数据库中已存在
+				new UserCreateRequest(fresh, ROLE),
+				new UserCreateRequest(fresh, ROLE), // 批次内重复，保留第一条
+				new UserCreateRequest(" ", ROLE))); // 校验失败
+
+		assertEquals(4, response.total());
+		assertEquals(1, response.created());
+		assertEquals(3, response.failed());
+		List<UserBatchItemResult> results = response.results();
+		assertFailed(results.get(0), ErrorCode.USER_NAME_DUPLICATED);
+		assertTrue(results.get(1).success());
+		assertEquals(fresh, results.get(1).user().name());
+		assertFailed(results.get(2), ErrorCode.USER_NAME_DUPLICATED);
+		assertTrue(results.get(2).message().contains("Duplicate name in batch"));
+		assertFailed(results.get(3), ErrorCode.VALIDATION_ERROR);
+
+		assertEquals(1, countUsers(existing));
+		assertEquals(1, countUsers(fresh));
+	}
+
+	@Test
+	void failedChunkFallsBackToRowByRowInserts() {
+		long countBefore = roleCountIndex.snapshot().getOrDefault(ROLE, 0L);
+		List<String> names = List.of(name("a"), name("b"), name("c"), name("d"), name("e"));
+
+		// 第一个分块 [a, b, c] 中的 b 插入失败，整个分块回滚后逐条重试；第二个分块 [d, e] 直接提交
+		UserBatchCreateResponse response = create(List.of(
+				new UserCreateRequest(names.get(0), ROLE),
+				new UserCreateRequest(names.get(1), ROLE_TOO_LONG),
+				new UserCreateRequest(names.get(2), ROLE),
+				new UserCreateRequest(names.get(3), ROLE),
+				new UserCreateRequest(names.get(4), ROLE)));
+
+		assertEquals(4, response.created());
+		assertEquals(1, response.failed());
+		List<UserBatchItemResult> results = response.results();
+		assertFailed(results.get(1), ErrorCode.INTERNAL_SERVER_ERROR);
+		for (int i : List.of(0, 2, 3, 4)) {
+			UserResponse user = results.get(i).user();
+			assertEquals(names.get(i), user.name());
+			assertEquals(0L, user.version());
+			assertEquals(names.get(i), jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, user.id()));
+		}
+		assertEquals(0, countUsers(names.get(1)));
+
+		// 只有插入成功的条目计入角色计数
+		assertEquals(countBefore + 4, roleCountIndex.snapshot().getOrDefault(ROLE, 0L));
+	}
+
+	private UserBatchCreateResponse create(List<UserCreateRequest> requests) {
+		UserBatchCreateResponse response = userBatchService.createUsers(requests);
+		response.results().stream()
+				.filter(UserBatchItemResult::success)
+				.forEach(result -> createdUserIds.add(result.user().id()));
+		return response;
+	}
+
+	private static void assertFailed(UserBatchItemResult result, ErrorCode errorCode) {
+		assertFalse(result.success());
+		assertEquals(errorCode.getCode(), result.code());
+		assertNull(result.user());
+	}
+
+	private int countUsers(String name) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE name = ?", Integer.class, name);
+	}
+
+	private static String name(String suffix) {
+		return "batch_" + System.nanoTime() + "_" + suffix;
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 用户名字典树：不启动 Spring，直接通过 recordCreated / recordDeleted / recordRenamed 写入（没有事务时立即生效）
+ */
+class UserNameIndexTests {
+
+	private UserNameIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new UserNameIndex(null, null); // 只有重建会访问数据库
+	}
+
+	@Test
+	void suggestionsAreInLexicographicOrder() {
+		List.of("carol", "alice", "bob", "alex", "al", "alicia").forEach(index::recordCreated);
+
+		assertEquals(List.of("al", "alex", "alice", "alicia"), index.suggest("al", 10));
+		assertEquals(List.of("al", "alex", "alice", "alicia", "bob", "carol"), index.suggest("", 10));
+		assertEquals(List.of(), index.suggest("dave", 10));
+	}
+
+	@Test
+	void limitIsAppliedAndClamped() {
+		for (int i = 0; i < UserNameIndex.MAX_SUGGESTIONS + 10; i++) {
+			index.recordCreated(String.format("user%03d", i));
+		}
+
+		assertEquals(List.of("user000", "user001", "user002"), index.suggest("user", 3));
+		assertEquals(List.of("user000"), index.suggest("user", 0));
+		assertEquals(UserNameIndex.MAX_SUGGESTIONS, index.suggest("user", 1000).size());
+	}
+
+	@Test
+	void prefixMatchIgnoresCaseAndKeepsOriginalSpelling() {
+		index.recordCreated("Alice");
+		index.recordCreated("ALEX");
+		index.recordCreated("bob");
+
+		assertEquals(List.of("ALEX", "Alice"), index.suggest("aL", 10));
+	}
+
+	@Test
+	void deletedNamesAreNoLongerSuggested() {
+		index.recordCreated("alice");
+		index.recordCreated("alex");
+
+		index.recordDeleted("alice");
+		assertEquals(List.of("alex"), index.suggest("al", 10));
+
+		// 不存在的名字、重复删除都不影响其他名字
+		index.recordDeleted("alice");
+		index.recordDeleted("nobody");
+		assertEquals(List.of("alex"), index.suggest("al", 10));
+		assertEquals(1, index.getStatus().get("names"));
+	}
+
+	@Test
+	void deletingOneCaseVariantKeepsTheOther() {
+		index.recordCreated("Alice");
+		index.recordCreated("alice");
+		assertEquals(List.of("Alice"), index.suggest("al", 10));
+
+		index.recordDeleted("Alice");
+		assertEquals(List.of("alice"), index.suggest("al", 10));
+
+		index.recordDeleted("alice");
+		assertEquals(List.of(), index.suggest("al", 10));
+		assertEquals(0, index.getStatus().get("names"));
+	}
+
+	@Test
+	void renameMovesTheName() {
+		index.recordCreated("alice");
+		index.recordCreated("bob");
+
+		index.recordRenamed("alice", "Zoe");
+		assertEquals(List.of(), index.suggest("ali", 10));
+		assertEquals(List.of("Zoe"), index.suggest("z", 10));
+
+		// 只改大小写
+		index.recordRenamed("bob", "Bob");
+		assertEquals(List.of("Bob"), index.suggest("b", 10));
+		assertEquals(2, index.getStatus().get("names"));
+	}
+}
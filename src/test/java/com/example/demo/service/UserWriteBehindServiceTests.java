@@ -0,0 +1,310 @@
+package com.example.demo.service;
+
+import com.example.demo.common.BusinessException;
+import com.example.demo.common.ErrorCode;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.config.WriteBehindProperties;
+import com.example.demo.dto.UserCreateRequest;
+import com.example.demo.dto.UserResponse;
+import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserBatchRepository;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 写后缓冲：合并、背压、预写日志重放、关闭时刷写和刷写后的缓存失效
+ * <p>
+ * 应用上下文中未开启写后缓冲，每个测试用临时目录和自己的配置创建服务；刷写间隔足够长，只有主动触发的刷写会执行，
+ * 需要让刷写停在事务之前时使用 GatedTransactionTemplate。
+ */
+@SpringBootTest
+class UserWriteBehindServiceTests {
+
+	private static final String ROLE = "write_behind";
+
+	private static final Duration FLUSH_INTERVAL = Duration.ofHours(1);
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserBatchRepository userBatchRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private RoleCountIndex roleCountIndex;
+
+	@Autowired
+	private UserNameIndex userNameIndex;
+
+	@Autowired
+	private ETagRegistry eTagRegistry;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	private Path journalDir;
+
+	private final List<Integer> createdUsers = new ArrayList<>();
+
+	private final List<UserWriteBehindService> services = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		services.forEach(UserWriteBehindService::stop);
+		// 数据库与其他测试类共享，经 UserService 删除以同时更新角色计数
+		createdUsers.forEach(userService::deleteUserById);
+	}
+
+	@Test
+	void updatesToTheSameUserAreCoalescedIntoOneRow() throws Exception {
+		UserResponse blocker = createUser();
+		UserResponse user = createUser();
+		GatedTransactionTemplate template = new GatedTransactionTemplate(transactionManager);
+		UserWriteBehindService service = startService(1000, Duration.ofSeconds(5), template);
+
+		// 第一次刷写取走 blocker 后停在事务之前，之后的更新都留在待刷写表中
+		service.submit(blocker.id(), update(blocker.name(), ROLE));
+		CompletableFuture<Integer> firstFlush = CompletableFuture.supplyAsync(service::flush);
+		assertTrue(template.entered.await(5, TimeUnit.SECONDS));
+
+		for (int i = 1; i <= 3; i++) {
+			service.submit(user.id(), update(user.name() + "_" + i, ROLE));
+		}
+		assertEquals(2L, service.getStatus().get("coalesced"));
+
+		template.open();
+		firstFlush.get(5, TimeUnit.SECONDS);
+		service.awaitFlushed(user.id());
+
+		assertEquals(user.name() + "_3", currentName(user.id()));
+		assertEquals(user.version() + 1, currentVersion(user.id()));
+		assertEquals(2L, service.getStatus().get("writtenRows")); // blocker 一行，user 一行
+	}
+
+	@Test
+	void fullBufferRejectsNewUsersAfterTheEnqueueTimeout() throws Exception {
+		UserResponse blocker = createUser();
+		UserResponse first = createUser();
+		UserResponse second = createUser();
+		GatedTransactionTemplate template = new GatedTransactionTemplate(transactionManager);
+		UserWriteBehindService service = startService(1, Duration.ofMillis(200), template);
+
+		// 待刷写表满时立即触发刷写，刷写停在事务之前，不会腾出空位
+		service.submit(blocker.id(), update(blocker.name(), ROLE));
+		assertTrue(template.entered.await(5, TimeUnit.SECONDS));
+		service.submit(first.id(), update(first.name() + "_1", ROLE));
+
+		long start = System.nanoTime();
+		BusinessException rejected = assertThrows(BusinessException.class,
+				() -> service.submit(second.id(), update(second.name() + "_1", ROLE)));
+		assertEquals(ErrorCode.SERVICE_BUSY, rejected.getErrorCode());
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+		assertEquals(1L, service.getStatus().get("rejected"));
+
+		// 已在待刷写表中的用户不占用新的空位，直接合并
+		service.submit(first.id(), update(first.name() + "_2", ROLE));
+
+		template.open();
+		service.awaitFlushed(first.id());
+		assertEquals(first.name() + "_2", currentName(first.id()));
+		assertEquals(second.name(), currentName(second.id()));
+	}
+
+	@Test
+	void leftoverJournalSegmentsAreReplayedOnStart() throws Exception {
+		UserResponse user = createUser();
+		UserResponse other = createUser();
+
+		// 模拟上次运行在刷写前崩溃：两个段都没有被删除，后一个段中的更新覆盖前一个段
+		WriteBehindJournal journal = new WriteBehindJournal(journalDir, objectMapper);
+		journal.sync(journal.append(user.id(), update(user.name() + "_1", ROLE)));
+		journal.sync(journal.append(other.id(), update(other.name() + "_1", ROLE)));
+		journal.rotate();
+		journal.sync(journal.append(user.id(), update(user.name() + "_2", ROLE)));
+		journal.rotate();
+
+		UserWriteBehindService service = startService(1000, Duration.ofSeconds(5), new TransactionTemplate(transactionManager));
+		assertEquals(2L, service.getStatus().get("recovered"));
+		service.awaitFlushed(user.id());
+		service.awaitFlushed(other.id());
+
+		assertEquals(user.name() + "_2", currentName(user.id()));
+		assertEquals(user.version() + 1, currentVersion(user.id()));
+		assertEquals(other.name() + "_1", currentName(other.id()));
+		assertTrue(journal.segments().isEmpty());
+	}
+
+	@Test
+	void stopFlushesRemainingUpdates() throws Exception {
+		UserResponse user = createUser();
+		UserWriteBehindService service = startService(1000, Duration.ofSeconds(5), new TransactionTemplate(transactionManager));
+
+		service.submit(user.id(), update(user.name() + "_1", ROLE));
+		service.stop();
+
+		assertFalse(service.isRunning());
+		assertEquals(0, service.getStatus().get("pending"));
+		assertEquals(user.name() + "_1", currentName(user.id()));
+		assertTrue(new WriteBehindJournal(journalDir, objectMapper).segments().isEmpty());
+
+		// 停止后不再接收更新
+		BusinessException rejected = assertThrows(BusinessException.class,
+				() -> service.submit(user.id(), update(user.name() + "_2", ROLE)));
+		assertEquals(ErrorCode.SERVICE_BUSY, rejected.getErrorCode());
+	}
+
+	@Test
+	void awaitFlushedLetsAnIfMatchUpdateSeeTheBufferedVersion() {
+		UserResponse user = createUser();
+		UserWriteBehindService service = startService(1000, Duration.ofSeconds(5), new TransactionTemplate(transactionManager));
+
+		service.submit(user.id(), update(user.name() + "_1", ROLE));
+		service.awaitFlushed(user.id());
+		assertEquals(user.version() + 1, currentVersion(user.id()));
+
+		// 与 UserController 相同：等缓冲中的更新落库后再按 If-Match 比较版本
+		UserResponse updated = userService.updateUser(user.id(), update(user.name() + "_2", ROLE), user.version() + 1);
+		assertEquals(user.version() + 2, updated.version());
+		BusinessException conflict = assertThrows(BusinessException.class,
+				() -> userService.updateUser(user.id(), update(user.name() + "_3", ROLE), user.version()));
+		assertEquals(ErrorCode.USER_UPDATE_CONFLICT, conflict.getErrorCode());
+	}
+
+	@Test
+	void flushEvictsCachesAndUpdatesIndexes() {
+		UserResponse user = createUser();
+		String newRole = ROLE + "_moved";
+		String newName = user.name() + "_1";
+		UserWriteBehindService service = startService(1000, Duration.ofSeconds(5), new TransactionTemplate(transactionManager));
+
+		// 让旧值进入 users 缓存、User 二级缓存和 ETag 登记表
+		eTagRegistry.rememberUser(userService.getUserById(user.id()));
+		userRepository.findById(user.id());
+		assertTrue(entityManagerFactory.getCache().contains(User.class, user.id()));
+		assertEquals(ETagRegistry.userETag(user), eTagRegistry.knownUserETag(user.id()));
+		Map<String, Long> countsBefore = roleCountIndex.snapshot();
+
+		service.submit(user.id(), update(newName, newRole));
+		service.awaitFlushed(user.id());
+
+		assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get(user.id()));
+		assertFalse(entityManagerFactory.getCache().contains(User.class, user.id()));
+		assertNull(eTagRegistry.knownUserETag(user.id()));
+		Map<String, Long> countsAfter = roleCountIndex.snapshot();
+		assertEquals(countsBefore.getOrDefault(ROLE, 0L) - 1, countsAfter.getOrDefault(ROLE, 0L));
+		assertEquals(countsBefore.getOrDefault(newRole, 0L) + 1, countsAfter.getOrDefault(newRole, 0L));
+		assertEquals(List.of(newName), userNameIndex.suggest(newName, 10));
+		assertFalse(userNameIndex.suggest(user.name(), 10).contains(user.name()));
+
+		UserResponse reloaded = userService.getUserById(user.id());
+		assertEquals(newName, reloaded.name());
+		assertEquals(newRole, reloaded.role());
+		assertEquals(user.version() + 1, reloaded.version());
+	}
+
+	private UserWriteBehindService startService(int maxPending, Duration enqueueTimeout, TransactionTemplate template) {
+		try {
+			UserWriteBehindService service = new UserWriteBehindService(userService, userBatchRepository, template,
+					cacheManager, entityManagerFactory, roleCountIndex, userNameIndex, eTagRegistry, objectMapper,
+					new WriteBehindProperties(true, FLUSH_INTERVAL, maxPending, enqueueTimeout, journalDir));
+			service.start();
+			services.add(service);
+			return service;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private UserResponse createUser() {
+		UserResponse user = userService.createUser(new UserCreateRequest("wb_" + System.nanoTime(), ROLE));
+		createdUsers.add(user.id());
+		return user;
+	}
+
+	private static UserUpdateRequest update(String name, String role) {
+		return new UserUpdateRequest(name, role);
+	}
+
+	private String currentName(int id) {
+		return jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, id);
+	}
+
+	private long currentVersion(int id) {
+		return jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, id);
+	}
+
+	/**
+	 * 刷写进入事务之前在闸门处等待，open() 之后全部放行
+	 */
+	private static final class GatedTransactionTemplate extends TransactionTemplate {
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		GatedTransactionTemplate(PlatformTransactionManager transactionManager) {
+			super(transactionManager);
+		}
+
+		void open() {
+			gate.countDown();
+		}
+
+		@Override
+		public <T> T execute(TransactionCallback<T> action) {
+			entered.countDown();
+			try {
+				if (!gate.await(10, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("闸门未打开");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+			return super.execute(action);
+		}
+	}
+}